@@ -7,6 +7,12 @@ public class Airport {
     private String code;
     private String name;
     private String location;
+    // Dense id in the registry of the graph the airport joined last, so that graph
+    // resolves it without hashing the code; other graphs look the code up instead.
+    // Packed as (registry serial << 32 | id) so readers never see one without the other.
+    private volatile long registryId;
+    // Shortest time a passenger needs between arriving here and departing again
+    private int minimumConnectionMinutes = 60;
 
     public Airport(String code, String name, String location) {
         if (code == null || code.isEmpty() || name == null)
@@ -23,6 +29,28 @@ public class Airport {
 
     public void setCode(String code) {
         this.code = code;
+        this.registryId = 0;
+    }
+
+    // This airport's id in the registry with that serial, or -1 when the registry
+    // must look up the code
+    public int getId(int registrySerial) {
+        long packed = registryId;
+        return (int) (packed >>> 32) == registrySerial ? (int) packed : -1;
+    }
+
+    public void setId(int registrySerial, int id) {
+        this.registryId = ((long) registrySerial << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    public int getMinimumConnectionMinutes() {
+        return minimumConnectionMinutes;
+    }
+
+    public void setMinimumConnectionMinutes(int minimumConnectionMinutes) {
+        if (minimumConnectionMinutes < 0)
+            throw new IllegalArgumentException("Minimum connection time cannot be negative");
+        this.minimumConnectionMinutes = minimumConnectionMinutes;
     }
 
     public String getName() {
@@ -46,12 +74,17 @@ public class Airport {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Airport airport = (Airport) o;
-        return Objects.equals(code, airport.code) && Objects.equals(name, airport.name) && Objects.equals(location, airport.location);
+        // An airport is its IATA code. Airports with ids from one registry share an id
+        // exactly when they share a code, so comparing ids is only a quicker way there.
+        long packed = registryId;
+        long other = airport.registryId;
+        if (packed != 0 && other != 0 && (packed >>> 32) == (other >>> 32)) return packed == other;
+        return Objects.equals(code, airport.code);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(code, name, location);
+        return Objects.hashCode(code);
     }
 
     @Override
@@ -1,15 +1,47 @@
 package adt;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Objects;
 
 public class Flight {
+    // Told after every change to the seats or base price, and so to the current price.
+    // seatsFreed is true when the flight may have more seats than before.
+    public interface ChangeListener {
+        void flightChanged(Flight flight, boolean seatsFreed);
+
+        // Told before flightChanged when the base price is set below its previous value
+        default void basePriceLowered(Flight flight) {
+        }
+
+        // Told when setFlightDate or setSchedule moves the flight to another day
+        default void flightDateChanged(Flight flight, LocalDate previousDate) {
+        }
+
+        // Told when setFlightNumber gives the flight another number
+        default void flightNumberChanged(Flight flight, String previousNumber) {
+        }
+    }
+
+    // A connection leaves at the earliest on the day the previous flight lands, and at
+    // the latest this many days later
+    public static final int MAX_LAYOVER_DAYS = 1;
+
     private Airport origin;
     private Airport destination;
     private int totalSeats;
-    private int availableSeats;
+    private volatile int availableSeats;
     private double basePrice;
     private LocalDate flightDate;
     private String flightNumber;
+    // Scheduled times on one shared clock; null for flights known only by date
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    // Shared while empty, since most flights never get a listener
+    private static final ChangeListener[] NO_LISTENERS = new ChangeListener[0];
+    private volatile ChangeListener[] changeListeners = NO_LISTENERS;
 
 
     public Flight(Airport origin, Airport destination, int totalSeats, double basePrice,
@@ -30,16 +62,57 @@ public class Flight {
         this.availableSeats = totalSeats;
     }
 
+
+    public Flight(Airport origin, Airport destination, int totalSeats, double basePrice,
+                  LocalDateTime departureTime, LocalDateTime arrivalTime, String flightNumber) {
+        this(origin, destination, totalSeats, basePrice,
+                departureTime != null ? departureTime.toLocalDate() : null, flightNumber);
+        if (departureTime == null || arrivalTime == null)
+            throw new IllegalArgumentException("Departure and arrival times cannot be null");
+        if (!arrivalTime.isAfter(departureTime))
+            throw new IllegalArgumentException("Arrival must be after departure");
+
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+    }
+
     public boolean bookSeats(int seatCount) {
-        if (seatCount <= 0 || seatCount > availableSeats)
-            return false;
-        availableSeats -= seatCount;
+        synchronized (this) {
+            if (seatCount <= 0 || seatCount > availableSeats)
+                return false;
+            availableSeats -= seatCount;
+        }
+        notifyChanged(false);
         return true;
     }
 
     public void releaseSeats(int seatCount) {
-        if (seatCount > 0 && (availableSeats + seatCount) <= totalSeats)
+        synchronized (this) {
+            if (seatCount <= 0 || (availableSeats + seatCount) > totalSeats)
+                return;
             availableSeats += seatCount;
+        }
+        notifyChanged(true);
+    }
+
+    public synchronized void addChangeListener(ChangeListener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener cannot be null");
+        ChangeListener[] listeners = Arrays.copyOf(changeListeners, changeListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        changeListeners = listeners;
+    }
+
+    // Outside the lock, so a listener may read the flight or take locks of its own
+    private void notifyChanged(boolean seatsFreed) {
+        for (ChangeListener listener : changeListeners)
+            listener.flightChanged(this, seatsFreed);
+    }
+
+    private void notifyDateChanged(LocalDate previousDate) {
+        if (Objects.equals(previousDate, flightDate)) return;
+        for (ChangeListener listener : changeListeners)
+            listener.flightDateChanged(this, previousDate);
     }
 
     public double getCurrentPrice() {
@@ -83,6 +156,7 @@ public class Flight {
 
     public void setTotalSeats(int totalSeats) {
         this.totalSeats = totalSeats;
+        notifyChanged(false);
     }
 
     public int getAvailableSeats() {
@@ -91,6 +165,7 @@ public class Flight {
 
     public void setAvailableSeats(int availableSeats) {
         this.availableSeats = availableSeats;
+        notifyChanged(true);
     }
 
     public double getBasePrice() {
@@ -98,7 +173,13 @@ public class Flight {
     }
 
     public void setBasePrice(double basePrice) {
+        double previous = this.basePrice;
         this.basePrice = basePrice;
+        if (basePrice < previous) {
+            for (ChangeListener listener : changeListeners)
+                listener.basePriceLowered(this);
+        }
+        notifyChanged(false);
     }
 
     public LocalDate getFlightDate() {
@@ -106,7 +187,60 @@ public class Flight {
     }
 
     public void setFlightDate(LocalDate flightDate) {
+        LocalDate previous = this.flightDate;
         this.flightDate = flightDate;
+        notifyDateChanged(previous);
+    }
+
+    // Day the flight lands: the arrival date when scheduled, its flight date otherwise
+    public LocalDate getArrivalDate() {
+        return hasSchedule() ? arrivalTime.toLocalDate() : flightDate;
+    }
+
+    // Whether a passenger landing on this flight can make the departing one: it leaves
+    // within MAX_LAYOVER_DAYS of the landing day and, when both flights are scheduled,
+    // no sooner than the airport's minimum connection time after the landing
+    public boolean connectsTo(Flight departing) {
+        LocalDate landed = getArrivalDate();
+        LocalDate leaves = departing.getFlightDate();
+        if (landed == null || leaves == null
+                || leaves.isBefore(landed) || leaves.isAfter(landed.plusDays(MAX_LAYOVER_DAYS)))
+            return false;
+        if (hasSchedule() && departing.hasSchedule()) {
+            int minimum = destination.getMinimumConnectionMinutes();
+            return !departing.getDepartureTime().isBefore(arrivalTime.plusMinutes(minimum));
+        }
+        return true;
+    }
+
+    public boolean hasSchedule() {
+        return departureTime != null;
+    }
+
+    public LocalDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public LocalDateTime getArrivalTime() {
+        return arrivalTime;
+    }
+
+    // Scheduled flight time, or 120 minutes for a flight without a schedule
+    public int getDurationMinutes() {
+        return hasSchedule() ? (int) Duration.between(departureTime, arrivalTime).toMinutes() : 120;
+    }
+
+    public void setSchedule(LocalDateTime departureTime, LocalDateTime arrivalTime) {
+        if (departureTime == null || arrivalTime == null)
+            throw new IllegalArgumentException("Departure and arrival times cannot be null");
+        if (!arrivalTime.isAfter(departureTime))
+            throw new IllegalArgumentException("Arrival must be after departure");
+
+        LocalDate previous = this.flightDate;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+        this.flightDate = departureTime.toLocalDate();
+        notifyDateChanged(previous);
     }
 
     public String getFlightNumber() {
@@ -114,17 +248,23 @@ public class Flight {
     }
 
     public void setFlightNumber(String flightNumber) {
+        String previous = this.flightNumber;
         this.flightNumber = flightNumber;
+        if (Objects.equals(previous, flightNumber)) return;
+        for (ChangeListener listener : changeListeners)
+            listener.flightNumberChanged(this, previous);
     }
 
     @Override
     public String toString() {
         return String.format("%s: %s -> %s\n" +
-                "Date: %s\n" +
+                "Date: %s%s\n" +
                 "Seats: %d available / %d total (%.1f%% full)\n" +
                 "Price : %.2f (Base: %.2f)",
                 flightNumber,origin.getCode(),destination.getCode(),
-                flightDate, availableSeats , totalSeats , getOccupancyRate()*100,
+                flightDate, hasSchedule() ? String.format(" (%s - %s)", departureTime.toLocalTime(),
+                        arrivalTime.toLocalTime()) : "",
+                availableSeats , totalSeats , getOccupancyRate()*100,
                 getCurrentPrice() , basePrice);
     }
 }
@@ -1,22 +1,44 @@
 package adt;
 
+import datastructures.ConnectionScan;
+import datastructures.ExploreSearch;
+import datastructures.FareCalendarSearch;
 import datastructures.FlightGraph;
+import datastructures.GraphSnapshot;
+import datastructures.IntHashMap;
+import datastructures.MapType;
+import datastructures.RouteSearchCache;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 public class FlightNetwork {
+    private static final int ROUTE_CACHE_CAPACITY = 4096;
+
     private final FlightGraph flightGraph;
     private final List<Reservation> reservations;
+    private final IntHashMap<Reservation> reservationIndex;
     private final Map<String, List<Reservation>> customerReservations;
+    // Results of searchRoutes, dropped when a booking, release or price change may alter them
+    private final RouteSearchCache routeCache;
 
 
     public FlightNetwork() {
-        flightGraph = new FlightGraph();
+        this(MapType.CHAINING);
+    }
+
+
+    public FlightNetwork(MapType mapType) {
+        flightGraph = new FlightGraph(mapType);
         reservations = new ArrayList<>();
+        reservationIndex = new IntHashMap<>();
         customerReservations = new HashMap<>();
+        routeCache = new RouteSearchCache(ROUTE_CACHE_CAPACITY);
     }
 
 
@@ -40,11 +62,24 @@ public class FlightNetwork {
         }
     }
 
+    // Removes the airport with every flight to or from it. The whole route cache goes
+    // too: no single flight change accounts for the routes that went with it.
+    public boolean removeAirport(String code) {
+        if (!flightGraph.removeAirport(code)) {
+            return false;
+        }
+        routeCache.clear();
+        return true;
+    }
+
     public void addFlight(Flight flight) {
         if (flight == null) {
             throw new IllegalArgumentException("Flight cannot be null");
         }
         flightGraph.addFlight(flight);
+        flight.addChangeListener(routeCache);
+        // A new flight can join results the same way a flight that regains seats can
+        routeCache.flightChanged(flight, true);
     }
 
     public void addFlights(Flight[] flights) {
@@ -60,7 +95,113 @@ public class FlightNetwork {
     }
 
 
+    // Every route findRoutes returns has a seat on each flight, so these are the
+    // results for a party of one, and share its cache entry
     public List<Route> searchRoutes(String originCode, String destCode) {
+        return searchRoutes(originCode, destCode, 1);
+    }
+
+    public List<Route> searchRoutes(String originCode, String destCode, int maxStops, int passengerCount, int limit) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findRoutesWithMaxStops(originCode, destCode, maxStops, passengerCount, limit);
+    }
+
+    // Direct and one-stop routes leaving on the date, reading only that date's flights
+    public List<Route> searchRoutes(String originCode, String destCode, LocalDate date) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findRoutes(originCode, destCode, date);
+    }
+
+    // Direct and one-stop routes leaving on any day of the range, cheapest first
+    public List<Route> searchRoutes(String originCode, String destCode, LocalDate firstDay, LocalDate lastDay) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findRoutes(originCode, destCode, firstDay, lastDay);
+    }
+
+    public List<Route> searchRoutes(String originCode, String destCode, int passengerCount) {
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+
+        requireAirports(originCode, destCode);
+        return routeCache.get(originCode, destCode, passengerCount, () ->
+                flightGraph.findRoutes(originCode, destCode).stream()
+                        .filter(route -> route.hasAvailability(passengerCount))
+                        .collect(Collectors.toList()));
+    }
+
+
+    public Route findCheapestRoute(String originCode, String destCode, int passengerCount) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findCheapestRoute(originCode, destCode, passengerCount);
+    }
+
+
+    // Cheapest routes first, with any number of stops; each is computed only when the
+    // stream reaches it, so limit(5) costs a handful of searches
+    public Stream<Route> streamCheapestRoutes(String originCode, String destCode, int passengerCount) {
+        requireAirports(originCode, destCode);
+        Iterator<Route> routes = flightGraph.findCheapestRoutes(originCode, destCode, passengerCount);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(routes,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+
+    // The trade-offs between price, duration and number of flights, cheapest first
+    public List<Route> searchParetoRoutes(String originCode, String destCode, int passengerCount) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findParetoRoutes(originCode, destCode, passengerCount);
+    }
+
+
+    // Cheapest fare and leg count to every airport reachable from the origin, cheapest
+    // first; one search instead of a searchRoutes call per destination
+    public List<ExploreSearch.Destination> exploreFrom(String originCode, int passengerCount) {
+        return exploreFrom(originCode, passengerCount, Integer.MAX_VALUE, Double.MAX_VALUE);
+    }
+
+    public List<ExploreSearch.Destination> exploreFrom(String originCode, int passengerCount, int maxStops,
+                                                       double maxPrice) {
+        requireAirport(originCode);
+        return flightGraph.exploreFrom(originCode, passengerCount, maxStops, maxPrice);
+    }
+
+
+    // Cheapest direct or one-stop route leaving on each day from firstDay to lastDay,
+    // for flexible-date searches; days without a route are left out
+    public SortedMap<LocalDate, Route> getFareCalendar(String originCode, String destCode, LocalDate firstDay,
+                                                       LocalDate lastDay, int passengerCount) {
+        return getFareCalendar(originCode, destCode, firstDay, lastDay, passengerCount, 1);
+    }
+
+    public SortedMap<LocalDate, Route> getFareCalendar(String originCode, String destCode, LocalDate firstDay,
+                                                       LocalDate lastDay, int passengerCount, int maxStops) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findFareCalendar(originCode, destCode, firstDay, lastDay, passengerCount, maxStops);
+    }
+
+
+    // Round-trip fare for every pair of outbound and return days in the two windows
+    public FareCalendarSearch.FareMatrix getRoundTripFares(String originCode, String destCode,
+                                                           LocalDate outboundFirstDay, LocalDate outboundLastDay,
+                                                           LocalDate returnFirstDay, LocalDate returnLastDay,
+                                                           int passengerCount) {
+        requireAirports(originCode, destCode);
+        return flightGraph.findRoundTripFares(originCode, destCode, outboundFirstDay, outboundLastDay,
+                returnFirstDay, returnLastDay, passengerCount, 1);
+    }
+
+    private void requireAirport(String originCode) {
+        if (originCode == null) {
+            throw new IllegalArgumentException("Origin airport code cannot be null");
+        }
+
+        if (!flightGraph.hasAirport(originCode)) {
+            throw new IllegalArgumentException("Origin airport not found: " + originCode);
+        }
+    }
+
+    private void requireAirports(String originCode, String destCode) {
         if (originCode == null || destCode == null) {
             throw new IllegalArgumentException("Airport codes cannot be null");
         }
@@ -72,19 +213,45 @@ public class FlightNetwork {
         if (!flightGraph.hasAirport(destCode)) {
             throw new IllegalArgumentException("Destination airport not found: " + destCode);
         }
+    }
+
 
-        return flightGraph.findRoutes(originCode, destCode);
+    // Groups are named explicitly here, or taken from airport locations: "Greece"
+    // covers every airport whose location ends in Greece, "London" every London airport
+    public void defineAirportGroup(String name, Collection<String> airportCodes) {
+        flightGraph.defineAirportGroup(name, airportCodes);
     }
 
-    public List<Route> searchRoutes(String originCode, String destCode, int passengerCount) {
-        if (passengerCount <= 0) {
-            throw new IllegalArgumentException("Passenger count must be positive");
+    public boolean removeAirportGroup(String name) {
+        return flightGraph.removeAirportGroup(name);
+    }
+
+    public Set<String> getAirportGroup(String name) {
+        return flightGraph.getAirportGroup(name);
+    }
+
+
+    // Direct and one-stop routes between two airport groups or codes, cheapest first
+    public List<Route> searchGroupRoutes(String fromGroup, String toGroup, int passengerCount) {
+        requireAirportGroup(fromGroup);
+        requireAirportGroup(toGroup);
+        return flightGraph.findGroupRoutes(fromGroup, toGroup, passengerCount);
+    }
+
+    public Route findCheapestGroupRoute(String fromGroup, String toGroup, int passengerCount) {
+        requireAirportGroup(fromGroup);
+        requireAirportGroup(toGroup);
+        return flightGraph.findCheapestGroupRoute(fromGroup, toGroup, passengerCount);
+    }
+
+    private void requireAirportGroup(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Airport group cannot be null");
         }
 
-        List<Route> allRoutes = searchRoutes(originCode, destCode);
-        return allRoutes.stream()
-                .filter(route -> route.hasAvailability(passengerCount))
-                .collect(Collectors.toList());
+        if (flightGraph.getAirportGroup(name).isEmpty()) {
+            throw new IllegalArgumentException("Airport group not found: " + name);
+        }
     }
 
 
@@ -97,6 +264,7 @@ public class FlightNetwork {
 
         if (reservation.confirm()) {
             reservations.add(reservation);
+            reservationIndex.put(reservation.getReservationId(), reservation);
             System.out.println("Reservation confirmed: #" + reservation.getReservationId());
             return reservation;
         } else {
@@ -114,6 +282,7 @@ public class FlightNetwork {
 
         if (reservation.confirm()) {
             reservations.add(reservation);
+            reservationIndex.put(reservation.getReservationId(), reservation);
 
             // Track by customer email
             customerReservations.computeIfAbsent(customerEmail, k -> new ArrayList<>()).add(reservation);
@@ -127,27 +296,24 @@ public class FlightNetwork {
     }
 
     public boolean cancelReservation(int reservationId) {
-        for (Reservation reservation : reservations) {
-            if (reservation.getReservationId() == reservationId) {
-                if (reservation.cancel()) {
-                    System.out.println("Reservation cancelled: #" + reservationId);
-                    return true;
-                } else {
-                    System.out.println("Cannot cancel reservation #" + reservationId + " - Status: " + reservation.getStatus());
-                    return false;
-                }
-            }
+        Reservation reservation = reservationIndex.get(reservationId);
+        if (reservation == null) {
+            System.out.println("Reservation not found: #" + reservationId);
+            return false;
+        }
+
+        if (reservation.cancel()) {
+            System.out.println("Reservation cancelled: #" + reservationId);
+            return true;
+        } else {
+            System.out.println("Cannot cancel reservation #" + reservationId + " - Status: " + reservation.getStatus());
+            return false;
         }
-        System.out.println("Reservation not found: #" + reservationId);
-        return false;
     }
 
 
     public Reservation getReservation(int reservationId) {
-        return reservations.stream()
-                .filter(r -> r.getReservationId() == reservationId)
-                .findFirst()
-                .orElse(null);
+        return reservationIndex.get(reservationId);
     }
 
     public List<Reservation> getCustomerReservations(String customerEmail) {
@@ -160,21 +326,13 @@ public class FlightNetwork {
 
     public void printNetworkStatistics() {
         Set<String> airportCodes = flightGraph.getAllAirportCodes();
-        int totalFlights = 0;
-        int totalSeats = 0;
-        int bookedSeats = 0;
-        double totalRevenue = 0.0;
-
-        // Calculate flight statistics
-        for (String code : airportCodes) {
-            List<Flight> flights = flightGraph.getFlightsFrom(code);
-            totalFlights += flights.size();
-            for (Flight flight : flights) {
-                totalSeats += flight.getTotalSeats();
-                bookedSeats += (flight.getTotalSeats() - flight.getAvailableSeats());
-                totalRevenue += flight.getCurrentPrice() * (flight.getTotalSeats() - flight.getAvailableSeats());
-            }
-        }
+
+        // Calculate flight statistics in place over the adjacency lists
+        int totalFlights = flightGraph.getTotalFlights();
+        int totalSeats = flightGraph.sumIntOverFlights(Flight::getTotalSeats);
+        int bookedSeats = flightGraph.sumIntOverFlights(flight -> flight.getTotalSeats() - flight.getAvailableSeats());
+        double totalRevenue = flightGraph.sumDoubleOverFlights(
+                flight -> flight.getCurrentPrice() * (flight.getTotalSeats() - flight.getAvailableSeats()));
 
         // Calculate reservation statistics
         long confirmedReservations = reservations.stream()
@@ -203,6 +361,9 @@ public class FlightNetwork {
         System.out.printf("Confirmed Reservations: %d\n", confirmedReservations);
         System.out.printf("Total Reservation Value: $%.2f\n", totalReservationValue);
         System.out.printf("Estimated Revenue: $%.2f\n", totalRevenue);
+        System.out.println();
+        System.out.println(flightGraph.getLookupFilterStatistics());
+        System.out.println(routeCache.getStatistics());
         System.out.println("=".repeat(40));
     }
 
@@ -296,21 +457,17 @@ public class FlightNetwork {
 
     public void simulateTimeProgression() {
         Random random = new Random();
-        Set<String> airportCodes = flightGraph.getAllAirportCodes();
 
         System.out.println("Simulating passenger bookings...");
 
-        for (String code : airportCodes) {
-            List<Flight> flights = flightGraph.getFlightsFrom(code);
-            for (Flight flight : flights) {
-                // Randomly book additional seats (0-20% of available seats)
-                int availableSeats = flight.getAvailableSeats();
-                if (availableSeats > 0) {
-                    int additionalBookings = random.nextInt(Math.max(1, (int)(availableSeats * 0.2)));
-                    flight.bookSeats(additionalBookings);
-                }
+        flightGraph.forEachFlight(flight -> {
+            // Randomly book additional seats (0-20% of available seats)
+            int availableSeats = flight.getAvailableSeats();
+            if (availableSeats > 0) {
+                int additionalBookings = random.nextInt(Math.max(1, (int)(availableSeats * 0.2)));
+                flight.bookSeats(additionalBookings);
             }
-        }
+        });
 
         System.out.println("Time progression simulation complete!");
     }
@@ -319,6 +476,10 @@ public class FlightNetwork {
         return flightGraph.getAirport(code);
     }
 
+    public RouteSearchCache getRouteCache() {
+        return routeCache;
+    }
+
     public List<Reservation> getAllReservations() {
         return new ArrayList<>(reservations);
     }
@@ -327,6 +488,15 @@ public class FlightNetwork {
         return flightGraph.getFlightsFrom(airportCode);
     }
 
+    public List<Flight> getFlightsFrom(String airportCode, LocalDate date) {
+        return flightGraph.getFlightsFrom(airportCode, date);
+    }
+
+    // Called when the day rolls over: dated searches stop seeing earlier days at once
+    public void evictFlightsBefore(LocalDate firstDay) {
+        flightGraph.evictFlightsBefore(firstDay);
+    }
+
     public List<Flight> getFlightsTo(String airportCode) {
         return flightGraph.getFlightsTo(airportCode);
     }
@@ -335,6 +505,47 @@ public class FlightNetwork {
         return flightGraph.getAllAirportCodes();
     }
 
+    public void forEachFlight(Consumer<Flight> action) {
+        flightGraph.forEachFlight(action);
+    }
+
+    public int getTotalFlights() {
+        return flightGraph.getTotalFlights();
+    }
+
+    public boolean hasAirport(String code) {
+        return flightGraph.hasAirport(code);
+    }
+
+    public boolean hasFlightNumber(String flightNumber) {
+        return flightGraph.hasFlightNumber(flightNumber);
+    }
+
+    public List<Flight> getFlightsByNumber(String flightNumber) {
+        return flightGraph.getFlightsByNumber(flightNumber);
+    }
+
+    public GraphSnapshot snapshot() {
+        return flightGraph.snapshot();
+    }
+
+
+    // Timetable of the scheduled flights; seats are copied, so rebuild after bookings
+    public ConnectionScan buildTimetable() {
+        return flightGraph.buildConnectionScan();
+    }
+
+
+    // Fewest flights between two airports from a contraction hierarchy that is rebuilt
+    // lazily after the topology changes; -1 if unreachable
+    public int getHopDistance(String originCode, String destCode) {
+        return flightGraph.getHopDistance(originCode, destCode);
+    }
+
+    public List<String> getHopPath(String originCode, String destCode) {
+        return flightGraph.getHopPath(originCode, destCode);
+    }
+
     public Collection<Airport> getAllAirports() {
         return flightGraph.getAllAirports();
     }
@@ -366,12 +577,7 @@ public class FlightNetwork {
         }
 
         summary.append("\nFLIGHTS:\n");
-        for (String code : getAllAirportCodes()) {
-            List<Flight> flights = getFlightsFrom(code);
-            for (Flight flight : flights) {
-                summary.append(String.format("- %s\n", flight.toString()));
-            }
-        }
+        flightGraph.forEachFlight(flight -> summary.append(String.format("- %s\n", flight.toString())));
 
         summary.append("\nRESERVATIONS:\n");
         for (Reservation reservation : reservations) {
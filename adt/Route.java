@@ -1,5 +1,6 @@
 package adt;
 
+import java.time.Duration;
 import java.util.*;
 
 
@@ -44,6 +45,12 @@ public class Route {
 
 
     private void calculateTotalDuration() {
+        if (isScheduled()) {
+            // First departure to last arrival, waiting time included
+            totalDuration = (int) Duration.between(flights.getFirst().getDepartureTime(),
+                    flights.getLast().getArrivalTime()).toMinutes();
+            return;
+        }
         totalDuration = flights.size() * 120; // 2 hours per flight
         if (flights.size() > 1) {
             totalDuration += (flights.size() - 1) * 60; // 1 hour layover
@@ -51,6 +58,33 @@ public class Route {
     }
 
 
+    // True when every flight has departure and arrival times
+    public final boolean isScheduled() {
+        for (Flight flight : flights) {
+            if (!flight.hasSchedule()) return false;
+        }
+        return true;
+    }
+
+
+    // Every connection leaves at least the layover airport's minimum connection time
+    // after the previous flight lands; routes without a schedule cannot be checked
+    public boolean hasFeasibleConnections() {
+        if (!isValid || !isScheduled()) {
+            return false;
+        }
+        for (int i = 0; i < flights.size() - 1; i++) {
+            Flight arriving = flights.get(i);
+            Flight departing = flights.get(i + 1);
+            int minimum = arriving.getDestination().getMinimumConnectionMinutes();
+            if (departing.getDepartureTime().isBefore(arriving.getArrivalTime().plusMinutes(minimum))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
     public boolean isValidRoute() {
         return isValid;
     }
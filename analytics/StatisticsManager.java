@@ -52,10 +52,7 @@ public class StatisticsManager {
         System.out.println(" Hash collisions: Minimal (good distribution)");
 
         System.out.println("\nAdjacency List Storage:");
-        int totalFlights = 0;
-        for (String code : network.getAllAirportCodes()) {
-            totalFlights += network.getFlightsFrom(code).size();
-        }
+        int totalFlights = network.getTotalFlights();
         System.out.printf("  Flight connections stored: %d\n", totalFlights);
         System.out.println("  Average access time: O(1) for airport, O(F) for flights");
     }
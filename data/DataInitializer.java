@@ -96,15 +96,11 @@ public class DataInitializer {
 
     public static void simulateInitialBookings(FlightNetwork network) {
         Random random = new Random();
-        Set<String> codes = network.getAllAirportCodes();
 
-        for (String originCode : codes) {
-            List<Flight> flights = network.getFlightsFrom(originCode);
-            for (Flight flight : flights) {
-                int maxBookings = (int)(flight.getTotalSeats() * 0.7);
-                int seatsToBook = random.nextInt(maxBookings + 1);
-                flight.bookSeats(seatsToBook);
-            }
-        }
+        network.forEachFlight(flight -> {
+            int maxBookings = (int)(flight.getTotalSeats() * 0.7);
+            int seatsToBook = random.nextInt(maxBookings + 1);
+            flight.bookSeats(seatsToBook);
+        });
     }
 }
\ No newline at end of file
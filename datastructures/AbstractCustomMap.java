@@ -0,0 +1,102 @@
+package datastructures;
+
+import java.util.*;
+
+
+// Live keySet/values/entrySet views shared by the CustomMap implementations.
+// The views copy nothing; each iterator walks the map through a fresh cursor.
+abstract class AbstractCustomMap<K, V> implements CustomMap<K, V> {
+    private Set<K> keySetView;
+    private Collection<V> valuesView;
+    private Set<Map.Entry<K, V>> entrySetView;
+
+
+    public Set<K> keySet() {
+        if (keySetView == null) {
+            keySetView = new AbstractSet<K>() {
+                public Iterator<K> iterator() {
+                    return new CursorIterator<K>() {
+                        K current(MapCursor<K, V> cursor) {
+                            return cursor.key();
+                        }
+                    };
+                }
+
+                @SuppressWarnings("unchecked")
+                public boolean contains(Object o) {
+                    return o != null && containsKey((K) o);
+                }
+
+                public int size() {
+                    return AbstractCustomMap.this.size();
+                }
+            };
+        }
+        return keySetView;
+    }
+
+
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<V>() {
+                public Iterator<V> iterator() {
+                    return new CursorIterator<V>() {
+                        V current(MapCursor<K, V> cursor) {
+                            return cursor.value();
+                        }
+                    };
+                }
+
+                public int size() {
+                    return AbstractCustomMap.this.size();
+                }
+            };
+        }
+        return valuesView;
+    }
+
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySetView == null) {
+            entrySetView = new AbstractSet<Map.Entry<K, V>>() {
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new CursorIterator<Map.Entry<K, V>>() {
+                        Map.Entry<K, V> current(MapCursor<K, V> cursor) {
+                            return cursor.entry();
+                        }
+                    };
+                }
+
+                public int size() {
+                    return AbstractCustomMap.this.size();
+                }
+            };
+        }
+        return entrySetView;
+    }
+
+
+    private abstract class CursorIterator<T> implements Iterator<T> {
+        private final MapCursor<K, V> cursor = cursor();
+        private boolean advanced;
+        private boolean hasNext;
+
+        abstract T current(MapCursor<K, V> cursor);
+
+        public boolean hasNext() {
+            if (!advanced) {
+                hasNext = cursor.advance();
+                advanced = true;
+            }
+            return hasNext;
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            advanced = false;
+            return current(cursor);
+        }
+    }
+}
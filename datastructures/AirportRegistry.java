@@ -0,0 +1,84 @@
+package datastructures;
+
+import adt.Airport;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Dictionary from IATA codes to dense int ids for one graph. Each code keeps its id
+// for the life of the graph, so the graph can index arrays by id and compare airports
+// by id instead of hashing and comparing code strings; ids only grow with the airports
+// this graph has held, not with every airport the process has seen.
+public final class AirportRegistry {
+    // Serials tell registries apart in the ids airports cache; 0 means no registry
+    private static final AtomicInteger SERIALS = new AtomicInteger();
+
+    private final int serial = SERIALS.incrementAndGet();
+    private final ConcurrentCustomHashMap<String, Integer> idsByCode;
+    private volatile Airport[] airportsById;
+    private int nextId;
+
+
+    AirportRegistry() {
+        idsByCode = new ConcurrentCustomHashMap<>();
+        airportsById = new Airport[64];
+        nextId = 0;
+    }
+
+
+    public synchronized int register(Airport airport) {
+        if (airport == null) {
+            throw new IllegalArgumentException("Airport cannot be null");
+        }
+
+        int id = airport.getId(serial);
+        if (id >= 0) {
+            return id;
+        }
+
+        // The graph joined last resolves the airport fastest, as the one being searched
+        Integer existing = idsByCode.get(airport.getCode());
+        if (existing != null) {
+            // Already registered, possibly as another instance; share its id
+            airport.setId(serial, existing);
+            return existing;
+        }
+
+        id = nextId++;
+        if (id == airportsById.length) {
+            airportsById = Arrays.copyOf(airportsById, id * 2);
+        }
+        airportsById[id] = airport;
+        idsByCode.put(airport.getCode(), id);
+        airport.setId(serial, id);
+        return id;
+    }
+
+
+    // Id of a registered airport, from the airport itself when this registry gave it
+    // its id last and from its code otherwise; -1 when the code is not registered
+    public int idOf(Airport airport) {
+        int id = airport.getId(serial);
+        return id >= 0 ? id : getId(airport.getCode());
+    }
+
+
+    public int getId(String code) {
+        if (code == null) return -1;
+        Integer id = idsByCode.get(code);
+        return id != null ? id : -1;
+    }
+
+
+    public Airport getAirport(int id) {
+        Airport[] airports = airportsById;
+        return id >= 0 && id < airports.length ? airports[id] : null;
+    }
+
+
+    // One past the largest id, for sizing arrays indexed by id
+    public synchronized int size() {
+        return nextId;
+    }
+}
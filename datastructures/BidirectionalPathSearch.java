@@ -0,0 +1,173 @@
+package datastructures;
+
+import adt.Flight;
+
+import java.util.*;
+
+
+// Fewest-flights path search growing one BFS frontier forward from the origin over the
+// outgoing lists and one backward from the destination over the incoming lists, always
+// expanding the smaller frontier by a whole level. The searches meet after each has
+// covered about half the distance, so on long sparse routes they explore far fewer
+// airports than a one-sided BFS. All state lives in per-thread int arrays indexed by
+// airport id and reset by bumping an epoch stamp.
+public final class BidirectionalPathSearch {
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final SearchCounter lastExplored = new SearchCounter();
+
+
+    // Parent links and hop counts toward the origin for the forward side and toward
+    // the destination for the backward side; an entry counts only when its side's
+    // stamp matches
+    private static final class Scratch {
+        int[] forwardStamp = new int[0];
+        int[] backwardStamp = new int[0];
+        int[] forwardParent = new int[0];
+        int[] backwardParent = new int[0];
+        int[] forwardDistance = new int[0];
+        int[] backwardDistance = new int[0];
+        int[] forwardQueue = new int[0];
+        int[] backwardQueue = new int[0];
+        int epoch;
+
+        void ensureCapacity(int size) {
+            if (forwardStamp.length < size) {
+                int newSize = Math.max(size, forwardStamp.length * 2);
+                forwardStamp = new int[newSize];
+                backwardStamp = new int[newSize];
+                forwardParent = new int[newSize];
+                backwardParent = new int[newSize];
+                forwardDistance = new int[newSize];
+                backwardDistance = new int[newSize];
+                forwardQueue = new int[newSize];
+                backwardQueue = new int[newSize];
+                epoch = 0;
+            }
+        }
+
+        int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+
+    BidirectionalPathSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    // Airport ids from origin to destination over flights with free seats; empty if unreachable
+    int[] findPath(int originId, int destId) {
+        if (originId == destId) {
+            return new int[] {originId};
+        }
+
+        Scratch s = scratch.get();
+        s.ensureCapacity(graph.airportIdBound());
+        int stamp = s.nextEpoch();
+
+        s.forwardStamp[originId] = stamp;
+        s.forwardParent[originId] = -1;
+        s.forwardDistance[originId] = 0;
+        s.forwardQueue[0] = originId;
+        int forwardHead = 0;
+        int forwardTail = 1;
+
+        s.backwardStamp[destId] = stamp;
+        s.backwardParent[destId] = -1;
+        s.backwardDistance[destId] = 0;
+        s.backwardQueue[0] = destId;
+        int backwardHead = 0;
+        int backwardTail = 1;
+
+        long explored = 2;
+        // Airport on the shortest path found so far, reached by both sides
+        int meet = -1;
+        int bestLength = Integer.MAX_VALUE;
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            // No path can be shorter than the levels both sides have finished
+            if (forwardDepth + backwardDepth + 1 >= bestLength) break;
+
+            if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                int levelEnd = forwardTail;
+                while (forwardHead < levelEnd) {
+                    int current = s.forwardQueue[forwardHead++];
+                    List<Flight> outgoing = graph.outgoing(current);
+                    if (outgoing == null) continue;
+                    for (Flight flight : outgoing) {
+                        int next = graph.destinationId(flight);
+                        if (s.forwardStamp[next] == stamp || !flight.hasAvailableSeats()) continue;
+                        s.forwardStamp[next] = stamp;
+                        s.forwardParent[next] = current;
+                        s.forwardDistance[next] = forwardDepth + 1;
+                        s.forwardQueue[forwardTail++] = next;
+                        explored++;
+                        if (s.backwardStamp[next] == stamp) {
+                            int length = forwardDepth + 1 + s.backwardDistance[next];
+                            if (length < bestLength) {
+                                bestLength = length;
+                                meet = next;
+                            }
+                        }
+                    }
+                }
+                forwardDepth++;
+            } else {
+                int levelEnd = backwardTail;
+                while (backwardHead < levelEnd) {
+                    int current = s.backwardQueue[backwardHead++];
+                    List<Flight> incoming = graph.incoming(current);
+                    if (incoming == null) continue;
+                    for (Flight flight : incoming) {
+                        int previous = graph.originId(flight);
+                        if (s.backwardStamp[previous] == stamp || !flight.hasAvailableSeats()) continue;
+                        s.backwardStamp[previous] = stamp;
+                        s.backwardParent[previous] = current;
+                        s.backwardDistance[previous] = backwardDepth + 1;
+                        s.backwardQueue[backwardTail++] = previous;
+                        explored++;
+                        if (s.forwardStamp[previous] == stamp) {
+                            int length = s.forwardDistance[previous] + backwardDepth + 1;
+                            if (length < bestLength) {
+                                bestLength = length;
+                                meet = previous;
+                            }
+                        }
+                    }
+                }
+                backwardDepth++;
+            }
+        }
+
+        lastExplored.set(explored);
+        if (meet < 0) {
+            return new int[0];
+        }
+
+        int[] path = new int[bestLength + 1];
+        int i = s.forwardDistance[meet];
+        for (int v = meet; v >= 0; v = s.forwardParent[v]) {
+            path[i--] = v;
+        }
+        i = s.forwardDistance[meet];
+        for (int v = meet; v >= 0; v = s.backwardParent[v]) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+
+    // Airports discovered by the most recent search, for benchmarking
+    public long getLastExploredCount() {
+        return lastExplored.get();
+    }
+}
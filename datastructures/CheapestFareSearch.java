@@ -0,0 +1,336 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Cheapest itinerary by current fare, over any number of connections. Dijkstra's
+// algorithm on a primitive binary heap, settling airports in fare order and stopping
+// once the destination is settled; flights without seats for the party are skipped.
+// With a FareLowerBounds table the same loop runs as A*, ordering airports by
+// fare so far plus a lower bound on the fare still to pay.
+public final class CheapestFareSearch {
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    // Bound tables by destination id, least recently used first; each holds one double
+    // per airport id of this graph, so only the busiest destinations are kept
+    private static final int BOUNDS_CACHE_CAPACITY = 64;
+    private final LinkedHashMap<Integer, FareLowerBounds> boundsCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final SearchCounter lastSettled = new SearchCounter();
+
+
+    // Admissible per-airport lower bounds on the fare to one destination. A flight never
+    // sells below half its base price, so a reverse Dijkstra with those weights gives
+    // bounds that never overestimate. A table is reused until the graph's topology
+    // changes or a base price is lowered; a raised price only makes the bounds looser.
+    public static final class FareLowerBounds {
+        private final int destId;
+        private final double[] bounds;
+        private final long topologyVersion;
+        private final long fareCuts;
+
+        private FareLowerBounds(int destId, double[] bounds, long topologyVersion, long fareCuts) {
+            this.destId = destId;
+            this.bounds = bounds;
+            this.topologyVersion = topologyVersion;
+            this.fareCuts = fareCuts;
+        }
+
+        double get(int airportId) {
+            return airportId < bounds.length ? bounds[airportId] : Double.POSITIVE_INFINITY;
+        }
+
+        public int getDestinationId() {
+            return destId;
+        }
+    }
+
+
+    // Per-thread search state indexed by airport id; entries count only when stamped
+    private static final class Scratch {
+        double[] fare = new double[0];
+        int[] fareStamp = new int[0];
+        int[] settledStamp = new int[0];
+        Flight[] viaFlight = new Flight[0];
+        int epoch;
+
+        // Lazy-deletion binary heap of (priority, airport id) pairs
+        double[] heapKeys = new double[64];
+        int[] heapNodes = new int[64];
+        int heapSize;
+
+        void ensureCapacity(int size) {
+            if (fare.length < size) {
+                int newSize = Math.max(size, fare.length * 2);
+                fare = new double[newSize];
+                fareStamp = new int[newSize];
+                settledStamp = new int[newSize];
+                viaFlight = new Flight[newSize];
+                epoch = 0;
+            }
+        }
+
+        int nextEpoch() {
+            heapSize = 0;
+            if (++epoch == 0) {
+                Arrays.fill(fareStamp, 0);
+                Arrays.fill(settledStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+
+        void push(double key, int node) {
+            if (heapSize == heapKeys.length) {
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKeys[parent] <= key) break;
+                heapKeys[i] = heapKeys[parent];
+                heapNodes[i] = heapNodes[parent];
+                i = parent;
+            }
+            heapKeys[i] = key;
+            heapNodes[i] = node;
+        }
+
+        // Removes the minimum and returns its node; the caller reads heapKeys[0] first if needed
+        int pop() {
+            int top = heapNodes[0];
+            double key = heapKeys[--heapSize];
+            int node = heapNodes[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                if (heapKeys[child] >= key) break;
+                heapKeys[i] = heapKeys[child];
+                heapNodes[i] = heapNodes[child];
+                i = child;
+            }
+            heapKeys[i] = key;
+            heapNodes[i] = node;
+            return top;
+        }
+    }
+
+
+    CheapestFareSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    public Route findCheapestRoute(String originCode, String destCode, int passengerCount) {
+        return findCheapestRoute(originCode, destCode, passengerCount, null);
+    }
+
+
+    // Returns null when no itinerary has seats for the whole party
+    public Route findCheapestRoute(String originCode, String destCode, int passengerCount,
+                                   FareLowerBounds lowerBounds) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+
+        int originId = graph.airportId(originCode);
+        int destId = graph.airportId(destCode);
+        if (originId < 0 || destId < 0 || originId == destId) {
+            return null;
+        }
+        if (lowerBounds != null && lowerBounds.destId != destId) {
+            throw new IllegalArgumentException("Lower bounds were built for another destination");
+        }
+
+        Flight[] legs = cheapestPath(originId, destId, passengerCount, lowerBounds, null, 0, null);
+        return legs != null ? new Route(Arrays.asList(legs)) : null;
+    }
+
+
+    // The search itself, over airport ids. Airports whose blocked entry equals
+    // blockedStamp are treated as absent, as are bannedFlights out of the origin; Yen's
+    // algorithm uses both to look for detours around routes it has already found.
+    Flight[] cheapestPath(int originId, int destId, int passengerCount, FareLowerBounds lowerBounds,
+                          int[] blocked, int blockedStamp, Set<Flight> bannedFlights) {
+        Scratch s = scratch.get();
+        s.ensureCapacity(graph.airportIdBound());
+        int stamp = s.nextEpoch();
+        long settled = 0;
+
+        s.fare[originId] = 0.0;
+        s.fareStamp[originId] = stamp;
+        s.viaFlight[originId] = null;
+        s.push(lowerBounds != null ? lowerBounds.get(originId) : 0.0, originId);
+
+        boolean found = false;
+        while (s.heapSize > 0) {
+            int current = s.pop();
+            if (s.settledStamp[current] == stamp) continue; // stale heap entry
+            s.settledStamp[current] = stamp;
+            settled++;
+
+            if (current == destId) {
+                found = true;
+                break;
+            }
+
+            List<Flight> outgoing = graph.outgoing(current);
+            if (outgoing == null) continue;
+
+            double currentFare = s.fare[current];
+            for (Flight flight : outgoing) {
+                int next = graph.destinationId(flight);
+                if (s.settledStamp[next] == stamp || flight.getAvailableSeats() < passengerCount) continue;
+                if (blocked != null && next < blocked.length && blocked[next] == blockedStamp) continue;
+                if (current == originId && bannedFlights != null && bannedFlights.contains(flight)) continue;
+
+                double heuristic = lowerBounds != null ? lowerBounds.get(next) : 0.0;
+                if (heuristic == Double.POSITIVE_INFINITY) continue; // cannot reach the destination
+
+                double fare = currentFare + flight.getCurrentPrice();
+                if (s.fareStamp[next] != stamp || fare < s.fare[next]) {
+                    s.fare[next] = fare;
+                    s.fareStamp[next] = stamp;
+                    s.viaFlight[next] = flight;
+                    s.push(fare + heuristic, next);
+                }
+            }
+        }
+
+        lastSettled.set(settled);
+        if (!found) return null;
+
+        int legCount = 0;
+        for (int v = destId; v != originId; v = graph.originId(s.viaFlight[v])) {
+            legCount++;
+        }
+        Flight[] legs = new Flight[legCount];
+        for (int v = destId; v != originId; v = graph.originId(s.viaFlight[v])) {
+            legs[--legCount] = s.viaFlight[v];
+        }
+        return legs;
+    }
+
+
+    // Loopless routes in increasing fare order, generated one at a time on demand
+    public Iterator<Route> cheapestRoutes(String originCode, String destCode, int passengerCount) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+
+        int originId = graph.airportId(originCode);
+        int destId = graph.airportId(destCode);
+        if (originId < 0 || destId < 0 || originId == destId) {
+            return Collections.emptyIterator();
+        }
+        // Current fares would give tighter bounds, but stop being bounds once a seat is
+        // released, and the iterator may be drained long after it was created
+        return new CheapestRouteIterator(graph, this, originId, destId, passengerCount);
+    }
+
+
+    // A* with the cached lower-bound table for the destination, rebuilt when stale
+    public Route findCheapestRouteAStar(String originCode, String destCode, int passengerCount) {
+        if (destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (graph.airportId(destCode) < 0) return null;
+        return findCheapestRoute(originCode, destCode, passengerCount, lowerBoundsTo(destCode));
+    }
+
+
+    public FareLowerBounds lowerBoundsTo(String destCode) {
+        int destId = graph.airportId(destCode);
+        if (destId < 0) {
+            throw new IllegalArgumentException("Destination airport not found: " + destCode);
+        }
+
+        return lowerBoundsTo(destId);
+    }
+
+
+    FareLowerBounds lowerBoundsTo(int destId) {
+        // Read before the table is built, so a change made meanwhile makes it stale
+        long version = graph.getTopologyVersion();
+        long fareCuts = graph.getFareCutCount();
+        synchronized (boundsCache) {
+            FareLowerBounds cached = boundsCache.get(destId);
+            if (cached != null && cached.topologyVersion == version && cached.fareCuts == fareCuts) {
+                return cached;
+            }
+        }
+
+        FareLowerBounds bounds = computeLowerBounds(destId, version, fareCuts, 0, false);
+        synchronized (boundsCache) {
+            boundsCache.put(destId, bounds);
+            if (boundsCache.size() > BOUNDS_CACHE_CAPACITY) {
+                Iterator<Integer> eldest = boundsCache.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return bounds;
+    }
+
+
+    // Cheapest current fare from every airport to the destination over flights with
+    // seats for the party; not cached, since it changes with every booking
+    FareLowerBounds currentFaresTo(int destId, int passengerCount) {
+        return computeLowerBounds(destId, graph.getTopologyVersion(), graph.getFareCutCount(),
+                passengerCount, true);
+    }
+
+
+    // Reverse Dijkstra from the destination with each flight weighted at half its base
+    // fare, or at its current fare when currentFares is set. Current fares are exact at
+    // the time of the call but stop being a lower bound once a flight's price drops.
+    private FareLowerBounds computeLowerBounds(int destId, long version, long fareCuts,
+                                               int passengerCount, boolean currentFares) {
+        int size = graph.airportIdBound();
+        double[] bounds = new double[size];
+        Arrays.fill(bounds, Double.POSITIVE_INFINITY);
+
+        Scratch s = scratch.get();
+        s.ensureCapacity(size);
+        int stamp = s.nextEpoch();
+
+        bounds[destId] = 0.0;
+        s.push(0.0, destId);
+        while (s.heapSize > 0) {
+            int current = s.pop();
+            if (s.settledStamp[current] == stamp) continue;
+            s.settledStamp[current] = stamp;
+
+            List<Flight> incoming = graph.incoming(current);
+            if (incoming == null) continue;
+
+            for (Flight flight : incoming) {
+                if (flight.getAvailableSeats() < passengerCount) continue;
+                int previous = graph.originId(flight);
+                double bound = bounds[current] + (currentFares ? flight.getCurrentPrice() : flight.getBasePrice() * 0.5);
+                if (bound < bounds[previous]) {
+                    bounds[previous] = bound;
+                    s.push(bound, previous);
+                }
+            }
+        }
+        return new FareLowerBounds(destId, bounds, version, fareCuts);
+    }
+
+
+    // Airports settled by the most recent search, for benchmarking
+    public long getLastSettledCount() {
+        return lastSettled.get();
+    }
+}
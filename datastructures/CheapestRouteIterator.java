@@ -0,0 +1,168 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Yen's k-shortest loopless paths, one route per next() call. After the k-th cheapest
+// route is returned, each airport on it becomes a spur: the legs before it are kept,
+// the legs that earlier routes with the same prefix took out of it are banned, the
+// prefix's airports are blocked, and a cheapest-fare search finds the best detour.
+// Detours wait in a heap and the cheapest becomes route k + 1. Nothing beyond the
+// routes actually asked for is enumerated. Fares are read when a candidate is found,
+// so seats booked in between can leave later routes slightly out of order. Each
+// search is guided by the destination's half-base-fare bounds, fetched afresh so a
+// fare lowered since the last search can never be overestimated.
+public final class CheapestRouteIterator implements Iterator<Route> {
+    private final FlightGraph graph;
+    private final CheapestFareSearch search;
+    private final int originId;
+    private final int destId;
+    private final int passengerCount;
+
+    private final List<Flight[]> found = new ArrayList<>();
+    private final PriorityQueue<Candidate> candidates =
+            new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.price));
+    private final Set<List<Flight>> seen = new HashSet<>();
+    private final Set<Flight> bannedFlights = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int[] blocked = new int[0];
+    private int blockedStamp;
+
+    private Flight[] next;
+    private boolean started;
+    private boolean ready;
+    private long searches;
+
+
+    private static final class Candidate {
+        final Flight[] legs;
+        final double price;
+
+        Candidate(Flight[] legs, double price) {
+            this.legs = legs;
+            this.price = price;
+        }
+    }
+
+
+    CheapestRouteIterator(FlightGraph graph, CheapestFareSearch search, int originId, int destId,
+                          int passengerCount) {
+        this.graph = graph;
+        this.search = search;
+        this.originId = originId;
+        this.destId = destId;
+        this.passengerCount = passengerCount;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            next = advance();
+            ready = true;
+        }
+        return next != null;
+    }
+
+
+    @Override
+    public Route next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        found.add(next);
+        ready = false;
+        return new Route(Arrays.asList(next));
+    }
+
+
+    private Flight[] advance() {
+        if (!started) {
+            started = true;
+            searches++;
+            Flight[] first = search.cheapestPath(originId, destId, passengerCount,
+                    search.lowerBoundsTo(destId), null, 0, null);
+            if (first != null) {
+                seen.add(Arrays.asList(first));
+            }
+            return first;
+        }
+
+        if (!found.isEmpty()) {
+            addDetours(found.get(found.size() - 1));
+        }
+        Candidate best = candidates.poll();
+        return best != null ? best.legs : null;
+    }
+
+
+    private void addDetours(Flight[] path) {
+        double rootPrice = 0.0;
+        for (int i = 0; i < path.length; i++) {
+            int spurId = graph.originId(path[i]);
+
+            // Leave out the leg every known route with this prefix takes next
+            bannedFlights.clear();
+            for (Flight[] route : found) {
+                if (route.length > i && samePrefix(route, path, i)) {
+                    bannedFlights.add(route[i]);
+                }
+            }
+
+            // The prefix's airports may not be revisited, which keeps routes loopless
+            int stamp = nextBlockedStamp();
+            for (int j = 0; j < i; j++) {
+                block(graph.originId(path[j]), stamp);
+            }
+
+            searches++;
+            Flight[] spur = search.cheapestPath(spurId, destId, passengerCount,
+                    search.lowerBoundsTo(destId), blocked, stamp, bannedFlights);
+            if (spur != null) {
+                Flight[] legs = Arrays.copyOf(path, i + spur.length);
+                System.arraycopy(spur, 0, legs, i, spur.length);
+                if (seen.add(Arrays.asList(legs))) {
+                    double price = rootPrice;
+                    for (Flight flight : spur) {
+                        price += flight.getCurrentPrice();
+                    }
+                    candidates.add(new Candidate(legs, price));
+                }
+            }
+            rootPrice += path[i].getCurrentPrice();
+        }
+    }
+
+
+    private static boolean samePrefix(Flight[] a, Flight[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            if (a[j] != b[j]) return false;
+        }
+        return true;
+    }
+
+
+    private int nextBlockedStamp() {
+        if (++blockedStamp == 0) {
+            Arrays.fill(blocked, 0);
+            blockedStamp = 1;
+        }
+        return blockedStamp;
+    }
+
+
+    private void block(int airportId, int stamp) {
+        if (airportId >= blocked.length) {
+            blocked = Arrays.copyOf(blocked, Math.max(airportId + 1, blocked.length * 2));
+        }
+        blocked[airportId] = stamp;
+    }
+
+
+    // Spur searches run so far, for benchmarking
+    public long getSearchCount() {
+        return searches;
+    }
+}
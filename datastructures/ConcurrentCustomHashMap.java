@@ -0,0 +1,434 @@
+package datastructures;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+
+public class ConcurrentCustomHashMap<K, V> extends AbstractCustomMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR = 0.75;
+
+    // Readers never lock: bins are read through the atomic array and node fields are volatile.
+    // Writers CAS into empty bins and otherwise lock only the first node of the bin.
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private volatile AtomicReferenceArray<Node<K, V>> nextTable;
+    private final AtomicBoolean resizing = new AtomicBoolean(false);
+    private final LongAdder size = new LongAdder();
+
+
+    public ConcurrentCustomHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    public ConcurrentCustomHashMap(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        int capacity = 1;
+        while (capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(capacity);
+    }
+
+
+    private static class Node<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V newValue) {
+            throw new UnsupportedOperationException("Use put() to update a concurrent map");
+        }
+    }
+
+
+    // Left in a bin of the old table once it has been copied to the new one
+    private static final class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+            super(0, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+
+    private int hash(K key) {
+        return CustomHashMap.spread(key.hashCode());
+    }
+
+
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+
+        int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(index);
+
+            if (first == null) {
+                if (tab.compareAndSet(index, null, new Node<>(hash, key, value))) {
+                    break;
+                }
+                continue;
+            }
+
+            if (first instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) first).nextTable;
+                continue;
+            }
+
+            synchronized (first) {
+                // The bin may have been changed or moved while we waited for the lock
+                if (tab.get(index) != first) {
+                    continue;
+                }
+
+                Node<K, V> entry = first;
+                while (true) {
+                    if (entry.hash == hash && entry.key.equals(key)) {
+                        entry.value = value;
+                        return;
+                    }
+                    if (entry.next == null) {
+                        entry.next = new Node<>(hash, key, value);
+                        break;
+                    }
+                    entry = entry.next;
+                }
+            }
+            break;
+        }
+
+        size.increment();
+        checkLoad();
+    }
+
+
+    public V get(K key) {
+        if (key == null) return null;
+
+        int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while (true) {
+            Node<K, V> entry = tab.get(hash & (tab.length() - 1));
+
+            if (entry instanceof ForwardingNode) {
+                // Bin already copied; the new table has the current contents
+                tab = ((ForwardingNode<K, V>) entry).nextTable;
+                continue;
+            }
+
+            while (entry != null) {
+                if (entry.hash == hash && entry.key.equals(key)) {
+                    return entry.value;
+                }
+                entry = entry.next;
+            }
+            return null;
+        }
+    }
+
+
+    public void remove(K key) {
+        if (key == null) return;
+
+        int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while (true) {
+            int index = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(index);
+
+            if (first == null) return;
+
+            if (first instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) first).nextTable;
+                continue;
+            }
+
+            synchronized (first) {
+                if (tab.get(index) != first) {
+                    continue;
+                }
+
+                Node<K, V> prev = null;
+                for (Node<K, V> entry = first; entry != null; prev = entry, entry = entry.next) {
+                    if (entry.hash == hash && entry.key.equals(key)) {
+                        if (prev == null) {
+                            tab.set(index, entry.next);
+                        } else {
+                            prev.next = entry.next;
+                        }
+                        size.decrement();
+                        return;
+                    }
+                }
+            }
+            return;
+        }
+    }
+
+
+    private void checkLoad() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int capacity = tab.length();
+
+        // One writer performs the resize; other writers and all readers keep going
+        // and are redirected bin by bin through forwarding nodes
+        while (size.sum() >= (long) (capacity * LOAD_FACTOR) && capacity < MAXIMUM_CAPACITY
+                && resizing.compareAndSet(false, true)) {
+            try {
+                if (table == tab) {
+                    transfer(tab);
+                }
+            } finally {
+                resizing.set(false);
+            }
+            tab = table;
+            capacity = tab.length();
+        }
+    }
+
+
+    private void transfer(AtomicReferenceArray<Node<K, V>> tab) {
+        int oldCapacity = tab.length();
+        AtomicReferenceArray<Node<K, V>> newTab = new AtomicReferenceArray<>(oldCapacity << 1);
+        nextTable = newTab;
+        ForwardingNode<K, V> forward = new ForwardingNode<>(newTab);
+
+        for (int index = 0; index < oldCapacity; index++) {
+            while (true) {
+                Node<K, V> first = tab.get(index);
+
+                if (first == null) {
+                    if (tab.compareAndSet(index, null, forward)) {
+                        break;
+                    }
+                    continue;
+                }
+
+                synchronized (first) {
+                    if (tab.get(index) != first) {
+                        continue;
+                    }
+
+                    // Copy the chain so readers still walking the old one see it intact
+                    Node<K, V> low = null;
+                    Node<K, V> high = null;
+                    for (Node<K, V> entry = first; entry != null; entry = entry.next) {
+                        Node<K, V> copy = new Node<>(entry.hash, entry.key, entry.value);
+                        if ((entry.hash & oldCapacity) == 0) {
+                            copy.next = low;
+                            low = copy;
+                        } else {
+                            copy.next = high;
+                            high = copy;
+                        }
+                    }
+                    newTab.set(index, low);
+                    newTab.set(index + oldCapacity, high);
+                    tab.set(index, forward);
+                }
+                break;
+            }
+        }
+
+        table = newTab;
+        nextTable = null;
+    }
+
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+
+    // Iteration is weakly consistent rather than fail-fast: it never throws and
+    // reflects the map at some point at or after the traversal started
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        MapCursor<K, V> cursor = cursor();
+        while (cursor.advance()) {
+            action.accept(cursor.key(), cursor.value());
+        }
+    }
+
+
+    public MapCursor<K, V> cursor() {
+        return new Traverser();
+    }
+
+
+    private final class Traverser implements MapCursor<K, V> {
+        private AtomicReferenceArray<Node<K, V>> tab;
+        private int index;
+        private Node<K, V> current;
+        // Bins of newer tables still to visit after passing a forwarding node
+        private Deque<PendingBin<K, V>> pending;
+
+        Traverser() {
+            reset();
+        }
+
+        public void reset() {
+            tab = table;
+            index = 0;
+            current = null;
+            if (pending != null) {
+                pending.clear();
+            }
+        }
+
+        public boolean advance() {
+            if (current != null) {
+                current = current.next;
+            }
+            while (current == null) {
+                AtomicReferenceArray<Node<K, V>> binTable;
+                int binIndex;
+                if (pending != null && !pending.isEmpty()) {
+                    PendingBin<K, V> bin = pending.pop();
+                    binTable = bin.table;
+                    binIndex = bin.index;
+                } else if (index < tab.length()) {
+                    binTable = tab;
+                    binIndex = index++;
+                } else {
+                    return false;
+                }
+
+                Node<K, V> first = binTable.get(binIndex);
+                if (first instanceof ForwardingNode) {
+                    // A moved bin is split over two bins of the next table
+                    AtomicReferenceArray<Node<K, V>> newTab = ((ForwardingNode<K, V>) first).nextTable;
+                    if (pending == null) {
+                        pending = new ArrayDeque<>();
+                    }
+                    pending.push(new PendingBin<>(newTab, binIndex + binTable.length()));
+                    pending.push(new PendingBin<>(newTab, binIndex));
+                    continue;
+                }
+                current = first;
+            }
+            return true;
+        }
+
+        public K key() {
+            return current.key;
+        }
+
+        public V value() {
+            return current.value;
+        }
+
+        public Map.Entry<K, V> entry() {
+            return current;
+        }
+    }
+
+
+    private static final class PendingBin<K, V> {
+        final AtomicReferenceArray<Node<K, V>> table;
+        final int index;
+
+        PendingBin(AtomicReferenceArray<Node<K, V>> table, int index) {
+            this.table = table;
+            this.index = index;
+        }
+    }
+
+
+    public int size() {
+        return (int) Math.max(0, size.sum());
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    public int getCapacity() {
+        return table.length();
+    }
+
+
+    public double getLoadFactor() {
+        return (double) size() / getCapacity();
+    }
+
+
+    public void clear() {
+        for (K key : keySet()) {
+            remove(key);
+        }
+    }
+
+
+    public boolean isResizing() {
+        return nextTable != null;
+    }
+
+
+    public String getStatistics() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int maxChainLength = 0;
+        int nonEmptyBuckets = 0;
+        int totalChainLength = 0;
+
+        for (int i = 0; i < tab.length(); i++) {
+            Node<K, V> entry = tab.get(i);
+            if (entry != null && !(entry instanceof ForwardingNode)) {
+                nonEmptyBuckets++;
+                int chainLength = 0;
+                for (; entry != null; entry = entry.next) {
+                    chainLength++;
+                }
+                maxChainLength = Math.max(maxChainLength, chainLength);
+                totalChainLength += chainLength;
+            }
+        }
+
+        double avgChainLength = nonEmptyBuckets > 0 ? (double) totalChainLength / nonEmptyBuckets : 0;
+
+        return String.format("Hash Table Statistics (Concurrent):\n" +
+                        "  Size: %d\n" +
+                        "  Capacity: %d\n" +
+                        "  Load Factor: %.3f\n" +
+                        "  Non-empty Buckets: %d\n" +
+                        "  Max Chain Length: %d\n" +
+                        "  Avg Chain Length: %.2f\n" +
+                        "  Resize In Progress: %s",
+                size(), tab.length(), (double) size() / tab.length(),
+                nonEmptyBuckets, maxChainLength, avgChainLength,
+                isResizing() ? "yes" : "no");
+    }
+}
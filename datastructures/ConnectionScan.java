@@ -0,0 +1,303 @@
+package datastructures;
+
+import adt.Airport;
+import adt.Flight;
+import adt.Route;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+
+// Connection Scan Algorithm over the scheduled flights of a FlightGraph. Every flight
+// becomes one connection in primitive arrays sorted by departure, with times as
+// minutes on the shared clock, so a query is a single pass over contiguous memory:
+//  - earliest arrival scans forward from the requested departure and stops at the
+//    first connection leaving after the best arrival found so far;
+//  - profile queries scan backwards once and yield, for every departure from the
+//    origin, the earliest arrival it allows.
+// A connection is usable when it leaves at least the airport's minimum connection
+// time after the passenger lands there. Flights without a schedule are left out,
+// and seats are copied at build time, as in CsrGraph.
+public final class ConnectionScan {
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    private final int[] departures;
+    private final int[] arrivals;
+    private final int[] fromIds;
+    private final int[] toIds;
+    private final int[] availableSeats;
+    private final Flight[] flights;
+    private final int[] minimumConnection;
+    // The source graph's registry, which resolves codes to the ids in fromIds and toIds
+    private final AirportRegistry registry;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(this::newScratch);
+
+
+    // Per-thread state indexed by airport id; entries count only when stamped
+    private static final class Scratch {
+        final int[] readyAt;
+        final int[] inbound;
+        final int[] stamp;
+        int epoch;
+
+        Scratch(int size) {
+            readyAt = new int[size];
+            inbound = new int[size];
+            stamp = new int[size];
+        }
+    }
+
+
+    // One Pareto-optimal way to reach the destination from an airport: leave on
+    // connection 'connection' at 'departure', continue with 'onward' and arrive at
+    // 'arrival'. 'later' is the airport's next entry, departing later and arriving later.
+    private static final class ProfileEntry {
+        final int departure;
+        final int arrival;
+        final int connection;
+        final ProfileEntry onward;
+        final ProfileEntry later;
+
+        ProfileEntry(int departure, int arrival, int connection, ProfileEntry onward, ProfileEntry later) {
+            this.departure = departure;
+            this.arrival = arrival;
+            this.connection = connection;
+            this.onward = onward;
+            this.later = later;
+        }
+    }
+
+
+    private Scratch newScratch() {
+        return new Scratch(minimumConnection.length);
+    }
+
+
+    ConnectionScan(Collection<Airport> airports, FlightGraph graph) {
+        registry = graph.registry();
+        int maxId = -1;
+        for (Airport airport : airports) {
+            maxId = Math.max(maxId, graph.idOf(airport));
+        }
+        minimumConnection = new int[maxId + 1];
+        for (Airport airport : airports) {
+            minimumConnection[graph.idOf(airport)] = airport.getMinimumConnectionMinutes();
+        }
+
+        List<Flight> scheduled = new ArrayList<>();
+        graph.forEachFlight(flight -> {
+            if (flight.hasSchedule()) scheduled.add(flight);
+        });
+
+        // Sort by departure through (departure << 32 | position) keys
+        int n = scheduled.size();
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) minutes(scheduled.get(i).getDepartureTime()) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        departures = new int[n];
+        arrivals = new int[n];
+        fromIds = new int[n];
+        toIds = new int[n];
+        availableSeats = new int[n];
+        flights = new Flight[n];
+        for (int c = 0; c < n; c++) {
+            Flight flight = scheduled.get((int) order[c]);
+            departures[c] = (int) (order[c] >> 32);
+            arrivals[c] = minutes(flight.getArrivalTime());
+            fromIds[c] = graph.originId(flight);
+            toIds[c] = graph.destinationId(flight);
+            availableSeats[c] = flight.getAvailableSeats();
+            flights[c] = flight;
+        }
+    }
+
+
+    // Minutes since 1970 on the shared clock; fits an int for about 4,000 years either way
+    static int minutes(LocalDateTime time) {
+        return (int) (time.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+
+    public int getConnectionCount() {
+        return departures.length;
+    }
+
+
+    // First connection departing at or after the given minute
+    private int firstDepartingAt(int minute) {
+        int low = 0;
+        int high = departures.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    private int airportId(String code) {
+        int id = registry.getId(code);
+        return id >= 0 && id < minimumConnection.length ? id : -1;
+    }
+
+
+    // Itinerary arriving earliest among those leaving the origin no earlier than
+    // departAfter with seats for the party; null if the destination cannot be reached
+    public Route findEarliestArrival(String originCode, String destCode, LocalDateTime departAfter,
+                                     int passengerCount) {
+        if (originCode == null || destCode == null || departAfter == null) {
+            throw new IllegalArgumentException("Airport codes and departure time cannot be null");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+
+        int origin = airportId(originCode);
+        int dest = airportId(destCode);
+        if (origin < 0 || dest < 0 || origin == dest) return null;
+
+        Scratch s = scratch.get();
+        int stamp = ++s.epoch;
+        if (stamp == 0) {
+            Arrays.fill(s.stamp, 0);
+            stamp = s.epoch = 1;
+        }
+
+        // readyAt is the earliest minute a passenger can board a departure from an airport
+        s.stamp[origin] = stamp;
+        s.readyAt[origin] = minutes(departAfter);
+        s.inbound[origin] = -1;
+
+        int bestArrival = NEVER;
+        int lastLeg = -1;
+        for (int c = firstDepartingAt(s.readyAt[origin]); c < departures.length; c++) {
+            if (departures[c] >= bestArrival) break; // nothing later can arrive sooner
+
+            int from = fromIds[c];
+            if (s.stamp[from] != stamp || departures[c] < s.readyAt[from]) continue;
+            if (availableSeats[c] < passengerCount) continue;
+
+            int to = toIds[c];
+            if (to == dest) {
+                if (arrivals[c] < bestArrival) {
+                    bestArrival = arrivals[c];
+                    lastLeg = c;
+                }
+                continue;
+            }
+
+            int ready = arrivals[c] + minimumConnection[to];
+            if (s.stamp[to] != stamp || ready < s.readyAt[to]) {
+                s.stamp[to] = stamp;
+                s.readyAt[to] = ready;
+                s.inbound[to] = c;
+            }
+        }
+
+        if (lastLeg < 0) return null;
+
+        List<Flight> legs = new ArrayList<>();
+        for (int c = lastLeg; c >= 0; c = s.inbound[fromIds[c]]) {
+            legs.add(flights[c]);
+        }
+        Collections.reverse(legs);
+        return new Route(legs);
+    }
+
+
+    public LocalDateTime getEarliestArrivalTime(String originCode, String destCode, LocalDateTime departAfter,
+                                                int passengerCount) {
+        Route route = findEarliestArrival(originCode, destCode, departAfter, passengerCount);
+        return route != null ? route.getFlights().getLast().getArrivalTime() : null;
+    }
+
+
+    // For every departure from the origin between windowStart and windowEnd, the
+    // itinerary arriving earliest, keeping only departures that arrive sooner than
+    // any later departure would; ordered by departure
+    public List<Route> findProfile(String originCode, String destCode, LocalDateTime windowStart,
+                                   LocalDateTime windowEnd, int passengerCount) {
+        if (originCode == null || destCode == null || windowStart == null || windowEnd == null) {
+            throw new IllegalArgumentException("Airport codes and time window cannot be null");
+        }
+        if (windowEnd.isBefore(windowStart)) {
+            throw new IllegalArgumentException("Time window ends before it starts");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+
+        int origin = airportId(originCode);
+        int dest = airportId(destCode);
+        if (origin < 0 || dest < 0 || origin == dest) return new ArrayList<>();
+
+        // Per airport, the most recently added entry; entries are added in decreasing
+        // departure order and only when they arrive strictly earlier than the last one,
+        // so each airport's chain runs from earliest to latest departure
+        ProfileEntry[] profiles = new ProfileEntry[minimumConnection.length];
+        int start = firstDepartingAt(minutes(windowStart));
+        int end = minutes(windowEnd);
+
+        for (int c = departures.length - 1; c >= start; c--) {
+            if (availableSeats[c] < passengerCount) continue;
+
+            int from = fromIds[c];
+            if (from == dest) continue;
+
+            int to = toIds[c];
+            int arrival;
+            ProfileEntry onward = null;
+            if (to == dest) {
+                arrival = arrivals[c];
+            } else if (to == origin) {
+                continue; // a journey never passes through its own origin
+            } else {
+                onward = firstLeavingAt(profiles[to], arrivals[c] + minimumConnection[to]);
+                if (onward == null) continue;
+                arrival = onward.arrival;
+            }
+
+            ProfileEntry best = profiles[from];
+            if (best == null || arrival < best.arrival) {
+                profiles[from] = new ProfileEntry(departures[c], arrival, c, onward, best);
+            }
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (ProfileEntry entry = profiles[origin]; entry != null; entry = entry.later) {
+            if (entry.departure > end) break;
+            List<Flight> legs = new ArrayList<>();
+            for (ProfileEntry leg = entry; leg != null; leg = leg.onward) {
+                legs.add(flights[leg.connection]);
+            }
+            routes.add(new Route(legs));
+        }
+        return routes;
+    }
+
+
+    // Earliest-departing entry at or after the given minute; arrivals rise along the
+    // chain, so that is also the earliest arrival still reachable
+    private static ProfileEntry firstLeavingAt(ProfileEntry head, int minute) {
+        for (ProfileEntry entry = head; entry != null; entry = entry.later) {
+            if (entry.departure >= minute) return entry;
+        }
+        return null;
+    }
+
+
+    public long getMemoryBytes() {
+        // Primitive arrays only; the shared Flight objects are not counted
+        return 4L * (departures.length + arrivals.length + fromIds.length + toIds.length
+                + availableSeats.length + minimumConnection.length);
+    }
+}
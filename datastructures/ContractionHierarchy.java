@@ -0,0 +1,620 @@
+package datastructures;
+
+import adt.Airport;
+import adt.Flight;
+
+import java.util.*;
+
+
+// Contraction hierarchy over the route network for hop-distance queries. Airports are
+// contracted one at a time, least important first; when removing an airport would
+// break a shortest path between two of its remaining neighbours, a shortcut edge
+// carrying the hop count is added. A query then runs a small bidirectional Dijkstra
+// that only climbs towards more important airports from both ends.
+// Every airport pair with a flight counts as one leg whatever its seats, so the
+// index reflects the network's shape and only goes stale when the topology changes.
+public final class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 32;
+
+    private final Airport[] airports;
+    // The source graph's registry, which resolves codes to the ids indexed below
+    private final AirportRegistry registry;
+    private final int[] localIndexById;
+    private final long topologyVersion;
+    private final int shortcutCount;
+
+    // Upward edges in compressed rows: forward from each airport, and backward into it
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+
+    // Shortcut (from << 32 | to) keys, sorted, with the airport each one skips
+    private final long[] shortcutKeys;
+    private final int[] shortcutMiddles;
+
+    private final ThreadLocal<QueryScratch> scratch = ThreadLocal.withInitial(this::newScratch);
+    private final SearchCounter lastSettled = new SearchCounter();
+
+
+    // Per-thread query state; an entry counts only when its side's stamp matches
+    private static final class QueryScratch {
+        final int[] forwardStamp;
+        final int[] backwardStamp;
+        final int[] forwardDistance;
+        final int[] backwardDistance;
+        final int[] forwardParent;
+        final int[] backwardParent;
+        final LongHeap forwardHeap = new LongHeap();
+        final LongHeap backwardHeap = new LongHeap();
+        int epoch;
+
+        QueryScratch(int size) {
+            forwardStamp = new int[size];
+            backwardStamp = new int[size];
+            forwardDistance = new int[size];
+            backwardDistance = new int[size];
+            forwardParent = new int[size];
+            backwardParent = new int[size];
+        }
+
+        int nextEpoch() {
+            forwardHeap.size = 0;
+            backwardHeap.size = 0;
+            if (++epoch == 0) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+
+    // Binary min-heap of (key << 32 | node) longs, with lazily skipped stale entries
+    private static final class LongHeap {
+        long[] items = new long[64];
+        int size;
+
+        void push(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (items[parent] <= item) break;
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        long peek() {
+            return items[0];
+        }
+
+        long pop() {
+            long top = items[0];
+            long last = items[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && items[child + 1] < items[child]) child++;
+                if (items[child] >= last) break;
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+    }
+
+
+    private QueryScratch newScratch() {
+        return new QueryScratch(airports.length);
+    }
+
+
+    ContractionHierarchy(Collection<Airport> graphAirports, FlightGraph graph, long topologyVersion) {
+        this.topologyVersion = topologyVersion;
+        int n = graphAirports.size();
+        airports = graphAirports.toArray(new Airport[0]);
+        registry = graph.registry();
+
+        int maxId = -1;
+        for (Airport airport : airports) {
+            maxId = Math.max(maxId, graph.idOf(airport));
+        }
+        localIndexById = new int[maxId + 1];
+        Arrays.fill(localIndexById, -1);
+        for (int i = 0; i < n; i++) {
+            localIndexById[graph.idOf(airports[i])] = i;
+        }
+
+        Builder builder = new Builder(n);
+        for (int i = 0; i < n; i++) {
+            List<Flight> outgoing = graph.outgoing(graph.idOf(airports[i]));
+            if (outgoing == null) continue;
+            for (Flight flight : outgoing) {
+                int target = localIndexById[graph.destinationId(flight)];
+                if (target >= 0 && target != i) builder.addEdge(i, target, 1, -1);
+            }
+        }
+        builder.contract();
+
+        // What is left in the lists leads up the hierarchy, since edges to each
+        // contracted airport were dropped from its neighbours
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        int shortcutEdges = 0;
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + builder.outSize[v];
+            downOffsets[v + 1] = downOffsets[v] + builder.inSize[v];
+            for (int e = 0; e < builder.outSize[v]; e++) {
+                if (builder.outMiddles[v][e] >= 0) shortcutEdges++;
+            }
+            for (int e = 0; e < builder.inSize[v]; e++) {
+                if (builder.inMiddles[v][e] >= 0) shortcutEdges++;
+            }
+        }
+
+        upTargets = new int[upOffsets[n]];
+        upWeights = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new int[downOffsets[n]];
+        shortcutKeys = new long[shortcutEdges];
+        shortcutMiddles = new int[shortcutEdges];
+        shortcutCount = shortcutEdges;
+
+        int shortcuts = 0;
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(builder.outTargets[v], 0, upTargets, upOffsets[v], builder.outSize[v]);
+            System.arraycopy(builder.outWeights[v], 0, upWeights, upOffsets[v], builder.outSize[v]);
+            System.arraycopy(builder.inSources[v], 0, downSources, downOffsets[v], builder.inSize[v]);
+            System.arraycopy(builder.inWeights[v], 0, downWeights, downOffsets[v], builder.inSize[v]);
+            for (int e = 0; e < builder.outSize[v]; e++) {
+                if (builder.outMiddles[v][e] >= 0) {
+                    shortcutKeys[shortcuts++] = ((long) v << 32) | builder.outTargets[v][e];
+                }
+            }
+            for (int e = 0; e < builder.inSize[v]; e++) {
+                if (builder.inMiddles[v][e] >= 0) {
+                    shortcutKeys[shortcuts++] = ((long) builder.inSources[v][e] << 32) | v;
+                }
+            }
+        }
+
+        Arrays.sort(shortcutKeys);
+        for (int i = 0; i < shortcutKeys.length; i++) {
+            shortcutMiddles[i] = builder.middleOf((int) (shortcutKeys[i] >>> 32), (int) shortcutKeys[i]);
+        }
+    }
+
+
+    // Mutable adjacency used while contracting. Contracting an airport removes it from
+    // its neighbours' lists but leaves its own, which then hold only the edges to
+    // airports contracted later.
+    private static final class Builder {
+        final int n;
+        final int[][] outTargets;
+        final int[][] outWeights;
+        final int[][] outMiddles;
+        final int[] outSize;
+        final int[][] inSources;
+        final int[][] inWeights;
+        final int[][] inMiddles;
+        final int[] inSize;
+        final int[] contractedNeighbours;
+        final int[] depth;
+
+        // Witness search state; targetStamp marks the airports a search still has to reach
+        final int[] witnessStamp;
+        final int[] witnessDistance;
+        final int[] targetStamp;
+        final LongHeap witnessHeap = new LongHeap();
+        int witnessEpoch;
+        int targetEpoch;
+
+        Builder(int n) {
+            this.n = n;
+            outTargets = new int[n][];
+            outWeights = new int[n][];
+            outMiddles = new int[n][];
+            outSize = new int[n];
+            inSources = new int[n][];
+            inWeights = new int[n][];
+            inMiddles = new int[n][];
+            inSize = new int[n];
+            contractedNeighbours = new int[n];
+            depth = new int[n];
+            witnessStamp = new int[n];
+            witnessDistance = new int[n];
+            targetStamp = new int[n];
+            for (int i = 0; i < n; i++) {
+                outTargets[i] = new int[4];
+                outWeights[i] = new int[4];
+                outMiddles[i] = new int[4];
+                inSources[i] = new int[4];
+                inWeights[i] = new int[4];
+                inMiddles[i] = new int[4];
+            }
+        }
+
+        static int indexOf(int[] items, int size, int item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item) return i;
+            }
+            return -1;
+        }
+
+        // Airport a shortcut u -> w skips; it sits in u's list unless u was contracted first
+        int middleOf(int u, int w) {
+            int e = indexOf(outTargets[u], outSize[u], w);
+            return e >= 0 ? outMiddles[u][e] : inMiddles[w][indexOf(inSources[w], inSize[w], u)];
+        }
+
+        void addEdge(int u, int w, int weight, int middle) {
+            int e = indexOf(outTargets[u], outSize[u], w);
+            if (e >= 0) {
+                if (weight < outWeights[u][e]) {
+                    int i = indexOf(inSources[w], inSize[w], u);
+                    outWeights[u][e] = weight;
+                    outMiddles[u][e] = middle;
+                    inWeights[w][i] = weight;
+                    inMiddles[w][i] = middle;
+                }
+                return;
+            }
+
+            if (outSize[u] == outTargets[u].length) {
+                int size = outSize[u] * 2;
+                outTargets[u] = Arrays.copyOf(outTargets[u], size);
+                outWeights[u] = Arrays.copyOf(outWeights[u], size);
+                outMiddles[u] = Arrays.copyOf(outMiddles[u], size);
+            }
+            outTargets[u][outSize[u]] = w;
+            outWeights[u][outSize[u]] = weight;
+            outMiddles[u][outSize[u]++] = middle;
+
+            if (inSize[w] == inSources[w].length) {
+                int size = inSize[w] * 2;
+                inSources[w] = Arrays.copyOf(inSources[w], size);
+                inWeights[w] = Arrays.copyOf(inWeights[w], size);
+                inMiddles[w] = Arrays.copyOf(inMiddles[w], size);
+            }
+            inSources[w][inSize[w]] = u;
+            inWeights[w][inSize[w]] = weight;
+            inMiddles[w][inSize[w]++] = middle;
+        }
+
+        void contract() {
+            // Lazy priority queue: a popped airport is re-rated and pushed back if it
+            // no longer beats the next one
+            LongHeap queue = new LongHeap();
+            for (int v = 0; v < n; v++) {
+                queue.push(key(priority(v, shortcuts(v, false)), v));
+            }
+
+            while (queue.size > 0) {
+                int v = (int) queue.pop();
+                int shortcuts = shortcuts(v, false);
+                int priority = priority(v, shortcuts);
+                if (queue.size > 0 && key(priority, v) > queue.peek()) {
+                    queue.push(key(priority, v));
+                    continue;
+                }
+
+                shortcuts(v, true);
+                for (int e = 0; e < outSize[v]; e++) {
+                    int w = outTargets[v][e];
+                    removeIncoming(w, v);
+                    settleNeighbour(v, w);
+                }
+                for (int e = 0; e < inSize[v]; e++) {
+                    int u = inSources[v][e];
+                    removeOutgoing(u, v);
+                    settleNeighbour(v, u);
+                }
+            }
+        }
+
+        void removeOutgoing(int u, int w) {
+            int e = indexOf(outTargets[u], outSize[u], w);
+            int last = --outSize[u];
+            outTargets[u][e] = outTargets[u][last];
+            outWeights[u][e] = outWeights[u][last];
+            outMiddles[u][e] = outMiddles[u][last];
+        }
+
+        void removeIncoming(int w, int u) {
+            int i = indexOf(inSources[w], inSize[w], u);
+            int last = --inSize[w];
+            inSources[w][i] = inSources[w][last];
+            inWeights[w][i] = inWeights[w][last];
+            inMiddles[w][i] = inMiddles[w][last];
+        }
+
+        void settleNeighbour(int v, int neighbour) {
+            contractedNeighbours[neighbour]++;
+            depth[neighbour] = Math.max(depth[neighbour], depth[v] + 1);
+        }
+
+        // Edge difference, plus contracted neighbours and hierarchy depth so that
+        // contraction spreads evenly and the hierarchy stays shallow
+        int priority(int v, int shortcuts) {
+            return 2 * (shortcuts - outSize[v] - inSize[v]) + contractedNeighbours[v] + depth[v];
+        }
+
+        static long key(int priority, int v) {
+            return ((long) (priority + (1 << 30)) << 32) | v;
+        }
+
+        // Shortcuts needed to contract v; added to the graph when apply is set
+        int shortcuts(int v, boolean apply) {
+            if (outSize[v] == 0) return 0;
+            if (++targetEpoch == 0) {
+                Arrays.fill(targetStamp, 0);
+                targetEpoch = 1;
+            }
+            int maxOut = 0;
+            for (int e = 0; e < outSize[v]; e++) {
+                maxOut = Math.max(maxOut, outWeights[v][e]);
+                targetStamp[outTargets[v][e]] = targetEpoch;
+            }
+
+            int count = 0;
+            for (int i = 0; i < inSize[v]; i++) {
+                int u = inSources[v][i];
+                int inWeight = inWeights[v][i];
+                witnessSearch(u, v, inWeight + maxOut, outSize[v]);
+
+                for (int e = 0; e < outSize[v]; e++) {
+                    int w = outTargets[v][e];
+                    if (w == u) continue;
+                    int viaWeight = inWeight + outWeights[v][e];
+                    if (witnessStamp[w] == witnessEpoch && witnessDistance[w] <= viaWeight) continue;
+                    count++;
+                    if (apply) addEdge(u, w, viaWeight, v);
+                }
+            }
+            return count;
+        }
+
+        // Bounded Dijkstra from u that avoids v, done once every target is settled; gives
+        // up after a fixed number of airports, which can only cost an unnecessary shortcut
+        void witnessSearch(int u, int v, int maxDistance, int targets) {
+            if (++witnessEpoch == 0) {
+                Arrays.fill(witnessStamp, 0);
+                witnessEpoch = 1;
+            }
+            witnessHeap.size = 0;
+            witnessStamp[u] = witnessEpoch;
+            witnessDistance[u] = 0;
+            witnessHeap.push(u);
+
+            int settled = 0;
+            while (witnessHeap.size > 0 && settled < WITNESS_SETTLE_LIMIT) {
+                long item = witnessHeap.pop();
+                int x = (int) item;
+                int distance = (int) (item >>> 32);
+                if (distance > witnessDistance[x]) continue;
+                if (distance >= maxDistance) break;
+                if (targetStamp[x] == targetEpoch && --targets == 0) break;
+                settled++;
+
+                for (int e = 0; e < outSize[x]; e++) {
+                    int y = outTargets[x][e];
+                    if (y == v) continue;
+                    int candidate = distance + outWeights[x][e];
+                    if (candidate > maxDistance) continue;
+                    if (witnessStamp[y] != witnessEpoch || candidate < witnessDistance[y]) {
+                        witnessStamp[y] = witnessEpoch;
+                        witnessDistance[y] = candidate;
+                        // Airports at the bound are never settled; their distance is enough
+                        if (candidate < maxDistance) witnessHeap.push(((long) candidate << 32) | y);
+                    }
+                }
+            }
+        }
+    }
+
+
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+
+    public int getAirportCount() {
+        return airports.length;
+    }
+
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+
+    private int indexOf(String code) {
+        int id = registry.getId(code);
+        return id >= 0 && id < localIndexById.length ? localIndexById[id] : -1;
+    }
+
+
+    // Fewest flights from origin to destination over the network; -1 when unreachable
+    public int getHopDistance(String originCode, String destCode) {
+        int origin = indexOf(originCode);
+        int destination = indexOf(destCode);
+        if (origin < 0 || destination < 0) return -1;
+        if (origin == destination) return 0;
+
+        QueryScratch s = scratch.get();
+        int meet = search(s, origin, destination);
+        return meet < 0 ? -1 : s.forwardDistance[meet] + s.backwardDistance[meet];
+    }
+
+
+    // Airport codes along one fewest-flights path, or an empty list when unreachable
+    public List<String> getPath(String originCode, String destCode) {
+        int origin = indexOf(originCode);
+        int destination = indexOf(destCode);
+        if (origin < 0 || destination < 0) return new ArrayList<>();
+        if (origin == destination) return new ArrayList<>(List.of(originCode));
+
+        QueryScratch s = scratch.get();
+        int meet = search(s, origin, destination);
+        if (meet < 0) return new ArrayList<>();
+
+        // Hierarchy edges from origin to destination, then each expanded into legs
+        List<Integer> hierarchyPath = new ArrayList<>();
+        for (int v = meet; v >= 0; v = s.forwardParent[v]) {
+            hierarchyPath.add(v);
+        }
+        Collections.reverse(hierarchyPath);
+        for (int v = s.backwardParent[meet]; v >= 0; v = s.backwardParent[v]) {
+            hierarchyPath.add(v);
+        }
+
+        List<String> path = new ArrayList<>();
+        path.add(airports[origin].getCode());
+        for (int i = 0; i + 1 < hierarchyPath.size(); i++) {
+            unpack(hierarchyPath.get(i), hierarchyPath.get(i + 1), path);
+        }
+        return path;
+    }
+
+
+    // Appends the airports after u on the legs a hierarchy edge u -> w stands for
+    private void unpack(int u, int w, List<String> path) {
+        // Pending edges as (from, to) pairs, the next one to expand on top
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = u;
+        stack[size++] = w;
+        while (size > 0) {
+            int to = stack[--size];
+            int from = stack[--size];
+            int index = Arrays.binarySearch(shortcutKeys, ((long) from << 32) | to);
+            if (index < 0) {
+                path.add(airports[to].getCode());
+                continue;
+            }
+            if (size + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            int middle = shortcutMiddles[index];
+            stack[size++] = middle;
+            stack[size++] = to;
+            stack[size++] = from;
+            stack[size++] = middle;
+        }
+    }
+
+
+    // Bidirectional upward Dijkstra; returns the best meeting airport or -1. Each side
+    // stops once its next distance reaches the best path found, since only then is
+    // every upward path shorter than it explored.
+    private int search(QueryScratch s, int origin, int destination) {
+        int stamp = s.nextEpoch();
+        s.forwardStamp[origin] = stamp;
+        s.forwardDistance[origin] = 0;
+        s.forwardParent[origin] = -1;
+        s.forwardHeap.push(origin);
+        s.backwardStamp[destination] = stamp;
+        s.backwardDistance[destination] = 0;
+        s.backwardParent[destination] = -1;
+        s.backwardHeap.push(destination);
+
+        int best = Integer.MAX_VALUE;
+        int meet = -1;
+        long settled = 0;
+        while (true) {
+            boolean forwardOpen = s.forwardHeap.size > 0 && (int) (s.forwardHeap.peek() >>> 32) < best;
+            boolean backwardOpen = s.backwardHeap.size > 0 && (int) (s.backwardHeap.peek() >>> 32) < best;
+            if (!forwardOpen && !backwardOpen) break;
+
+            boolean forward = forwardOpen && (!backwardOpen || s.forwardHeap.peek() <= s.backwardHeap.peek());
+            if (forward) {
+                long item = s.forwardHeap.pop();
+                int v = (int) item;
+                int distance = (int) (item >>> 32);
+                if (distance > s.forwardDistance[v]) continue;
+                settled++;
+                if (s.backwardStamp[v] == stamp && distance + s.backwardDistance[v] < best) {
+                    best = distance + s.backwardDistance[v];
+                    meet = v;
+                }
+                if (stalledForward(s, stamp, v, distance)) continue;
+                for (int e = upOffsets[v]; e < upOffsets[v + 1]; e++) {
+                    int w = upTargets[e];
+                    int candidate = distance + upWeights[e];
+                    if (s.forwardStamp[w] != stamp || candidate < s.forwardDistance[w]) {
+                        s.forwardStamp[w] = stamp;
+                        s.forwardDistance[w] = candidate;
+                        s.forwardParent[w] = v;
+                        s.forwardHeap.push(((long) candidate << 32) | w);
+                    }
+                }
+            } else {
+                long item = s.backwardHeap.pop();
+                int v = (int) item;
+                int distance = (int) (item >>> 32);
+                if (distance > s.backwardDistance[v]) continue;
+                settled++;
+                if (s.forwardStamp[v] == stamp && distance + s.forwardDistance[v] < best) {
+                    best = distance + s.forwardDistance[v];
+                    meet = v;
+                }
+                if (stalledBackward(s, stamp, v, distance)) continue;
+                for (int e = downOffsets[v]; e < downOffsets[v + 1]; e++) {
+                    int u = downSources[e];
+                    int candidate = distance + downWeights[e];
+                    if (s.backwardStamp[u] != stamp || candidate < s.backwardDistance[u]) {
+                        s.backwardStamp[u] = stamp;
+                        s.backwardDistance[u] = candidate;
+                        s.backwardParent[u] = v;
+                        s.backwardHeap.push(((long) candidate << 32) | u);
+                    }
+                }
+            }
+        }
+        lastSettled.set(settled);
+        return meet;
+    }
+
+
+    // Stall on demand: a more important airport the search already reached with an
+    // edge into v gives a shorter way there, so nothing needs relaxing from v
+    private boolean stalledForward(QueryScratch s, int stamp, int v, int distance) {
+        for (int e = downOffsets[v]; e < downOffsets[v + 1]; e++) {
+            int u = downSources[e];
+            if (s.forwardStamp[u] == stamp && s.forwardDistance[u] + downWeights[e] < distance) return true;
+        }
+        return false;
+    }
+
+
+    private boolean stalledBackward(QueryScratch s, int stamp, int v, int distance) {
+        for (int e = upOffsets[v]; e < upOffsets[v + 1]; e++) {
+            int w = upTargets[e];
+            if (s.backwardStamp[w] == stamp && s.backwardDistance[w] + upWeights[e] < distance) return true;
+        }
+        return false;
+    }
+
+
+    // Airports settled by both sides of the most recent query, for benchmarking
+    public long getLastSettledCount() {
+        return lastSettled.get();
+    }
+
+
+    public long getMemoryBytes() {
+        return 4L * (localIndexById.length + upOffsets.length + upTargets.length + upWeights.length
+                + downOffsets.length + downSources.length + downWeights.length + shortcutMiddles.length)
+                + 8L * shortcutKeys.length;
+    }
+}
@@ -0,0 +1,368 @@
+package datastructures;
+
+import adt.Airport;
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Immutable compressed sparse row copy of a FlightGraph for read-heavy work.
+// Airports get local indices 0..n-1; the flights leaving airport i are the edges
+// offsets[i] until offsets[i + 1], sorted by destination, with their destination,
+// seats and prices in parallel primitive arrays. Traversals touch only these arrays
+// and per-thread scratch space; Flight objects are looked up only to build results.
+// Seats and prices are copied when the snapshot is built and do not follow bookings;
+// only findRoutes, whose Route results price each leg from the live Flight, reads seats
+// from the flights as well, so a route is returned exactly when its flights have seats.
+public final class CsrGraph {
+    private final Airport[] airports;
+    // The source graph's registry, which resolves codes to the ids indexed below
+    private final AirportRegistry registry;
+    private final int[] localIndexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] availableSeats;
+    private final double[] basePrices;
+    private final double[] prices;
+    private final Flight[] flights;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(this::newScratch);
+
+
+    // Receives one route as edge indices; secondEdge is -1 for a direct flight
+    public interface RouteVisitor {
+        void visit(int firstEdge, int secondEdge, double totalPrice);
+    }
+
+
+    // Reusable BFS state; a slot is visited in the current search when its stamp matches
+    private static final class Scratch {
+        final int[] queue;
+        final int[] parent;
+        final int[] visitedStamp;
+        int epoch;
+
+        Scratch(int vertexCount) {
+            queue = new int[vertexCount];
+            parent = new int[vertexCount];
+            visitedStamp = new int[vertexCount];
+        }
+    }
+
+
+    private Scratch newScratch() {
+        return new Scratch(airports.length);
+    }
+
+
+    CsrGraph(Collection<Airport> graphAirports, FlightGraph graph) {
+        int n = graphAirports.size();
+        airports = graphAirports.toArray(new Airport[0]);
+        registry = graph.registry();
+
+        int maxId = -1;
+        for (Airport airport : airports) {
+            maxId = Math.max(maxId, graph.idOf(airport));
+        }
+        localIndexById = new int[maxId + 1];
+        Arrays.fill(localIndexById, -1);
+        for (int i = 0; i < n; i++) {
+            localIndexById[graph.idOf(airports[i])] = i;
+        }
+
+        offsets = new int[n + 1];
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            List<Flight> outgoing = graph.outgoing(graph.idOf(airports[i]));
+            offsets[i] = edgeCount;
+            edgeCount += outgoing != null ? outgoing.size() : 0;
+        }
+        offsets[n] = edgeCount;
+
+        targets = new int[edgeCount];
+        availableSeats = new int[edgeCount];
+        basePrices = new double[edgeCount];
+        prices = new double[edgeCount];
+        flights = new Flight[edgeCount];
+
+        long[] order = new long[0];
+        for (int i = 0; i < n; i++) {
+            List<Flight> outgoing = graph.outgoing(graph.idOf(airports[i]));
+            int degree = offsets[i + 1] - offsets[i];
+            if (degree == 0) continue;
+
+            // Sort this airport's edges by destination: (destination << 32 | position)
+            if (order.length < degree) {
+                order = new long[Math.max(degree, order.length * 2)];
+            }
+            for (int j = 0; j < degree; j++) {
+                int target = localIndexById[graph.destinationId(outgoing.get(j))];
+                order[j] = ((long) target << 32) | j;
+            }
+            Arrays.sort(order, 0, degree);
+
+            for (int j = 0; j < degree; j++) {
+                Flight flight = outgoing.get((int) order[j]);
+                int edge = offsets[i] + j;
+                targets[edge] = (int) (order[j] >>> 32);
+                availableSeats[edge] = flight.getAvailableSeats();
+                basePrices[edge] = flight.getBasePrice();
+                prices[edge] = flight.getCurrentPrice();
+                flights[edge] = flight;
+            }
+        }
+    }
+
+
+    public int getAirportCount() {
+        return airports.length;
+    }
+
+
+    public int getFlightCount() {
+        return targets.length;
+    }
+
+
+    public int indexOf(String code) {
+        int id = registry.getId(code);
+        return id >= 0 && id < localIndexById.length ? localIndexById[id] : -1;
+    }
+
+
+    public Airport getAirport(int index) {
+        return airports[index];
+    }
+
+
+    public int getOutDegree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+
+    public int getAvailableSeats(int edge) {
+        return availableSeats[edge];
+    }
+
+
+    public double getBasePrice(int edge) {
+        return basePrices[edge];
+    }
+
+
+    public double getPrice(int edge) {
+        return prices[edge];
+    }
+
+
+    public Flight getFlight(int edge) {
+        return flights[edge];
+    }
+
+
+    // First edge from origin to destination, or the end of origin's range if none
+    private int lowerBound(int origin, int destination) {
+        int low = offsets[origin];
+        int high = offsets[origin + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (targets[mid] < destination) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    // Direct and one-stop routes over flights with free seats, as FlightGraph.findRoutes;
+    // seats and prices are the ones copied at build time
+    public void forEachRoute(int origin, int destination, RouteVisitor visitor) {
+        forEachRoute(origin, destination, false, visitor);
+    }
+
+
+    private void forEachRoute(int origin, int destination, boolean liveSeats, RouteVisitor visitor) {
+        if (origin < 0 || destination < 0) return;
+
+        int end = offsets[origin + 1];
+        for (int e = lowerBound(origin, destination); e < end && targets[e] == destination; e++) {
+            if (hasSeats(e, liveSeats)) {
+                visitor.visit(e, -1, prices[e]);
+            }
+        }
+
+        for (int first = offsets[origin]; first < end; first++) {
+            int intermediate = targets[first];
+            if (intermediate == destination || !hasSeats(first, liveSeats)) continue;
+
+            int secondEnd = offsets[intermediate + 1];
+            for (int second = lowerBound(intermediate, destination);
+                 second < secondEnd && targets[second] == destination; second++) {
+                if (hasSeats(second, liveSeats)) {
+                    visitor.visit(first, second, prices[first] + prices[second]);
+                }
+            }
+        }
+    }
+
+
+    private boolean hasSeats(int edge, boolean live) {
+        return live ? flights[edge].hasAvailableSeats() : availableSeats[edge] > 0;
+    }
+
+
+    // Routes over the snapshot's topology, but with the flights' current seats: a Route
+    // prices its legs from the live flights, so the seats have to be read there as well
+    public List<Route> findRoutes(String originCode, String destCode) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+
+        List<Route> routes = new ArrayList<>();
+        forEachRoute(indexOf(originCode), indexOf(destCode), true, (first, second, price) ->
+                routes.add(new Route(second < 0
+                        ? Arrays.asList(flights[first])
+                        : Arrays.asList(flights[first], flights[second]))));
+        routes.sort(Route.priceComparator());
+        return routes;
+    }
+
+
+    // Fewest-flights path over flights with free seats; -1 when unreachable
+    public int getHopDistance(int origin, int destination) {
+        Scratch s = bfs(origin, destination);
+        if (s == null) return -1;
+
+        int hops = 0;
+        for (int v = destination; v != origin; v = s.parent[v]) {
+            hops++;
+        }
+        return hops;
+    }
+
+
+    public List<String> getShortestPath(String originCode, String destCode) {
+        int origin = indexOf(originCode);
+        int destination = indexOf(destCode);
+        Scratch s = bfs(origin, destination);
+        if (s == null) return new ArrayList<>();
+
+        List<String> path = new ArrayList<>();
+        for (int v = destination; v != origin; v = s.parent[v]) {
+            path.add(airports[v].getCode());
+        }
+        path.add(airports[origin].getCode());
+        Collections.reverse(path);
+        return path;
+    }
+
+
+    // Returns the scratch space with parent links filled in, or null if unreachable
+    private Scratch bfs(int origin, int destination) {
+        if (origin < 0 || destination < 0) return null;
+
+        Scratch s = scratch.get();
+        int stamp = ++s.epoch;
+        if (stamp == 0) {
+            // Stamps wrapped around; old marks could look current again
+            Arrays.fill(s.visitedStamp, 0);
+            stamp = s.epoch = 1;
+        }
+
+        int head = 0;
+        int tail = 0;
+        s.queue[tail++] = origin;
+        s.visitedStamp[origin] = stamp;
+
+        while (head < tail) {
+            int current = s.queue[head++];
+            if (current == destination) {
+                return s;
+            }
+
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int next = targets[e];
+                if (s.visitedStamp[next] != stamp && availableSeats[e] > 0) {
+                    s.visitedStamp[next] = stamp;
+                    s.parent[next] = current;
+                    s.queue[tail++] = next;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    // Airports with the most outgoing flights, highest first
+    public List<Airport> getHubAirports(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        // Min-heap of local indices ordered by out-degree keeps the current top 'limit'
+        int k = Math.min(limit, airports.length);
+        int[] heap = new int[k];
+        int size = 0;
+        for (int v = 0; v < airports.length; v++) {
+            if (size < k) {
+                heap[size] = v;
+                siftUp(heap, size++);
+            } else if (getOutDegree(v) > getOutDegree(heap[0])) {
+                heap[0] = v;
+                siftDown(heap, 0, size);
+            }
+        }
+
+        List<Airport> hubs = new ArrayList<>(size);
+        while (size > 0) {
+            hubs.add(airports[heap[0]]);
+            heap[0] = heap[--size];
+            siftDown(heap, 0, size);
+        }
+        Collections.reverse(hubs);
+        return hubs;
+    }
+
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (getOutDegree(heap[i]) >= getOutDegree(heap[parent])) break;
+            int tmp = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = tmp;
+            i = parent;
+        }
+    }
+
+
+    private void siftDown(int[] heap, int i, int size) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && getOutDegree(heap[left]) < getOutDegree(heap[smallest])) smallest = left;
+            if (right < size && getOutDegree(heap[right]) < getOutDegree(heap[smallest])) smallest = right;
+            if (smallest == i) return;
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+
+    public long getMemoryBytes() {
+        // Primitive arrays only; the shared Flight and Airport objects are not counted
+        return 4L * (localIndexById.length + offsets.length + targets.length + availableSeats.length)
+                + 8L * (basePrices.length + prices.length);
+    }
+}
@@ -0,0 +1,261 @@
+package datastructures;
+
+
+// Approximate set of string keys. Each key is reduced to a 16-bit fingerprint kept in
+// one of two 4-slot buckets, so a lookup reads at most two 8-byte buckets. Answers
+// "definitely absent" exactly and "maybe present" with a small false-positive rate;
+// unlike a Bloom filter, keys can be removed again.
+public class CuckooFilter {
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int FINGERPRINT_BITS = 16;
+    private static final int MAX_KICKS = 500;
+
+    private final short[] slots;
+    private final int bucketCount;
+    private final int bucketMask;
+    private int size;
+    private int random = 0x2545F491;
+
+    // A fingerprint left homeless by a failed eviction path; once it is set the
+    // filter is full and add() refuses new keys so none is ever dropped
+    private boolean hasVictim;
+    private short victimFingerprint;
+    private int victimBucket;
+
+
+    public CuckooFilter(int expectedKeys) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("Expected key count must be positive");
+        }
+        // Aim for about 85% occupancy at the expected key count
+        int buckets = 1;
+        while (buckets * SLOTS_PER_BUCKET * 0.85 < expectedKeys && buckets < (1 << 28)) {
+            buckets <<= 1;
+        }
+        bucketCount = buckets;
+        bucketMask = buckets - 1;
+        slots = new short[buckets * SLOTS_PER_BUCKET];
+    }
+
+
+    private CuckooFilter(CuckooFilter other) {
+        slots = other.slots.clone();
+        bucketCount = other.bucketCount;
+        bucketMask = other.bucketMask;
+        size = other.size;
+        random = other.random;
+        hasVictim = other.hasVictim;
+        victimFingerprint = other.victimFingerprint;
+        victimBucket = other.victimBucket;
+    }
+
+
+    public CuckooFilter copy() {
+        return new CuckooFilter(this);
+    }
+
+
+    // Widens String's cached hash code with a 64-bit mix, so a lookup never rescans
+    // the characters; the low bits pick the bucket and the high bits the fingerprint
+    private static long hash64(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        return h ^ (h >>> 32);
+    }
+
+
+    private static short fingerprint(long hash) {
+        int fp = (int) (hash >>> (64 - FINGERPRINT_BITS));
+        return (short) (fp == 0 ? 1 : fp); // 0 marks an empty slot
+    }
+
+
+    private int alternateBucket(int bucket, short fingerprint) {
+        return (bucket ^ CustomHashMap.spread(fingerprint * 0x5bd1e995)) & bucketMask;
+    }
+
+
+    // Returns false when the filter is full; the caller should rebuild it larger
+    public boolean add(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (hasVictim) return false;
+
+        long hash = hash64(key);
+        short fp = fingerprint(hash);
+        int first = (int) hash & bucketMask;
+        int second = alternateBucket(first, fp);
+
+        if (insertIntoBucket(first, fp) || insertIntoBucket(second, fp)) {
+            size++;
+            return true;
+        }
+
+        // Both buckets full: evict fingerprints along a random cuckoo path
+        int bucket = (nextRandom() & 1) == 0 ? first : second;
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            int slot = bucket * SLOTS_PER_BUCKET + (nextRandom() & (SLOTS_PER_BUCKET - 1));
+            short evicted = slots[slot];
+            slots[slot] = fp;
+            fp = evicted;
+            bucket = alternateBucket(bucket, fp);
+            if (insertIntoBucket(bucket, fp)) {
+                size++;
+                return true;
+            }
+        }
+
+        hasVictim = true;
+        victimFingerprint = fp;
+        victimBucket = bucket;
+        size++;
+        return true;
+    }
+
+
+    // Adds the key only if one of its two buckets has a free slot, so no fingerprint is
+    // moved and a reader that races the write finds every other key where it was.
+    // Returns false, changing nothing, when both buckets are full or the filter is.
+    public boolean addWithoutRelocating(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (hasVictim) return false;
+
+        long hash = hash64(key);
+        short fp = fingerprint(hash);
+        int first = (int) hash & bucketMask;
+        if (insertIntoBucket(first, fp) || insertIntoBucket(alternateBucket(first, fp), fp)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+
+    private boolean insertIntoBucket(int bucket, short fp) {
+        int base = bucket * SLOTS_PER_BUCKET;
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+            if (slots[base + i] == 0) {
+                slots[base + i] = fp;
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private boolean bucketContains(int bucket, short fp) {
+        int base = bucket * SLOTS_PER_BUCKET;
+        return slots[base] == fp || slots[base + 1] == fp || slots[base + 2] == fp || slots[base + 3] == fp;
+    }
+
+
+    public boolean mightContain(String key) {
+        if (key == null) return false;
+
+        long hash = hash64(key);
+        short fp = fingerprint(hash);
+        int first = (int) hash & bucketMask;
+        int second = alternateBucket(first, fp);
+        return bucketContains(first, fp) || bucketContains(second, fp) || isVictim(first, second, fp);
+    }
+
+
+    private boolean isVictim(int first, int second, short fp) {
+        return hasVictim && victimFingerprint == fp && (victimBucket == first || victimBucket == second);
+    }
+
+
+    // Only remove keys that were added; removing anything else may evict another key
+    public boolean remove(String key) {
+        if (key == null) return false;
+
+        long hash = hash64(key);
+        short fp = fingerprint(hash);
+        int first = (int) hash & bucketMask;
+        int second = alternateBucket(first, fp);
+
+        if (isVictim(first, second, fp)) {
+            hasVictim = false;
+        } else if (!removeFromBucket(first, fp) && !removeFromBucket(second, fp)) {
+            return false;
+        } else if (hasVictim) {
+            // A slot just opened up; give the homeless fingerprint another chance
+            short victim = victimFingerprint;
+            int bucket = victimBucket;
+            hasVictim = false;
+            size--;
+            insertFingerprint(bucket, victim);
+            return true;
+        }
+        size--;
+        return true;
+    }
+
+
+    private void insertFingerprint(int bucket, short fp) {
+        if (insertIntoBucket(bucket, fp) || insertIntoBucket(alternateBucket(bucket, fp), fp)) {
+            size++;
+            return;
+        }
+        hasVictim = true;
+        victimFingerprint = fp;
+        victimBucket = bucket;
+        size++;
+    }
+
+
+    private boolean removeFromBucket(int bucket, short fp) {
+        int base = bucket * SLOTS_PER_BUCKET;
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+            if (slots[base + i] == fp) {
+                slots[base + i] = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public int getCapacity() {
+        return bucketCount * SLOTS_PER_BUCKET;
+    }
+
+
+    public double getLoadFactor() {
+        return (double) size / getCapacity();
+    }
+
+
+    public boolean isFull() {
+        return hasVictim;
+    }
+
+
+    // Chance that an absent key matches one of the up to 8 fingerprints it is compared with
+    public double getExpectedFalsePositiveRate() {
+        double comparisons = 2.0 * SLOTS_PER_BUCKET * getLoadFactor();
+        return 1.0 - Math.pow(1.0 - 1.0 / ((1 << FINGERPRINT_BITS) - 1), comparisons);
+    }
+
+
+    public long getMemoryBytes() {
+        return (long) slots.length * Short.BYTES;
+    }
+}
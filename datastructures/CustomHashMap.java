@@ -1,14 +1,28 @@
 package datastructures;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 
-public class CustomHashMap<K, V> {
+public class CustomHashMap<K, V> extends AbstractCustomMap<K, V> {
     private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
     private static final double LOAD_FACTOR = 0.75;
+    private static final int MIGRATION_STEP = 4;
+
+    // Chains at least this long become balanced trees when their keys are Comparable,
+    // and trees that shrink back to the lower threshold become plain chains again
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
 
     private Entry<K, V>[] buckets;
     private int size;
     private int capacity;
+    private int modCount;
+
+    // Table being drained into buckets while an incremental resize is running
+    private Entry<K, V>[] oldBuckets;
+    private int oldCapacity;
+    private int migrationIndex;
 
 
     @SuppressWarnings("unchecked")
@@ -24,27 +38,94 @@ public class CustomHashMap<K, V> {
         if (initialCapacity <= 0) {
             throw new IllegalArgumentException("Initial capacity must be positive");
         }
-        this.capacity = initialCapacity;
+        this.capacity = tableSizeFor(initialCapacity);
         this.buckets = new Entry[capacity];
         this.size = 0;
     }
 
 
-    private static class Entry<K, V> {
-        K key;
+    private static class Entry<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
         V value;
         Entry<K, V> next;
 
-        Entry(K key, V value) {
+        Entry(int hash, K key, V value) {
+            this.hash = hash;
             this.key = key;
             this.value = value;
             this.next = null;
         }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V newValue) {
+            V oldValue = value;
+            value = newValue;
+            return oldValue;
+        }
+    }
+
+
+    // Node of a treeified bucket; next/prev keep every node of the bin in a list
+    private static final class TreeNode<K, V> extends Entry<K, V> {
+        TreeNode<K, V> left;
+        TreeNode<K, V> right;
+        TreeNode<K, V> prev;
+        int height = 1;
+
+        TreeNode(int hash, K key, V value) {
+            super(hash, key, value);
+        }
+    }
+
+
+    // Placeholder stored in the bucket slot of a treeified bucket
+    private static final class TreeBin<K, V> extends Entry<K, V> {
+        final Class<?> keyClass;
+        TreeNode<K, V> root;
+        TreeNode<K, V> first;
+        int count;
+
+        TreeBin(Class<?> keyClass) {
+            super(0, null, null);
+            this.keyClass = keyClass;
+        }
+    }
+
+
+    private static int tableSizeFor(int requested) {
+        int n = 1;
+        while (n < requested && n < MAXIMUM_CAPACITY) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+
+    // Mixes high bits into the low bits used by the mask, so keys with similar
+    // hash codes (short airport codes, sequential flight numbers) still spread out
+    static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
     }
 
 
     private int hash(K key) {
-        return key == null ? 0 : Math.abs(key.hashCode() % capacity);
+        return key == null ? 0 : spread(key.hashCode());
+    }
+
+
+    private static <K, V> Entry<K, V> chainStart(Entry<K, V> bucket) {
+        return bucket instanceof TreeBin ? ((TreeBin<K, V>) bucket).first : bucket;
     }
 
 
@@ -53,41 +134,100 @@ public class CustomHashMap<K, V> {
             throw new IllegalArgumentException("Key cannot be null");
         }
 
-        // Resize if load factor exceeded
-        if (size >= capacity * LOAD_FACTOR) {
-            resize();
-        }
-
-        int index = hash(key);
-        Entry<K, V> entry = buckets[index];
-
-        // Check if key already exists (update value)
-        while (entry != null) {
-            if (entry.key.equals(key)) {
-                V oldValue = entry.value;
-                entry.value = value;
+        // One walk of the key's bucket, in whichever table holds it, both finds an
+        // existing key and places a new one. Updating an existing key is not a
+        // structural change, so it returns before the resize moves any buckets.
+        int hash = hash(key);
+        Entry<K, V>[] table = tableFor(hash);
+        int index = hash & (table.length - 1);
+        Entry<K, V> entry = table[index];
+        int chainLength = 0;
+
+        if (entry instanceof TreeBin) {
+            TreeBin<K, V> bin = (TreeBin<K, V>) entry;
+            Entry<K, V> existing = findTreeNode(bin, hash, key);
+            if (existing != null) {
+                existing.value = value;
                 return;
             }
-            entry = entry.next;
+            modCount++;
+            if (key.getClass() == bin.keyClass && insertTreeNode(bin, new TreeNode<>(hash, key, value))) {
+                size++;
+                afterInsert();
+                return;
+            }
+            // The key cannot be ordered against this tree; fall back to a chain
+            untreeify(table, index);
+            chainLength = bin.count;
+        } else {
+            while (entry != null) {
+                if (entry.hash == hash && entry.key.equals(key)) {
+                    entry.value = value;
+                    return;
+                }
+                chainLength++;
+                entry = entry.next;
+            }
+            modCount++;
         }
 
         // Add new entry at the beginning of the chain
-        Entry<K, V> newEntry = new Entry<>(key, value);
-        newEntry.next = buckets[index];
-        buckets[index] = newEntry;
+        Entry<K, V> newEntry = new Entry<>(hash, key, value);
+        newEntry.next = table[index];
+        table[index] = newEntry;
         size++;
+
+        if (shouldTreeify(chainLength + 1)) {
+            treeify(table, index);
+        }
+        afterInsert();
+    }
+
+
+    private void afterInsert() {
+        advanceResize();
+        checkLoad();
+    }
+
+
+    private void checkLoad() {
+        // Start a resize once the load factor is exceeded; the entries move over
+        // a few buckets at a time on the following put and remove calls
+        if (size >= capacity * LOAD_FACTOR && capacity < MAXIMUM_CAPACITY) {
+            startResize();
+        }
     }
 
 
     public V get(K key) {
+        Entry<K, V> entry = findEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+
+    // The table holding the key's bucket: the old one until that bucket has migrated
+    private Entry<K, V>[] tableFor(int hash) {
+        if (oldBuckets != null && oldBuckets[hash & (oldCapacity - 1)] != null) {
+            return oldBuckets;
+        }
+        return buckets;
+    }
+
+
+    private Entry<K, V> findEntry(K key) {
         if (key == null) return null;
 
-        int index = hash(key);
-        Entry<K, V> entry = buckets[index];
+        int hash = hash(key);
+        Entry<K, V>[] table = tableFor(hash);
+        Entry<K, V> entry = table[hash & (table.length - 1)];
+
+        if (entry instanceof TreeBin) {
+            return findTreeNode((TreeBin<K, V>) entry, hash, key);
+        }
 
         while (entry != null) {
-            if (entry.key.equals(key)) {
-                return entry.value;
+            if (entry.hash == hash && entry.key.equals(key)) {
+                return entry;
             }
             entry = entry.next;
         }
@@ -98,20 +238,39 @@ public class CustomHashMap<K, V> {
     public void remove(K key) {
         if (key == null) return;
 
-        int index = hash(key);
-        Entry<K, V> entry = buckets[index];
-        Entry<K, V> prev = null;
+        // Unlinks the key from whichever table holds it, in the same walk that finds it
+        int hash = hash(key);
+        Entry<K, V>[] table = tableFor(hash);
+        int index = hash & (table.length - 1);
+        Entry<K, V> entry = table[index];
+
+        if (entry instanceof TreeBin) {
+            TreeBin<K, V> bin = (TreeBin<K, V>) entry;
+            TreeNode<K, V> node = (TreeNode<K, V>) findTreeNode(bin, hash, key);
+            if (node == null) return;
+            modCount++;
+            removeTreeNode(bin, node);
+            size--;
+            if (bin.count <= UNTREEIFY_THRESHOLD) {
+                untreeify(table, index);
+            }
+            advanceResize();
+            return;
+        }
 
+        Entry<K, V> prev = null;
         while (entry != null) {
-            if (entry.key.equals(key)) {
+            if (entry.hash == hash && entry.key.equals(key)) {
+                modCount++;
                 if (prev == null) {
                     // Removing first entry in chain
-                    buckets[index] = entry.next;
+                    table[index] = entry.next;
                 } else {
                     // Removing entry in middle/end of chain
                     prev.next = entry.next;
                 }
                 size--;
+                advanceResize();
                 return;
             }
             prev = entry;
@@ -119,23 +278,269 @@ public class CustomHashMap<K, V> {
         }
     }
 
+
+    // Every structural change moves a few more buckets of a running resize
+    private void advanceResize() {
+        if (oldBuckets != null) {
+            migrateStep();
+        }
+    }
+
+
     @SuppressWarnings("unchecked")
-    private void resize() {
-        Entry<K, V>[] oldBuckets = buckets;
-        int oldCapacity = capacity;
+    private void startResize() {
+        if (oldBuckets != null) {
+            // Previous resize still running; finish it before doubling again
+            while (oldBuckets != null) {
+                migrateStep();
+            }
+        }
+
+        oldBuckets = buckets;
+        oldCapacity = capacity;
+        migrationIndex = 0;
 
         capacity *= 2;
         buckets = new Entry[capacity];
-        size = 0;
+    }
 
-        // Rehash all entries
-        for (int i = 0; i < oldCapacity; i++) {
-            Entry<K, V> entry = oldBuckets[i];
-            while (entry != null) {
-                put(entry.key, entry.value);
-                entry = entry.next;
+
+    private void migrateStep() {
+        int end = Math.min(migrationIndex + MIGRATION_STEP, oldCapacity);
+        for (int i = migrationIndex; i < end; i++) {
+            if (oldBuckets[i] != null) {
+                migrateBucket(i);
+            }
+        }
+        migrationIndex = end;
+
+        if (migrationIndex == oldCapacity) {
+            oldBuckets = null;
+            oldCapacity = 0;
+            migrationIndex = 0;
+        }
+    }
+
+
+    private void migrateBucket(int oldIndex) {
+        // With power-of-two tables an old bucket splits into exactly two new ones:
+        // the same index, or the same index plus the old capacity
+        Entry<K, V> entry = chainStart(oldBuckets[oldIndex]);
+        oldBuckets[oldIndex] = null;
+
+        int lowCount = 0;
+        int highCount = 0;
+        while (entry != null) {
+            // Relink the existing entries instead of re-putting them
+            Entry<K, V> next = entry.next;
+            int index = entry.hash & (capacity - 1);
+            entry.next = buckets[index];
+            buckets[index] = entry;
+            if (index == oldIndex) {
+                lowCount++;
+            } else {
+                highCount++;
+            }
+            entry = next;
+        }
+
+        if (lowCount >= TREEIFY_THRESHOLD) {
+            treeify(buckets, oldIndex);
+        }
+        if (highCount >= TREEIFY_THRESHOLD) {
+            treeify(buckets, oldIndex + oldCapacity);
+        }
+    }
+
+
+    // A chain whose keys cannot be ordered stays a chain, so retrying on every insert
+    // would rescan it each time; retry only when its length reaches a power of two
+    private static boolean shouldTreeify(int chainLength) {
+        return chainLength >= TREEIFY_THRESHOLD && (chainLength & (chainLength - 1)) == 0;
+    }
+
+
+    private void treeify(Entry<K, V>[] table, int index) {
+        Entry<K, V> entry = table[index];
+
+        // Only keys of one Comparable class can be ordered inside a bucket
+        Class<?> keyClass = entry.key.getClass();
+        if (!Comparable.class.isAssignableFrom(keyClass)) return;
+        for (Entry<K, V> e = entry; e != null; e = e.next) {
+            if (e.key.getClass() != keyClass) return;
+        }
+
+        TreeBin<K, V> bin = new TreeBin<>(keyClass);
+        for (Entry<K, V> e = entry; e != null; e = e.next) {
+            TreeNode<K, V> node = new TreeNode<>(e.hash, e.key, e.value);
+            if (!insertTreeNode(bin, node)) {
+                // compareTo disagrees with equals for these keys; keep the chain
+                return;
+            }
+        }
+        table[index] = bin;
+    }
+
+
+    private void untreeify(Entry<K, V>[] table, int index) {
+        // The node list is already a valid chain
+        TreeBin<K, V> bin = (TreeBin<K, V>) table[index];
+        table[index] = bin.first;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(int hash1, Object key1, int hash2, Object key2) {
+        if (hash1 != hash2) {
+            return hash1 < hash2 ? -1 : 1;
+        }
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
+
+    private Entry<K, V> findTreeNode(TreeBin<K, V> bin, int hash, K key) {
+        if (key.getClass() != bin.keyClass) return null;
+
+        TreeNode<K, V> node = bin.root;
+        while (node != null) {
+            int cmp = compareKeys(hash, key, node.hash, node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node.key.equals(key) ? node : null;
             }
         }
+        return null;
+    }
+
+
+    private boolean insertTreeNode(TreeBin<K, V> bin, TreeNode<K, V> node) {
+        // Reject keys that compare equal to a node without being equal to it
+        TreeNode<K, V> current = bin.root;
+        while (current != null) {
+            int cmp = compareKeys(node.hash, node.key, current.hash, current.key);
+            if (cmp == 0) return false;
+            current = cmp < 0 ? current.left : current.right;
+        }
+
+        bin.root = insertAvl(bin.root, node);
+
+        node.next = bin.first;
+        if (bin.first != null) {
+            bin.first.prev = node;
+        }
+        bin.first = node;
+        bin.count++;
+        return true;
+    }
+
+
+    private void removeTreeNode(TreeBin<K, V> bin, TreeNode<K, V> node) {
+        bin.root = removeAvl(bin.root, node);
+
+        if (node.prev == null) {
+            bin.first = (TreeNode<K, V>) node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next != null) {
+            ((TreeNode<K, V>) node.next).prev = node.prev;
+        }
+        bin.count--;
+    }
+
+
+    private static <K, V> int height(TreeNode<K, V> node) {
+        return node == null ? 0 : node.height;
+    }
+
+
+    private static <K, V> void updateHeight(TreeNode<K, V> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+
+    private static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+        TreeNode<K, V> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+
+    private static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+        TreeNode<K, V> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+
+    private static <K, V> TreeNode<K, V> rebalance(TreeNode<K, V> node) {
+        updateHeight(node);
+        int balance = height(node.left) - height(node.right);
+
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+
+    private static <K, V> TreeNode<K, V> insertAvl(TreeNode<K, V> root, TreeNode<K, V> node) {
+        if (root == null) {
+            node.left = null;
+            node.right = null;
+            node.height = 1;
+            return node;
+        }
+        if (compareKeys(node.hash, node.key, root.hash, root.key) < 0) {
+            root.left = insertAvl(root.left, node);
+        } else {
+            root.right = insertAvl(root.right, node);
+        }
+        return rebalance(root);
+    }
+
+
+    private static <K, V> TreeNode<K, V> removeAvl(TreeNode<K, V> root, TreeNode<K, V> node) {
+        if (root == null) return null;
+
+        if (root == node) {
+            if (root.left == null) return root.right;
+            if (root.right == null) return root.left;
+
+            // Replace the node with its in-order successor
+            TreeNode<K, V> successor = root.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeAvl(root.right, successor);
+            successor.left = root.left;
+            return rebalance(successor);
+        }
+
+        if (compareKeys(node.hash, node.key, root.hash, root.key) < 0) {
+            root.left = removeAvl(root.left, node);
+        } else {
+            root.right = removeAvl(root.right, node);
+        }
+        return rebalance(root);
     }
 
 
@@ -144,27 +549,80 @@ public class CustomHashMap<K, V> {
     }
 
 
-    public Set<K> keySet() {
-        Set<K> keys = new HashSet<>();
-        for (Entry<K, V> entry : buckets) {
-            while (entry != null) {
-                keys.add(entry.key);
-                entry = entry.next;
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int t = 0; t < 2; t++) {
+            Entry<K, V>[] table = t == 0 ? oldBuckets : buckets;
+            if (table == null) continue;
+            for (Entry<K, V> bucket : table) {
+                for (Entry<K, V> entry = chainStart(bucket); entry != null; entry = entry.next) {
+                    action.accept(entry.key, entry.value);
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                }
             }
         }
-        return keys;
     }
 
 
-    public Collection<V> values() {
-        List<V> values = new ArrayList<>();
-        for (Entry<K, V> entry : buckets) {
-            while (entry != null) {
-                values.add(entry.value);
-                entry = entry.next;
+    public MapCursor<K, V> cursor() {
+        return new Cursor();
+    }
+
+
+    private final class Cursor implements MapCursor<K, V> {
+        private Entry<K, V>[] oldTable;
+        private Entry<K, V>[] table;
+        private boolean inOldTable;
+        private int index;
+        private Entry<K, V> current;
+        private int expectedModCount;
+
+        Cursor() {
+            reset();
+        }
+
+        public void reset() {
+            oldTable = oldBuckets;
+            table = buckets;
+            inOldTable = oldTable != null;
+            index = 0;
+            current = null;
+            expectedModCount = modCount;
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (current != null) {
+                current = current.next;
             }
+            while (current == null) {
+                Entry<K, V>[] scanning = inOldTable ? oldTable : table;
+                if (index >= scanning.length) {
+                    if (!inOldTable) return false;
+                    inOldTable = false;
+                    index = 0;
+                    continue;
+                }
+                current = chainStart(scanning[index++]);
+            }
+            return true;
+        }
+
+        public K key() {
+            return current.key;
+        }
+
+        public V value() {
+            return current.value;
+        }
+
+        public Map.Entry<K, V> entry() {
+            return current;
         }
-        return values;
     }
 
 
@@ -190,26 +648,47 @@ public class CustomHashMap<K, V> {
 
     @SuppressWarnings("unchecked")
     public void clear() {
+        modCount++;
         buckets = new Entry[capacity];
+        oldBuckets = null;
+        oldCapacity = 0;
+        migrationIndex = 0;
         size = 0;
     }
 
 
+    public boolean isResizing() {
+        return oldBuckets != null;
+    }
+
+
     public String getStatistics() {
         int maxChainLength = 0;
         int nonEmptyBuckets = 0;
         int totalChainLength = 0;
-
-        for (Entry<K, V> entry : buckets) {
-            if (entry != null) {
-                nonEmptyBuckets++;
-                int chainLength = 0;
-                while (entry != null) {
-                    chainLength++;
-                    entry = entry.next;
+        int treeBuckets = 0;
+        int maxTreeHeight = 0;
+
+        for (int t = 0; t < 2; t++) {
+            Entry<K, V>[] table = t == 0 ? oldBuckets : buckets;
+            if (table == null) continue;
+            for (Entry<K, V> bucket : table) {
+                if (bucket instanceof TreeBin) {
+                    // Trees are reported by size and height rather than as chains
+                    TreeBin<K, V> bin = (TreeBin<K, V>) bucket;
+                    nonEmptyBuckets++;
+                    treeBuckets++;
+                    totalChainLength += bin.count;
+                    maxTreeHeight = Math.max(maxTreeHeight, height(bin.root));
+                } else if (bucket != null) {
+                    nonEmptyBuckets++;
+                    int chainLength = 0;
+                    for (Entry<K, V> entry = bucket; entry != null; entry = entry.next) {
+                        chainLength++;
+                    }
+                    maxChainLength = Math.max(maxChainLength, chainLength);
+                    totalChainLength += chainLength;
                 }
-                maxChainLength = Math.max(maxChainLength, chainLength);
-                totalChainLength += chainLength;
             }
         }
 
@@ -221,8 +700,12 @@ public class CustomHashMap<K, V> {
                         "  Load Factor: %.3f\n" +
                         "  Non-empty Buckets: %d\n" +
                         "  Max Chain Length: %d\n" +
-                        "  Avg Chain Length: %.2f",
+                        "  Avg Chain Length: %.2f\n" +
+                        "  Treeified Buckets: %d (max height %d)\n" +
+                        "  Resize In Progress: %s",
                 size, capacity, getLoadFactor(),
-                nonEmptyBuckets, maxChainLength, avgChainLength);
+                nonEmptyBuckets, maxChainLength, avgChainLength,
+                treeBuckets, maxTreeHeight,
+                oldBuckets != null ? String.format("yes (%d/%d buckets moved)", migrationIndex, oldCapacity) : "no");
     }
-}
\ No newline at end of file
+}
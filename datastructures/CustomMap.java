@@ -0,0 +1,40 @@
+package datastructures;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+
+public interface CustomMap<K, V> {
+
+    void put(K key, V value);
+
+    V get(K key);
+
+    void remove(K key);
+
+    boolean containsKey(K key);
+
+    Set<K> keySet();
+
+    Collection<V> values();
+
+    Set<Map.Entry<K, V>> entrySet();
+
+    void forEach(BiConsumer<? super K, ? super V> action);
+
+    MapCursor<K, V> cursor();
+
+    int size();
+
+    boolean isEmpty();
+
+    int getCapacity();
+
+    double getLoadFactor();
+
+    void clear();
+
+    String getStatistics();
+}
@@ -0,0 +1,180 @@
+package datastructures;
+
+import adt.Flight;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+
+// Flights of each airport bucketed by departure day (epoch day), so a dated search
+// reads the buckets of its days instead of every date in the airport's list. Days
+// before the horizon are evicted in O(1) by moving the horizon: readers stop seeing
+// them at once, and their buckets are dropped lazily, when the airport is next written
+// to or when the compaction cursor, advanced one airport per write, comes round to it.
+// Writers hold the graph's snapshotLock; readers take no lock, and a concurrent graph
+// publishes copies of the per-airport maps, stored atomically as in its pair index. A flight is
+// filed under its date when added; the graph moves it when the date changes.
+final class DatedFlightIndex {
+    private final boolean concurrent;
+    private final Supplier<List<Flight>> newList;
+    private volatile AtomicReferenceArray<IntHashMap<List<Flight>>> byAirport;
+
+    // Per airport, no bucket exists for a day before this one
+    private int[] earliestDay;
+    private volatile int horizon = Integer.MIN_VALUE;
+    private int compactionCursor;
+
+
+    DatedFlightIndex(boolean concurrent, Supplier<List<Flight>> newList) {
+        this.concurrent = concurrent;
+        this.newList = newList;
+        byAirport = new AtomicReferenceArray<>(16);
+        earliestDay = new int[16];
+    }
+
+
+    static int dayOf(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+
+    // Flights leaving (or arriving, for the incoming index) on the day, or null
+    List<Flight> get(int airportId, int day) {
+        AtomicReferenceArray<IntHashMap<List<Flight>>> index = byAirport;
+        if (day < horizon || airportId < 0 || airportId >= index.length()) return null;
+        IntHashMap<List<Flight>> days = index.get(airportId);
+        return days == null ? null : days.get(day);
+    }
+
+
+    void addAirport(int airportId) {
+        AtomicReferenceArray<IntHashMap<List<Flight>>> index = byAirport;
+        if (airportId >= index.length()) {
+            AtomicReferenceArray<IntHashMap<List<Flight>>> grown =
+                    new AtomicReferenceArray<>(Math.max(airportId + 1, index.length() * 2));
+            for (int i = 0; i < index.length(); i++) {
+                grown.set(i, index.get(i));
+            }
+            index = grown;
+            earliestDay = Arrays.copyOf(earliestDay, index.length());
+        }
+        index.set(airportId, new IntHashMap<>(4));
+        earliestDay[airportId] = Integer.MAX_VALUE;
+        byAirport = index;
+    }
+
+
+    void removeAirport(int airportId) {
+        publish(airportId, null);
+        earliestDay[airportId] = Integer.MAX_VALUE;
+    }
+
+
+    // Flights without a date, or already behind the horizon, are not indexed
+    void add(int airportId, Flight flight) {
+        if (flight.getFlightDate() == null || byAirport.get(airportId) == null) return;
+        int day = dayOf(flight.getFlightDate());
+        if (day < horizon) return;
+
+        compact(airportId);
+        compact(nextCompactionTarget());
+
+        IntHashMap<List<Flight>> days = byAirport.get(airportId);
+        List<Flight> flights = days.get(day);
+        if (flights == null) {
+            flights = newList.get();
+            flights.add(flight);
+            if (concurrent) {
+                days = days.copy();
+            }
+            days.put(day, flights);
+            publish(airportId, days);
+            earliestDay[airportId] = Math.min(earliestDay[airportId], day);
+        } else {
+            flights.add(flight);
+        }
+    }
+
+
+    void remove(int airportId, Flight flight) {
+        remove(airportId, flight, flight.getFlightDate());
+    }
+
+
+    // Removes the flight from the bucket of the given date, the one it was filed under
+    // if its date has changed since; false if it was not there
+    boolean remove(int airportId, Flight flight, LocalDate date) {
+        IntHashMap<List<Flight>> days = byAirport.get(airportId);
+        if (days == null || date == null) return false;
+        int day = dayOf(date);
+        List<Flight> flights = days.get(day);
+        if (flights == null || !flights.remove(flight)) return false;
+        if (flights.isEmpty()) {
+            if (concurrent) {
+                days = days.copy();
+            }
+            days.remove(day);
+            publish(airportId, days);
+        }
+        return true;
+    }
+
+
+    // O(1): later reads skip the days before firstDay; their buckets go lazily
+    void evictBefore(LocalDate firstDay) {
+        int day = dayOf(firstDay);
+        if (day > horizon) {
+            horizon = day;
+        }
+    }
+
+
+    LocalDate getHorizon() {
+        return horizon == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(horizon);
+    }
+
+
+    private int nextCompactionTarget() {
+        compactionCursor = compactionCursor + 1 < byAirport.length() ? compactionCursor + 1 : 0;
+        return compactionCursor;
+    }
+
+
+    // Drops the airport's buckets for days before the horizon. Each day is walked once
+    // per airport, so the work adds up to the days the horizon has moved over.
+    private void compact(int airportId) {
+        IntHashMap<List<Flight>> days = byAirport.get(airportId);
+        int from = earliestDay[airportId];
+        int to = horizon;
+        if (days == null || from >= to) return;
+
+        if (concurrent) {
+            days = days.copy();
+        }
+        for (int day = from; day < to && !days.isEmpty(); day++) {
+            days.remove(day);
+        }
+        earliestDay[airportId] = days.isEmpty() ? Integer.MAX_VALUE : to;
+        publish(airportId, days);
+    }
+
+
+    // The atomic store orders the map's contents before it for lock-free readers
+    private void publish(int airportId, IntHashMap<List<Flight>> days) {
+        byAirport.set(airportId, days);
+    }
+
+
+    // Day buckets held, expired ones not yet compacted included
+    long getBucketCount() {
+        AtomicReferenceArray<IntHashMap<List<Flight>>> index = byAirport;
+        long buckets = 0;
+        for (int i = 0; i < index.length(); i++) {
+            IntHashMap<List<Flight>> days = index.get(i);
+            if (days != null) buckets += days.size();
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,267 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// One-to-all cheapest fares: a single traversal from the origin that finds, for every
+// reachable airport, the cheapest itinerary by current fare with seats for the party.
+//  - With a stop cap the search runs in rounds, as in RAPTOR: round k relaxes the
+//    flights out of the airports whose fare improved in round k - 1, so after
+//    maxStops + 1 rounds every fare is the cheapest over at most that many legs.
+//  - Without one it is plain Dijkstra, settling each airport once in fare order.
+// Fares above the price cap are dropped as soon as they appear, which also keeps the
+// search from spreading beyond the airports the caller can afford.
+public final class ExploreSearch {
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final SearchCounter lastRelaxed = new SearchCounter();
+
+
+    // Best label per airport id; an entry counts only when its stamp matches
+    private static final class Scratch {
+        Label[] best = new Label[0];
+        int[] stamp = new int[0];
+        int[] roundStamp = new int[0];
+        int epoch;
+        int round;
+
+        void ensureCapacity(int size) {
+            if (best.length < size) {
+                int newSize = Math.max(size, best.length * 2);
+                best = new Label[newSize];
+                stamp = new int[newSize];
+                roundStamp = new int[newSize];
+                epoch = 0;
+                round = 0;
+            }
+        }
+
+        int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+
+        // Rounds of all searches share one counter, so improved airports are marked
+        // per round without clearing anything
+        int nextRound() {
+            if (++round == 0) {
+                Arrays.fill(roundStamp, 0);
+                round = 1;
+            }
+            return round;
+        }
+    }
+
+
+    private static final class Label {
+        final int airportId;
+        final double fare;
+        final int legs;
+        final Flight via;
+        final Label parent;
+
+        Label(int airportId, double fare, int legs, Flight via, Label parent) {
+            this.airportId = airportId;
+            this.fare = fare;
+            this.legs = legs;
+            this.via = via;
+            this.parent = parent;
+        }
+    }
+
+
+    // Cheapest way found to one airport; the Route is only assembled when asked for
+    public static final class Destination {
+        private final String airportCode;
+        private final double fare;
+        private final int legs;
+        private final Label label;
+
+        private Destination(String airportCode, Label label) {
+            this.airportCode = airportCode;
+            this.fare = label.fare;
+            this.legs = label.legs;
+            this.label = label;
+        }
+
+        public String getAirportCode() {
+            return airportCode;
+        }
+
+        // Current fare per passenger, summed over the legs
+        public double getFare() {
+            return fare;
+        }
+
+        public int getLegs() {
+            return legs;
+        }
+
+        public int getStops() {
+            return legs - 1;
+        }
+
+        public Route getRoute() {
+            Flight[] flights = new Flight[legs];
+            for (Label l = label; l.via != null; l = l.parent) {
+                flights[l.legs - 1] = l.via;
+            }
+            return new Route(Arrays.asList(flights));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: $%.2f, %d stop(s)", airportCode, fare, getStops());
+        }
+    }
+
+
+    ExploreSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    // Every airport reachable within maxStops (Integer.MAX_VALUE for no limit) at a
+    // fare of at most maxPrice, cheapest first
+    public List<Destination> explore(String originCode, int passengerCount, int maxStops, double maxPrice) {
+        if (originCode == null) {
+            throw new IllegalArgumentException("Origin airport code cannot be null");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("Max stops cannot be negative");
+        }
+        if (maxPrice < 0) {
+            throw new IllegalArgumentException("Max price cannot be negative");
+        }
+
+        int originId = graph.airportId(originCode);
+        if (originId < 0) {
+            return new ArrayList<>();
+        }
+
+        Scratch s = scratch.get();
+        s.ensureCapacity(graph.airportIdBound());
+        int stamp = s.nextEpoch();
+        Label start = new Label(originId, 0.0, 0, null, null);
+        s.best[originId] = start;
+        s.stamp[originId] = stamp;
+
+        List<Label> reached = new ArrayList<>();
+        if (maxStops == Integer.MAX_VALUE) {
+            searchByFare(s, stamp, start, passengerCount, maxPrice, reached);
+        } else {
+            searchByRounds(s, stamp, start, passengerCount, maxStops + 1, maxPrice, reached);
+        }
+
+        AirportRegistry registry = graph.registry();
+        List<Destination> destinations = new ArrayList<>(reached.size());
+        for (Label label : reached) {
+            destinations.add(new Destination(registry.getAirport(label.airportId).getCode(), label));
+        }
+        destinations.sort(Comparator.comparingDouble(Destination::getFare)
+                .thenComparingInt(Destination::getLegs));
+        return destinations;
+    }
+
+
+    // Dijkstra over current fares; each airport is reported once, when it is settled
+    private void searchByFare(Scratch s, int stamp, Label start, int passengerCount, double maxPrice,
+                              List<Label> reached) {
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator
+                .comparingDouble((Label l) -> l.fare)
+                .thenComparingInt(l -> l.legs));
+        queue.add(start);
+        long relaxed = 0;
+
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            if (s.best[label.airportId] != label) continue; // superseded by a cheaper label
+            if (label != start) reached.add(label);
+
+            List<Flight> outgoing = graph.outgoing(label.airportId);
+            if (outgoing == null) continue;
+            for (Flight flight : outgoing) {
+                if (flight.getAvailableSeats() < passengerCount) continue;
+                relaxed++;
+                Label next = relax(s, stamp, label, flight, maxPrice);
+                if (next != null) queue.add(next);
+            }
+        }
+        lastRelaxed.set(relaxed);
+    }
+
+
+    // Bellman-Ford limited to maxLegs rounds. Each round only reads labels made in the
+    // round before, so no itinerary grows by more than one leg per round.
+    private void searchByRounds(Scratch s, int stamp, Label start, int passengerCount, int maxLegs,
+                                double maxPrice, List<Label> reached) {
+        List<Label> frontier = new ArrayList<>(List.of(start));
+        List<Integer> improved = new ArrayList<>();
+        List<Integer> reachedIds = new ArrayList<>();
+        long relaxed = 0;
+
+        for (int legs = 1; legs <= maxLegs && !frontier.isEmpty(); legs++) {
+            int round = s.nextRound();
+            improved.clear();
+            for (Label label : frontier) {
+                List<Flight> outgoing = graph.outgoing(label.airportId);
+                if (outgoing == null) continue;
+                for (Flight flight : outgoing) {
+                    if (flight.getAvailableSeats() < passengerCount) continue;
+                    relaxed++;
+                    boolean seen = s.stamp[graph.destinationId(flight)] == stamp;
+                    Label next = relax(s, stamp, label, flight, maxPrice);
+                    if (next == null) continue;
+                    if (!seen) reachedIds.add(next.airportId);
+                    if (s.roundStamp[next.airportId] != round) {
+                        s.roundStamp[next.airportId] = round;
+                        improved.add(next.airportId);
+                    }
+                }
+            }
+
+            // The labels this round left behind, read only by the next one
+            frontier = new ArrayList<>(improved.size());
+            for (int airportId : improved) {
+                frontier.add(s.best[airportId]);
+            }
+        }
+        lastRelaxed.set(relaxed);
+
+        for (int airportId : reachedIds) {
+            reached.add(s.best[airportId]);
+        }
+    }
+
+
+    // Label for flying on from a label's airport, or null if it beats nothing there
+    private Label relax(Scratch s, int stamp, Label label, Flight flight, double maxPrice) {
+        int next = graph.destinationId(flight);
+        double fare = label.fare + flight.getCurrentPrice();
+        if (fare > maxPrice) return null;
+
+        if (s.stamp[next] == stamp) {
+            Label best = s.best[next];
+            if (fare > best.fare || (fare == best.fare && label.legs + 1 >= best.legs)) return null;
+        }
+        Label improved = new Label(next, fare, label.legs + 1, flight, label);
+        s.stamp[next] = stamp;
+        s.best[next] = improved;
+        return improved;
+    }
+
+
+    // Flights examined by the most recent search, for benchmarking
+    public long getLastRelaxedCount() {
+        return lastRelaxed.get();
+    }
+}
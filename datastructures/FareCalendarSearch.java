@@ -0,0 +1,320 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+
+// Cheapest fare per departure day over a window of days, from one backward traversal
+// instead of a search per day. Each round extends, by one leg toward the front, the
+// cheapest ways to finish the journey from every flight: round 1 prices the flights
+// into the destination, round k the flights that connect onto a flight priced in round
+// k - 1. A flight is priced once for the whole window, so the days share every leg
+// they have in common, and the origin's flights on each day then read their fares off.
+// Connections follow Flight.connectsTo: at most Flight.MAX_LAYOVER_DAYS after the
+// landing day, and after the minimum connection time between scheduled flights.
+// Flights are read from the graph's day buckets, only for the days a journey of the
+// window can use; this relies on flights landing at most a day after they leave.
+public final class FareCalendarSearch {
+    private final FlightGraph graph;
+    private final SearchCounter lastRelaxed = new SearchCounter();
+
+
+    // One way found to finish the journey starting with a flight
+    private static final class Label {
+        final Flight flight;
+        final int originId;
+        final double fare;
+        final int legs;
+        final Label next;
+        // Set once another label of the flight beats this one, which then is not extended
+        boolean beaten;
+
+        Label(Flight flight, int originId, double fare, int legs, Label next) {
+            this.flight = flight;
+            this.originId = originId;
+            this.fare = fare;
+            this.legs = legs;
+            this.next = next;
+        }
+
+        Route toRoute() {
+            List<Flight> flights = new ArrayList<>(legs);
+            for (Label l = this; l != null; l = l.next) {
+                flights.add(l.flight);
+            }
+            return new Route(flights);
+        }
+    }
+
+
+    // Round-trip fares for every pair of outbound and return days. A pair counts when
+    // the return leaves on a later day than the day the outbound lands.
+    public static final class FareMatrix {
+        private final LocalDate outboundStart;
+        private final LocalDate returnStart;
+        private final SortedMap<LocalDate, Route> outbound;
+        private final SortedMap<LocalDate, Route> inbound;
+        private final double[][] fares;
+
+        private FareMatrix(LocalDate outboundStart, LocalDate outboundEnd, LocalDate returnStart,
+                           LocalDate returnEnd, SortedMap<LocalDate, Route> outbound,
+                           SortedMap<LocalDate, Route> inbound) {
+            this.outboundStart = outboundStart;
+            this.returnStart = returnStart;
+            this.outbound = outbound;
+            this.inbound = inbound;
+            this.fares = new double[daysBetween(outboundStart, outboundEnd) + 1]
+                    [daysBetween(returnStart, returnEnd) + 1];
+
+            for (double[] row : fares) {
+                Arrays.fill(row, Double.NaN);
+            }
+            for (Map.Entry<LocalDate, Route> out : outbound.entrySet()) {
+                LocalDate landed = out.getValue().getFlights().getLast().getArrivalDate();
+                int row = daysBetween(outboundStart, out.getKey());
+                for (Map.Entry<LocalDate, Route> back : inbound.tailMap(landed.plusDays(1)).entrySet()) {
+                    fares[row][daysBetween(returnStart, back.getKey())] =
+                            out.getValue().getTotalPrice() + back.getValue().getTotalPrice();
+                }
+            }
+        }
+
+        public List<LocalDate> getOutboundDays() {
+            return days(outboundStart, fares.length);
+        }
+
+        public List<LocalDate> getReturnDays() {
+            return days(returnStart, fares[0].length);
+        }
+
+        // Fare per passenger for the pair, or NaN when no pair of routes fits those days
+        public double getFare(LocalDate outboundDay, LocalDate returnDay) {
+            int row = daysBetween(outboundStart, outboundDay);
+            int column = daysBetween(returnStart, returnDay);
+            if (row < 0 || row >= fares.length || column < 0 || column >= fares[0].length) {
+                return Double.NaN;
+            }
+            return fares[row][column];
+        }
+
+        public Route getOutboundRoute(LocalDate day) {
+            return outbound.get(day);
+        }
+
+        public Route getReturnRoute(LocalDate day) {
+            return inbound.get(day);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("out \\ back");
+            for (LocalDate day : getReturnDays()) {
+                sb.append(String.format(" %9s", day.toString().substring(5)));
+            }
+            for (int row = 0; row < fares.length; row++) {
+                sb.append(String.format("%n%10s", outboundStart.plusDays(row).toString().substring(5)));
+                for (double fare : fares[row]) {
+                    sb.append(Double.isNaN(fare) ? String.format(" %9s", "-") : String.format(" %9.2f", fare));
+                }
+            }
+            return sb.toString();
+        }
+
+        private static List<LocalDate> days(LocalDate start, int count) {
+            List<LocalDate> days = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                days.add(start.plusDays(i));
+            }
+            return days;
+        }
+    }
+
+
+    FareCalendarSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    // Cheapest route of at most maxStops stops leaving on each day from firstDay to
+    // lastDay with seats for the party; days without one are left out
+    public SortedMap<LocalDate, Route> cheapestByDay(String originCode, String destCode, LocalDate firstDay,
+                                                     LocalDate lastDay, int passengerCount, int maxStops) {
+        validate(originCode, destCode, firstDay, lastDay, passengerCount, maxStops);
+
+        SortedMap<LocalDate, Route> calendar = new TreeMap<>();
+        int originId = graph.airportId(originCode);
+        int destId = graph.airportId(destCode);
+        if (originId < 0 || destId < 0 || originId == destId) {
+            return calendar;
+        }
+
+        Map<Flight, List<Label>> labels = priceFlights(originId, destId, firstDay, lastDay, passengerCount,
+                maxStops);
+
+        Map<LocalDate, Label> cheapest = new HashMap<>();
+        for (int day = DatedFlightIndex.dayOf(firstDay); day <= DatedFlightIndex.dayOf(lastDay); day++) {
+            List<Flight> outgoing = graph.outgoingOn(originId, day);
+            if (outgoing == null) continue;
+            for (Flight flight : outgoing) {
+                List<Label> kept = labels.get(flight);
+                if (kept == null) continue;
+                for (Label label : kept) {
+                    cheapest.merge(flight.getFlightDate(), label, (a, b) ->
+                            a.fare < b.fare || (a.fare == b.fare && a.legs <= b.legs) ? a : b);
+                }
+            }
+        }
+        for (Map.Entry<LocalDate, Label> entry : cheapest.entrySet()) {
+            calendar.put(entry.getKey(), entry.getValue().toRoute());
+        }
+        return calendar;
+    }
+
+
+    // Outbound and return calendars, one pass each, combined into a fare per day pair
+    public FareMatrix roundTrip(String originCode, String destCode, LocalDate outboundFirstDay,
+                                LocalDate outboundLastDay, LocalDate returnFirstDay, LocalDate returnLastDay,
+                                int passengerCount, int maxStops) {
+        SortedMap<LocalDate, Route> outbound = cheapestByDay(originCode, destCode, outboundFirstDay,
+                outboundLastDay, passengerCount, maxStops);
+        long relaxed = lastRelaxed.get();
+        SortedMap<LocalDate, Route> inbound = cheapestByDay(destCode, originCode, returnFirstDay,
+                returnLastDay, passengerCount, maxStops);
+        lastRelaxed.add(relaxed);
+        return new FareMatrix(outboundFirstDay, outboundLastDay, returnFirstDay, returnLastDay, outbound, inbound);
+    }
+
+
+    private static void validate(String originCode, String destCode, LocalDate firstDay, LocalDate lastDay,
+                                 int passengerCount, int maxStops) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (firstDay == null || lastDay == null) {
+            throw new IllegalArgumentException("Dates cannot be null");
+        }
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Last day cannot be before first day");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("Max stops cannot be negative");
+        }
+    }
+
+
+    // Onward fares for every flight that can start or continue a journey of at most
+    // maxStops + 1 legs leaving within the window, by rounds as in ExploreSearch.
+    // Journeys never visit an airport twice, so a flight keeps each label that none of
+    // its others beats: a dearer label through fewer airports may still be extended
+    // where the cheapest one would revisit an airport.
+    private Map<Flight, List<Label>> priceFlights(int originId, int destId, LocalDate firstDay, LocalDate lastDay,
+                                                  int passengerCount, int maxStops) {
+        // A leg leaves at most MAX_LAYOVER_DAYS after the previous one lands, and flights
+        // land at most a day after they leave, so later flights end no journey of the window
+        LocalDate horizon = lastDay.plusDays((Flight.MAX_LAYOVER_DAYS + 1L) * Math.min(maxStops, 366));
+        Map<Flight, List<Label>> labels = new IdentityHashMap<>();
+        List<Label> frontier = new ArrayList<>();
+        long relaxed = 0;
+
+        for (int day = DatedFlightIndex.dayOf(firstDay); day <= DatedFlightIndex.dayOf(horizon); day++) {
+            List<Flight> incoming = graph.incomingOn(destId, day);
+            if (incoming == null) continue;
+            for (Flight flight : incoming) {
+                if (!usable(flight, originId, destId, firstDay, horizon, passengerCount)) continue;
+                relaxed++;
+                Label label = new Label(flight, graph.originId(flight), flight.getCurrentPrice(), 1, null);
+                if (keep(labels, label)) frontier.add(label);
+            }
+        }
+
+        for (int legs = 2; legs <= maxStops + 1 && !frontier.isEmpty(); legs++) {
+            List<Label> extended = new ArrayList<>();
+            for (Label onward : frontier) {
+                int via = onward.originId;
+                // Journeys only pass through the origin at their start
+                if (via == originId || onward.beaten) continue;
+                // Flights that left up to a day before they could land in time for the connection
+                int leaves = DatedFlightIndex.dayOf(onward.flight.getFlightDate());
+                for (int day = leaves - Flight.MAX_LAYOVER_DAYS - 1; day <= leaves; day++) {
+                    List<Flight> arriving = graph.incomingOn(via, day);
+                    if (arriving == null) continue;
+                    for (Flight flight : arriving) {
+                        if (!usable(flight, originId, destId, firstDay, horizon, passengerCount)
+                                || !flight.connectsTo(onward.flight)) continue;
+                        int from = graph.originId(flight);
+                        if (passesThrough(onward, from)) continue;
+                        relaxed++;
+                        Label label = new Label(flight, from, flight.getCurrentPrice() + onward.fare, legs, onward);
+                        if (keep(labels, label)) extended.add(label);
+                    }
+                }
+            }
+            frontier = extended;
+        }
+        lastRelaxed.set(relaxed);
+        return labels;
+    }
+
+
+    // Adds the label to its flight's unless one of those beats it, and marks the ones it beats
+    private static boolean keep(Map<Flight, List<Label>> labels, Label label) {
+        List<Label> kept = labels.computeIfAbsent(label.flight, flight -> new ArrayList<>(1));
+        for (Label other : kept) {
+            if (beats(other, label)) return false;
+        }
+        kept.removeIf(other -> {
+            other.beaten = beats(label, other);
+            return other.beaten;
+        });
+        kept.add(label);
+        return true;
+    }
+
+
+    // Whether a costs no more, has no more legs and passes through no airport b avoids,
+    // so every flight that can precede b can precede a for a fare no higher
+    private static boolean beats(Label a, Label b) {
+        if (a.fare > b.fare || a.legs > b.legs) return false;
+        for (Label label = a; label != null; label = label.next) {
+            if (!passesThrough(b, label.originId)) return false;
+        }
+        return true;
+    }
+
+
+    // Whether the rest of the journey already leaves from the airport, so a flight from
+    // there would make it revisit one; chains hold at most maxStops + 1 labels
+    private static boolean passesThrough(Label onward, int airportId) {
+        for (Label label = onward; label != null; label = label.next) {
+            if (label.originId == airportId) return true;
+        }
+        return false;
+    }
+
+
+    private boolean usable(Flight flight, int originId, int destId, LocalDate firstDay, LocalDate horizon,
+                           int passengerCount) {
+        LocalDate date = flight.getFlightDate();
+        return date != null && !date.isBefore(firstDay) && !date.isAfter(horizon)
+                && flight.getAvailableSeats() >= passengerCount
+                && graph.originId(flight) != destId && graph.destinationId(flight) != originId;
+    }
+
+
+    private static int daysBetween(LocalDate from, LocalDate to) {
+        return (int) ChronoUnit.DAYS.between(from, to);
+    }
+
+
+    // Flights priced by the most recent calendar, for benchmarking
+    public long getLastRelaxedCount() {
+        return lastRelaxed.get();
+    }
+}
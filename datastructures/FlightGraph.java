@@ -4,19 +4,324 @@ import adt.Airport;
 import adt.Flight;
 import adt.Route;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 
 public class FlightGraph {
-    private CustomHashMap<String, Airport> airports;
-    private CustomHashMap<String, List<Flight>> adjacencyList;
+    private CustomMap<String, Airport> airports;
+    private CustomMap<String, List<Flight>> adjacencyList;
+    private final MapType mapType;
     private int totalFlights;
 
+    // Outgoing lists indexed by this graph's airport ids; the same list objects as in
+    // adjacencyList, so search paths resolve codes once and then use array lookups
+    private final AirportRegistry registry;
+    private volatile List<Flight>[] outgoingById;
+
+    // Reverse adjacency: flights arriving at each airport, indexed the same way
+    private volatile List<Flight>[] incomingById;
+
+    // Origin-destination index: per origin id, the flights to each destination id, so
+    // direct-flight lookups skip the origin's flights to other airports. Slots are replaced
+    // with atomic stores, so a reader never sees a destination map before it is complete
+    private volatile AtomicReferenceArray<IntHashMap<List<Flight>>> flightsByPair;
+
+    // The same flights bucketed by departure day, per origin and per destination, for
+    // searches over a date or date range; expired days are evicted from these alone
+    private final DatedFlightIndex outgoingByDay;
+    private final DatedFlightIndex incomingByDay;
+
+    // Persistent copy of the topology, kept only once snapshot() has been called;
+    // writers publish a new version under snapshotLock after each structural change
+    private final Object snapshotLock = new Object();
+    private volatile GraphSnapshot latestSnapshot;
+
+    // Filters over the airport codes and flight numbers, consulted before the maps so
+    // unknown keys are rejected after reading at most two filter buckets
+    private final CustomMap<String, List<Flight>> flightsByNumber;
+    private volatile CuckooFilter airportFilter;
+    private volatile CuckooFilter flightNumberFilter;
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+
+    // Search engines, created together on first use so the constructor never hands
+    // them a partly built graph
+    private volatile SearchEngines engines;
+
+    // Explicitly defined airport groups by lower-cased name; codes of airports removed
+    // since are skipped when a group is resolved
+    private final CustomMap<String, List<String>> airportGroups;
+
+    // Bumped under snapshotLock on every structural change, so derived tables can
+    // tell whether they were built from the current set of airports and flights
+    private volatile long topologyVersion;
+
+    // Bumped under snapshotLock only when an airport or an origin-destination pair comes
+    // or goes. Hop distances depend on nothing else, so another flight on a connected
+    // pair leaves the hop-distance index current.
+    private volatile long connectivityVersion;
+
+    // Subscribed to every flight added: counts base-price cuts, which fare bounds built
+    // earlier may no longer respect, and keeps the day buckets and the flight-number
+    // index in step with dates and numbers
+    private final FlightChanges flightChanges = new FlightChanges();
+
+    // Hop-distance index, built on first use and again after the topology changes
+    private volatile ContractionHierarchy hopIndex;
+
 
     public FlightGraph() {
-        airports = new CustomHashMap<>();
-        adjacencyList = new CustomHashMap<>();
+        this(MapType.CHAINING);
+    }
+
+
+    public FlightGraph(MapType mapType) {
+        if (mapType == null) {
+            throw new IllegalArgumentException("Map type cannot be null");
+        }
+        this.mapType = mapType;
+        airports = mapType.create();
+        adjacencyList = mapType.create();
         totalFlights = 0;
+        registry = new AirportRegistry();
+        outgoingById = newFlightListArray();
+        incomingById = newFlightListArray();
+        flightsByPair = new AtomicReferenceArray<>(16);
+        outgoingByDay = new DatedFlightIndex(mapType == MapType.CONCURRENT, this::newFlightList);
+        incomingByDay = new DatedFlightIndex(mapType == MapType.CONCURRENT, this::newFlightList);
+        flightsByNumber = mapType.create();
+        airportGroups = mapType.create();
+        airportFilter = new CuckooFilter(64);
+        flightNumberFilter = new CuckooFilter(256);
+    }
+
+
+    private static final class SearchEngines {
+        final MultiStopRouteSearch multiStopSearch;
+        final CheapestFareSearch cheapestFareSearch;
+        final ParetoRouteSearch paretoSearch;
+        final BidirectionalPathSearch pathSearch;
+        final ExploreSearch exploreSearch;
+        final GroupRouteSearch groupSearch;
+        final FareCalendarSearch fareCalendarSearch;
+
+        SearchEngines(FlightGraph graph) {
+            multiStopSearch = new MultiStopRouteSearch(graph);
+            cheapestFareSearch = new CheapestFareSearch(graph);
+            paretoSearch = new ParetoRouteSearch(graph);
+            pathSearch = new BidirectionalPathSearch(graph);
+            exploreSearch = new ExploreSearch(graph);
+            groupSearch = new GroupRouteSearch(graph);
+            fareCalendarSearch = new FareCalendarSearch(graph);
+        }
+    }
+
+
+    private final class FlightChanges implements Flight.ChangeListener {
+        private final LongAdder fareCuts = new LongAdder();
+
+        @Override
+        public void flightChanged(Flight flight, boolean seatsFreed) {
+        }
+
+        @Override
+        public void basePriceLowered(Flight flight) {
+            fareCuts.increment();
+        }
+
+        @Override
+        public void flightDateChanged(Flight flight, LocalDate previousDate) {
+            refileFlight(flight, previousDate);
+        }
+
+        @Override
+        public void flightNumberChanged(Flight flight, String previousNumber) {
+            renumberFlight(flight, previousNumber);
+        }
+    }
+
+
+    private SearchEngines engines() {
+        SearchEngines current = engines;
+        if (current == null) {
+            synchronized (snapshotLock) {
+                current = engines;
+                if (current == null) {
+                    current = new SearchEngines(this);
+                    engines = current;
+                }
+            }
+        }
+        return current;
+    }
+
+
+    private static List<Flight>[] newFlightListArray() {
+        @SuppressWarnings("unchecked")
+        List<Flight>[] lists = (List<Flight>[]) new List<?>[16];
+        return lists;
+    }
+
+
+    List<Flight> outgoing(int airportId) {
+        List<Flight>[] lists = outgoingById;
+        return airportId >= 0 && airportId < lists.length ? lists[airportId] : null;
+    }
+
+
+    List<Flight> incoming(int airportId) {
+        List<Flight>[] lists = incomingById;
+        return airportId >= 0 && airportId < lists.length ? lists[airportId] : null;
+    }
+
+
+    // Flights leaving the airport on the epoch day, or null when there are none
+    List<Flight> outgoingOn(int airportId, int day) {
+        return outgoingByDay.get(airportId, day);
+    }
+
+
+    // Flights arriving at the airport that left on the epoch day, or null
+    List<Flight> incomingOn(int airportId, int day) {
+        return incomingByDay.get(airportId, day);
+    }
+
+
+    // Flights from origin to destination (by id), or null when there are none
+    List<Flight> flightsBetween(int originId, int destId) {
+        AtomicReferenceArray<IntHashMap<List<Flight>>> index = flightsByPair;
+        if (originId < 0 || originId >= index.length()) return null;
+        IntHashMap<List<Flight>> destinations = index.get(originId);
+        return destinations == null ? null : destinations.get(destId);
+    }
+
+
+    private void indexPair(Flight flight) {
+        int originId = originId(flight);
+        IntHashMap<List<Flight>> destinations = flightsByPair.get(originId);
+        List<Flight> flights = destinations.get(destinationId(flight));
+
+        if (flights == null) {
+            flights = newFlightList();
+            flights.add(flight);
+            // Readers of a concurrent graph never see a map that is being resized
+            if (mapType == MapType.CONCURRENT) {
+                destinations = destinations.copy();
+            }
+            destinations.put(destinationId(flight), flights);
+            flightsByPair.set(originId, destinations);
+            connectivityVersion++;
+        } else {
+            flights.add(flight);
+        }
+    }
+
+
+    private void unindexPair(int originId, int destId) {
+        IntHashMap<List<Flight>> destinations = flightsByPair.get(originId);
+        if (mapType == MapType.CONCURRENT) {
+            destinations = destinations.copy();
+        }
+        destinations.remove(destId);
+        flightsByPair.set(originId, destinations);
+    }
+
+
+    // Id of an airport in this graph, or -1 when the code is unknown here
+    int airportId(String code) {
+        int id = registry.getId(code);
+        return outgoing(id) != null ? id : -1;
+    }
+
+
+    // Ids of a registered airport and of a flight's endpoints in this graph
+    int idOf(Airport airport) {
+        return registry.idOf(airport);
+    }
+
+
+    int originId(Flight flight) {
+        return registry.idOf(flight.getOrigin());
+    }
+
+
+    int destinationId(Flight flight) {
+        return registry.idOf(flight.getDestination());
+    }
+
+
+    AirportRegistry registry() {
+        return registry;
+    }
+
+
+    // Bound on this graph's airport ids, for sizing per-search arrays indexed by id
+    int airportIdBound() {
+        return registry.size();
+    }
+
+
+    // Evictions move fingerprints between buckets, which a concurrent reader could miss.
+    // A concurrent graph fills a free slot in place, which moves nothing, and only copies
+    // the filter and publishes the copy when the key would have to evict another; at the
+    // filter's usual fill that is rare, so bulk loads do not copy it once per key.
+    private CuckooFilter addToFilter(CuckooFilter filter, String key, Set<String> allKeys) {
+        if (mapType != MapType.CONCURRENT) {
+            if (filter.add(key)) {
+                return filter;
+            }
+        } else if (filter.addWithoutRelocating(key)) {
+            return filter;
+        } else {
+            CuckooFilter copy = filter.copy();
+            if (copy.add(key)) {
+                return copy;
+            }
+        }
+
+        // Full: rebuild from the key set, which already holds key. A filter in front of
+        // a map must never drop a key, so a rebuild that fills up doubles and retries.
+        int size = Math.max(64, allKeys.size() * 2);
+        while (true) {
+            CuckooFilter larger = new CuckooFilter(size);
+            if (addAll(larger, allKeys)) {
+                return larger;
+            }
+            size *= 2;
+        }
+    }
+
+
+    private static boolean addAll(CuckooFilter filter, Set<String> keys) {
+        for (String key : keys) {
+            if (!filter.add(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    // Clearing a slot moves nothing either; only re-placing a homeless fingerprint does,
+    // so a concurrent graph copies the filter just when it is full
+    private CuckooFilter removeFromFilter(CuckooFilter filter, String key) {
+        CuckooFilter target = mapType == MapType.CONCURRENT && filter.isFull() ? filter.copy() : filter;
+        target.remove(key);
+        return target;
+    }
+
+
+    private List<Flight> newFlightList() {
+        // Searches iterate these lists while bookings run, so a concurrent graph
+        // copies on the (rare) flight additions instead of locking every read
+        return mapType == MapType.CONCURRENT ? new CopyOnWriteArrayList<>() : new ArrayList<>();
     }
 
 
@@ -25,10 +330,56 @@ public class FlightGraph {
             throw new IllegalArgumentException("Airport cannot be null");
         }
 
-        String code = airport.getCode();
-        if (!airports.containsKey(code)) {
-            airports.put(code, airport);
-            adjacencyList.put(code, new ArrayList<>());
+        int id = registry.register(airport);
+        if (outgoing(id) == null) {
+            String code = airport.getCode();
+
+            synchronized (snapshotLock) {
+                // Checked again under the lock: threads adding the first flights of a new
+                // airport must not each install empty lists over the other's flight
+                if (outgoing(id) != null) {
+                    return;
+                }
+
+                List<Flight> flights = newFlightList();
+                airports.put(code, airport);
+                adjacencyList.put(code, flights);
+
+                List<Flight>[] lists = outgoingById;
+                if (id >= lists.length) {
+                    lists = Arrays.copyOf(lists, Math.max(id + 1, lists.length * 2));
+                }
+                lists[id] = flights;
+                outgoingById = lists;
+
+                List<Flight>[] reverse = incomingById;
+                if (id >= reverse.length) {
+                    reverse = Arrays.copyOf(reverse, Math.max(id + 1, reverse.length * 2));
+                }
+                reverse[id] = newFlightList();
+                incomingById = reverse;
+
+                AtomicReferenceArray<IntHashMap<List<Flight>>> pairs = flightsByPair;
+                if (id >= pairs.length()) {
+                    AtomicReferenceArray<IntHashMap<List<Flight>>> grown =
+                            new AtomicReferenceArray<>(Math.max(id + 1, pairs.length() * 2));
+                    for (int i = 0; i < pairs.length(); i++) {
+                        grown.set(i, pairs.get(i));
+                    }
+                    pairs = grown;
+                }
+                pairs.set(id, new IntHashMap<>(4));
+                flightsByPair = pairs;
+                outgoingByDay.addAirport(id);
+                incomingByDay.addAirport(id);
+                airportFilter = addToFilter(airportFilter, code, airports.keySet());
+
+                topologyVersion++;
+                connectivityVersion++;
+                if (latestSnapshot != null) {
+                    latestSnapshot = latestSnapshot.withAirport(airport);
+                }
+            }
         }
     }
 
@@ -37,39 +388,224 @@ public class FlightGraph {
             throw new IllegalArgumentException("Flight cannot be null");
         }
 
-        String originCode = flight.getOrigin().getCode();
-        String destCode = flight.getDestination().getCode();
+        synchronized (snapshotLock) {
+            // Ensure airports exist in the graph. Done under the lock that removeAirport
+            // takes, so neither endpoint can be unlinked before the flight is in its lists.
+            addAirport(flight.getOrigin());
+            addAirport(flight.getDestination());
+            int originId = originId(flight);
+            int destId = destinationId(flight);
+
+            // Add flight to origin's adjacency list
+            outgoing(originId).add(flight);
+            incoming(destId).add(flight);
+            indexPair(flight);
+            outgoingByDay.add(originId, flight);
+            incomingByDay.add(destId, flight);
+            totalFlights++;
+            indexFlightNumber(flight);
+            topologyVersion++;
+
+            if (latestSnapshot != null) {
+                latestSnapshot = latestSnapshot.withFlight(flight);
+            }
+        }
+        flight.addChangeListener(flightChanges);
+    }
+
+
+    // Takes a flight out of the day buckets of its previous date and, while the graph
+    // still holds it, files it under the new one. The old buckets are always cleared, so
+    // a date changed while the flight's airport was being removed leaves nothing behind.
+    private void refileFlight(Flight flight, LocalDate previousDate) {
+        int originId = originId(flight);
+        int destId = destinationId(flight);
+        synchronized (snapshotLock) {
+            outgoingByDay.remove(originId, flight, previousDate);
+            incomingByDay.remove(destId, flight, previousDate);
+            List<Flight> flights = outgoing(originId);
+            if (flights != null && flights.contains(flight)) {
+                outgoingByDay.add(originId, flight);
+                incomingByDay.add(destId, flight);
+            }
+        }
+    }
+
+
+    // Moves a flight from its previous number to its new one in the flight-number index,
+    // the same way refileFlight moves it between day buckets
+    private void renumberFlight(Flight flight, String previousNumber) {
+        synchronized (snapshotLock) {
+            unindexFlightNumber(flight, previousNumber);
+            List<Flight> flights = outgoing(originId(flight));
+            if (flights != null && flights.contains(flight)) {
+                indexFlightNumber(flight);
+            }
+        }
+    }
+
+
+    private void indexFlightNumber(Flight flight) {
+        String number = flight.getFlightNumber();
+        if (number == null) return;
+
+        List<Flight> flights = flightsByNumber.get(number);
+        if (flights == null) {
+            flights = newFlightList();
+            flightsByNumber.put(number, flights);
+            flightNumberFilter = addToFilter(flightNumberFilter, number, flightsByNumber.keySet());
+        }
+        flights.add(flight);
+    }
 
-        // Ensure airports exist in the graph
-        addAirport(flight.getOrigin());
-        addAirport(flight.getDestination());
 
-        // Add flight to origin's adjacency list
-        List<Flight> originFlights = adjacencyList.get(originCode);
-        originFlights.add(flight);
-        totalFlights++;
+    private void unindexFlightNumber(Flight flight, String number) {
+        if (number == null) return;
+
+        List<Flight> flights = flightsByNumber.get(number);
+        if (flights != null && flights.remove(flight) && flights.isEmpty()) {
+            flightsByNumber.remove(number);
+            flightNumberFilter = removeFromFilter(flightNumberFilter, number);
+        }
+    }
+
+
+    // O(1) once tracking is on; the first call copies the current graph in O(V + F)
+    public GraphSnapshot snapshot() {
+        GraphSnapshot snapshot = latestSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (snapshotLock) {
+            if (latestSnapshot == null) {
+                GraphSnapshot initial = GraphSnapshot.empty();
+                for (Airport airport : airports.values()) {
+                    initial = initial.withAirport(airport);
+                }
+                for (List<Flight> flights : adjacencyList.values()) {
+                    for (Flight flight : flights) {
+                        initial = initial.withFlight(flight);
+                    }
+                }
+                latestSnapshot = initial;
+            }
+            return latestSnapshot;
+        }
+    }
+
+
+    // Read-optimized copy for analytics and bulk searches; O(V + F log F) to build
+    public CsrGraph buildCsr() {
+        synchronized (snapshotLock) {
+            return new CsrGraph(airports.values(), this);
+        }
+    }
+
+
+    // Timetable copy of the scheduled flights for earliest-arrival and profile queries
+    public ConnectionScan buildConnectionScan() {
+        synchronized (snapshotLock) {
+            return new ConnectionScan(airports.values(), this);
+        }
+    }
+
+
+    // Contraction hierarchy for the current topology; rebuilt on the first call after an
+    // airport or a connection between two airports was added or removed
+    public ContractionHierarchy getHopDistanceIndex() {
+        ContractionHierarchy index = hopIndex;
+        if (index != null && index.getTopologyVersion() == connectivityVersion) {
+            return index;
+        }
+        synchronized (snapshotLock) {
+            index = hopIndex;
+            if (index == null || index.getTopologyVersion() != connectivityVersion) {
+                index = new ContractionHierarchy(airports.values(), this, connectivityVersion);
+                hopIndex = index;
+            }
+            return index;
+        }
+    }
+
+
+    // Fewest flights between two airports regardless of seats; -1 if unreachable
+    public int getHopDistance(String originCode, String destCode) {
+        return getHopDistanceIndex().getHopDistance(originCode, destCode);
+    }
+
+
+    public List<String> getHopPath(String originCode, String destCode) {
+        return getHopDistanceIndex().getPath(originCode, destCode);
     }
 
 
     public Flight findDirectFlight(String originCode, String destCode) {
-        List<Flight> flights = adjacencyList.get(originCode);
+        List<Flight> flights = flightsBetween(airportId(originCode), airportId(destCode));
         if (flights == null) return null;
 
-        return flights.stream()
-                .filter(f -> f.getDestination().getCode().equals(destCode) && f.hasAvailableSeats())
-                .min(Comparator.comparingDouble(Flight::getCurrentPrice))
-                .orElse(null);
+        Flight cheapest = null;
+        for (Flight flight : flights) {
+            if (flight.hasAvailableSeats()
+                    && (cheapest == null || flight.getCurrentPrice() < cheapest.getCurrentPrice())) {
+                cheapest = flight;
+            }
+        }
+        return cheapest;
     }
 
 
     public List<Flight> findAllDirectFlights(String originCode, String destCode) {
-        List<Flight> flights = adjacencyList.get(originCode);
-        if (flights == null) return new ArrayList<>();
+        return findAllDirectFlights(airportId(originCode), airportId(destCode));
+    }
 
-        return flights.stream()
-                .filter(f -> f.getDestination().getCode().equals(destCode) && f.hasAvailableSeats())
-                .sorted(Comparator.comparingDouble(Flight::getCurrentPrice))
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+
+    // Prices move with every booking, so the pair's flights are ordered on each read
+    // rather than kept sorted; a pair rarely has more than a handful of flights
+    List<Flight> findAllDirectFlights(int originId, int destId) {
+        List<Flight> direct = new ArrayList<>();
+        List<Flight> flights = flightsBetween(originId, destId);
+        if (flights == null) return direct;
+
+        for (Flight flight : flights) {
+            if (flight.hasAvailableSeats()) {
+                direct.add(flight);
+            }
+        }
+        direct.sort(Comparator.comparingDouble(Flight::getCurrentPrice));
+        return direct;
+    }
+
+
+    // Direct flights with seats leaving on the date, cheapest first; reads one day
+    // bucket of the origin instead of the pair's flights on every date
+    public List<Flight> findAllDirectFlights(String originCode, String destCode, LocalDate date) {
+        return findAllDirectFlights(originCode, destCode, date, date);
+    }
+
+
+    public List<Flight> findAllDirectFlights(String originCode, String destCode, LocalDate firstDay,
+                                             LocalDate lastDay) {
+        if (firstDay == null || lastDay == null) {
+            throw new IllegalArgumentException("Dates cannot be null");
+        }
+
+        List<Flight> direct = new ArrayList<>();
+        int originId = airportId(originCode);
+        int destId = airportId(destCode);
+        if (originId < 0 || destId < 0) return direct;
+
+        for (int day = DatedFlightIndex.dayOf(firstDay); day <= DatedFlightIndex.dayOf(lastDay); day++) {
+            List<Flight> flights = outgoingOn(originId, day);
+            if (flights == null) continue;
+            for (Flight flight : flights) {
+                if (destinationId(flight) == destId && flight.hasAvailableSeats()) {
+                    direct.add(flight);
+                }
+            }
+        }
+        direct.sort(Comparator.comparingDouble(Flight::getCurrentPrice));
+        return direct;
     }
 
     public List<Route> findRoutes(String originCode, String destCode) {
@@ -78,9 +614,11 @@ public class FlightGraph {
         }
 
         List<Route> routes = new ArrayList<>();
+        int originId = airportId(originCode);
+        int destId = airportId(destCode);
 
         // Find direct flights
-        List<Flight> directFlights = findAllDirectFlights(originCode, destCode);
+        List<Flight> directFlights = findAllDirectFlights(originId, destId);
         for (Flight directFlight : directFlights) {
             Route directRoute = new Route(Arrays.asList(directFlight));
             if (directRoute.isValidRoute()) {
@@ -89,7 +627,7 @@ public class FlightGraph {
         }
 
         // Find one-stop routes
-        routes.addAll(findOneStopRoutes(originCode, destCode));
+        routes.addAll(findOneStopRoutes(originId, destId));
 
         // Sort routes by total price
         routes.sort(Route.priceComparator());
@@ -97,20 +635,80 @@ public class FlightGraph {
     }
 
 
-    private List<Route> findOneStopRoutes(String originCode, String destCode) {
+    // Direct and one-stop routes leaving on the date. The connection follows
+    // Flight.connectsTo, so only the buckets of the days it allows are read.
+    public List<Route> findRoutes(String originCode, String destCode, LocalDate date) {
+        return findRoutes(originCode, destCode, date, date);
+    }
+
+
+    // Direct and one-stop routes leaving on any day from firstDay to lastDay, cheapest first
+    public List<Route> findRoutes(String originCode, String destCode, LocalDate firstDay, LocalDate lastDay) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (firstDay == null || lastDay == null) {
+            throw new IllegalArgumentException("Dates cannot be null");
+        }
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Last day cannot be before first day");
+        }
+
+        List<Route> routes = new ArrayList<>();
+        int originId = airportId(originCode);
+        int destId = airportId(destCode);
+        if (originId < 0 || destId < 0) return routes;
+
+        for (int day = DatedFlightIndex.dayOf(firstDay); day <= DatedFlightIndex.dayOf(lastDay); day++) {
+            List<Flight> originFlights = outgoingOn(originId, day);
+            if (originFlights == null) continue;
+
+            for (Flight firstFlight : originFlights) {
+                if (!firstFlight.hasAvailableSeats()) continue;
+
+                int intermediateId = destinationId(firstFlight);
+                if (intermediateId == destId) {
+                    routes.add(new Route(Arrays.asList(firstFlight)));
+                    continue;
+                }
+
+                int landed = DatedFlightIndex.dayOf(firstFlight.getArrivalDate());
+                for (int connectionDay = landed; connectionDay <= landed + Flight.MAX_LAYOVER_DAYS; connectionDay++) {
+                    List<Flight> connectingFlights = outgoingOn(intermediateId, connectionDay);
+                    if (connectingFlights == null) continue;
+                    for (Flight secondFlight : connectingFlights) {
+                        if (destinationId(secondFlight) == destId && secondFlight.hasAvailableSeats()
+                                && firstFlight.connectsTo(secondFlight)) {
+                            routes.add(new Route(Arrays.asList(firstFlight, secondFlight)));
+                        }
+                    }
+                }
+            }
+        }
+
+        routes.sort(Route.priceComparator());
+        return routes;
+    }
+
+
+    private List<Route> findOneStopRoutes(int originId, int destId) {
         List<Route> oneStopRoutes = new ArrayList<>();
-        List<Flight> originFlights = adjacencyList.get(originCode);
+        List<Flight> originFlights = outgoing(originId);
 
-        if (originFlights != null) {
+        if (originFlights != null && destId >= 0) {
             for (Flight firstFlight : originFlights) {
                 if (!firstFlight.hasAvailableSeats()) continue;
 
-                String intermediateCode = firstFlight.getDestination().getCode();
-                if (intermediateCode.equals(destCode)) continue; // Skip direct routes
+                int intermediateId = destinationId(firstFlight);
+                if (intermediateId == destId) continue; // Skip direct routes
+
+                // Connecting flights come straight from the pair index; the routes
+                // are sorted by total price at the end, so no per-leg sort is needed
+                List<Flight> connectingFlights = flightsBetween(intermediateId, destId);
+                if (connectingFlights == null) continue;
 
-                // Find connecting flights from intermediate airport
-                List<Flight> connectingFlights = findAllDirectFlights(intermediateCode, destCode);
                 for (Flight secondFlight : connectingFlights) {
+                    if (!secondFlight.hasAvailableSeats()) continue;
                     try {
                         Route oneStopRoute = new Route(Arrays.asList(firstFlight, secondFlight));
                         if (oneStopRoute.isValidRoute()) {
@@ -143,8 +741,195 @@ public class FlightGraph {
         } else if (maxStops == 1) {
             return findRoutes(originCode, destCode);
         } else {
-            return findRoutes(originCode, destCode); // Limit to 1-stop for simplicity
+            return engines().multiStopSearch.search(originCode, destCode, maxStops, 1, Double.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+
+    // The limit cheapest routes of up to maxStops stops with seats for the whole party
+    public List<Route> findRoutesWithMaxStops(String originCode, String destCode, int maxStops,
+                                              int passengerCount, int limit) {
+        return engines().multiStopSearch.search(originCode, destCode, maxStops, passengerCount, Double.MAX_VALUE, limit);
+    }
+
+
+    public MultiStopRouteSearch getMultiStopSearch() {
+        return engines().multiStopSearch;
+    }
+
+
+    // Cheapest route by current fares with any number of stops, or null if none has seats
+    public Route findCheapestRoute(String originCode, String destCode, int passengerCount) {
+        return engines().cheapestFareSearch.findCheapestRouteAStar(originCode, destCode, passengerCount);
+    }
+
+
+    // Loopless routes with seats for the party, cheapest first, computed as they are consumed
+    public Iterator<Route> findCheapestRoutes(String originCode, String destCode, int passengerCount) {
+        return engines().cheapestFareSearch.cheapestRoutes(originCode, destCode, passengerCount);
+    }
+
+
+    public CheapestFareSearch getCheapestFareSearch() {
+        return engines().cheapestFareSearch;
+    }
+
+
+    // Routes not beaten on price, duration and leg count together by any other route
+    public List<Route> findParetoRoutes(String originCode, String destCode, int passengerCount) {
+        return engines().paretoSearch.search(originCode, destCode, passengerCount, Integer.MAX_VALUE);
+    }
+
+
+    public List<Route> findParetoRoutes(String originCode, String destCode, int passengerCount, int maxStops) {
+        return engines().paretoSearch.search(originCode, destCode, passengerCount, maxStops);
+    }
+
+
+    // Cheapest fare to every airport reachable from the origin, in one traversal
+    public List<ExploreSearch.Destination> exploreFrom(String originCode, int passengerCount, int maxStops,
+                                                       double maxPrice) {
+        return engines().exploreSearch.explore(originCode, passengerCount, maxStops, maxPrice);
+    }
+
+
+    public ExploreSearch getExploreSearch() {
+        return engines().exploreSearch;
+    }
+
+
+    // Cheapest route per departure day in the window, from one traversal for all days
+    public SortedMap<LocalDate, Route> findFareCalendar(String originCode, String destCode, LocalDate firstDay,
+                                                        LocalDate lastDay, int passengerCount, int maxStops) {
+        return engines().fareCalendarSearch.cheapestByDay(originCode, destCode, firstDay, lastDay, passengerCount, maxStops);
+    }
+
+
+    public FareCalendarSearch.FareMatrix findRoundTripFares(String originCode, String destCode,
+                                                            LocalDate outboundFirstDay, LocalDate outboundLastDay,
+                                                            LocalDate returnFirstDay, LocalDate returnLastDay,
+                                                            int passengerCount, int maxStops) {
+        return engines().fareCalendarSearch.roundTrip(originCode, destCode, outboundFirstDay, outboundLastDay,
+                returnFirstDay, returnLastDay, passengerCount, maxStops);
+    }
+
+
+    public FareCalendarSearch getFareCalendarSearch() {
+        return engines().fareCalendarSearch;
+    }
+
+
+    // Names a set of airports for group searches, replacing any group of that name
+    public void defineAirportGroup(String name, Collection<String> airportCodes) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Group name cannot be empty");
+        }
+        if (airportCodes == null || airportCodes.isEmpty()) {
+            throw new IllegalArgumentException("Airport group cannot be empty");
+        }
+        for (String code : airportCodes) {
+            if (!hasAirport(code)) {
+                throw new IllegalArgumentException("Airport not found: " + code);
+            }
+        }
+        airportGroups.put(groupKey(name), new ArrayList<>(new LinkedHashSet<>(airportCodes)));
+    }
+
+
+    public boolean removeAirportGroup(String name) {
+        if (name == null || !airportGroups.containsKey(groupKey(name))) {
+            return false;
+        }
+        airportGroups.remove(groupKey(name));
+        return true;
+    }
+
+
+    // Airports a group name stands for: a group defined with defineAirportGroup, else a
+    // single airport code, else every airport whose location names that city or country
+    public Set<String> getAirportGroup(String name) {
+        Set<String> codes = new TreeSet<>();
+        for (int id : airportGroupIds(name)) {
+            codes.add(registry.getAirport(id).getCode());
+        }
+        return codes;
+    }
+
+
+    int[] airportGroupIds(String name) {
+        if (name == null) return new int[0];
+
+        List<String> defined = airportGroups.get(groupKey(name));
+        if (defined != null) {
+            return defined.stream().mapToInt(this::airportId).filter(id -> id >= 0).toArray();
+        }
+        if (hasAirport(name)) {
+            return new int[] {airportId(name)};
+        }
+
+        String place = name.trim();
+        List<Integer> ids = new ArrayList<>();
+        for (Airport airport : airports.values()) {
+            if (isLocatedIn(airport, place)) {
+                ids.add(idOf(airport));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+
+    private static String groupKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+
+    // Locations read "City, Country"; either part matches, ignoring case
+    private static boolean isLocatedIn(Airport airport, String place) {
+        String location = airport.getLocation();
+        if (location == null) return false;
+        int firstComma = location.indexOf(',');
+        String city = firstComma < 0 ? location : location.substring(0, firstComma);
+        String country = location.substring(location.lastIndexOf(',') + 1);
+        return city.trim().equalsIgnoreCase(place) || country.trim().equalsIgnoreCase(place);
+    }
+
+
+    // Direct and one-stop routes from any airport of one group to any of another, in
+    // one pass; the same routes a searchRoutes call per pair would return, merged
+    public List<Route> findGroupRoutes(String fromGroup, String toGroup, int passengerCount) {
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+        return engines().groupSearch.searchRoutes(airportGroupIds(fromGroup), airportGroupIds(toGroup), passengerCount);
+    }
+
+
+    public Route findCheapestGroupRoute(String fromGroup, String toGroup, int passengerCount) {
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
         }
+        return engines().groupSearch.cheapestRoute(airportGroupIds(fromGroup), airportGroupIds(toGroup), passengerCount);
+    }
+
+
+    public ParetoRouteSearch getParetoSearch() {
+        return engines().paretoSearch;
+    }
+
+
+    public BidirectionalPathSearch getPathSearch() {
+        return engines().pathSearch;
+    }
+
+
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+
+    // Base prices lowered so far on flights added to this graph
+    long getFareCutCount() {
+        return flightChanges.fareCuts.sum();
     }
 
 
@@ -159,21 +944,87 @@ public class FlightGraph {
     }
 
 
+    public List<Flight> getFlightsFrom(String airportCode, LocalDate date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        List<Flight> flights = outgoingOn(airportId(airportCode), DatedFlightIndex.dayOf(date));
+        return flights != null ? new ArrayList<>(flights) : new ArrayList<>();
+    }
+
+
+    // Drops the days before firstDay from dated searches in O(1), however many flights
+    // they hold; their buckets are reclaimed lazily as the graph is written to. Searches
+    // without a date still see every flight.
+    public void evictFlightsBefore(LocalDate firstDay) {
+        if (firstDay == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        synchronized (snapshotLock) {
+            outgoingByDay.evictBefore(firstDay);
+            incomingByDay.evictBefore(firstDay);
+        }
+    }
+
+
+    // Earliest day dated searches still see, or null if no day was ever evicted
+    public LocalDate getFirstRetainedDay() {
+        return outgoingByDay.getHorizon();
+    }
+
+
+    // Origin and destination day buckets held, evicted ones not yet reclaimed included
+    public long getDayBucketCount() {
+        return outgoingByDay.getBucketCount() + incomingByDay.getBucketCount();
+    }
+
+
     public List<Flight> getFlightsTo(String airportCode) {
-        List<Flight> incomingFlights = new ArrayList<>();
-
-        for (String originCode : getAllAirportCodes()) {
-            List<Flight> flights = adjacencyList.get(originCode);
-            if (flights != null) {
-                for (Flight flight : flights) {
-                    if (flight.getDestination().getCode().equals(airportCode)) {
-                        incomingFlights.add(flight);
-                    }
-                }
+        List<Flight> flights = incoming(airportId(airportCode));
+        return flights != null ? new ArrayList<>(flights) : new ArrayList<>();
+    }
+
+
+    // Visits every flight in place, without copying the adjacency lists
+    public void forEachFlight(Consumer<Flight> action) {
+        for (List<Flight> flights : adjacencyList.values()) {
+            for (Flight flight : flights) {
+                action.accept(flight);
             }
         }
+    }
+
 
-        return incomingFlights;
+    public int sumIntOverFlights(ToIntFunction<Flight> metric) {
+        int total = 0;
+        for (List<Flight> flights : adjacencyList.values()) {
+            for (Flight flight : flights) {
+                total += metric.applyAsInt(flight);
+            }
+        }
+        return total;
+    }
+
+
+    public double sumDoubleOverFlights(ToDoubleFunction<Flight> metric) {
+        double total = 0.0;
+        for (List<Flight> flights : adjacencyList.values()) {
+            for (Flight flight : flights) {
+                total += metric.applyAsDouble(flight);
+            }
+        }
+        return total;
+    }
+
+
+    public int getTotalFlights() {
+        return totalFlights;
+    }
+
+
+    private int getOutDegree(Airport airport) {
+        List<Flight> flights = outgoing(idOf(airport));
+        return flights != null ? flights.size() : 0;
     }
 
 
@@ -187,7 +1038,32 @@ public class FlightGraph {
 
 
     public boolean hasAirport(String code) {
-        return airports.containsKey(code);
+        if (code == null) return false;
+        if (!airportFilter.mightContain(code)) {
+            filterRejections.increment();
+            return false;
+        }
+
+        boolean present = airports.containsKey(code);
+        if (!present) {
+            filterFalsePositives.increment();
+        }
+        return present;
+    }
+
+
+    public boolean hasFlightNumber(String flightNumber) {
+        if (flightNumber == null || !flightNumberFilter.mightContain(flightNumber)) {
+            return false;
+        }
+        return flightsByNumber.containsKey(flightNumber);
+    }
+
+
+    public List<Flight> getFlightsByNumber(String flightNumber) {
+        if (!hasFlightNumber(flightNumber)) return new ArrayList<>();
+        List<Flight> flights = flightsByNumber.get(flightNumber);
+        return flights != null ? new ArrayList<>(flights) : new ArrayList<>();
     }
 
     public boolean removeAirport(String code) {
@@ -195,28 +1071,62 @@ public class FlightGraph {
             return false;
         }
 
-        // Remove outgoing flights
-        List<Flight> outgoingFlights = adjacencyList.get(code);
-        if (outgoingFlights != null) {
+        synchronized (snapshotLock) {
+            // Looked up again under the lock: a concurrent removal of the same airport may
+            // have unlinked it since the check above
+            int airportId = airportId(code);
+            if (airportId < 0) {
+                return false;
+            }
+
+            // Remove outgoing flights from the incoming lists of their destinations
+            List<Flight> outgoingFlights = outgoing(airportId);
+            Set<Integer> destinations = new HashSet<>();
+            for (Flight flight : outgoingFlights) {
+                destinations.add(destinationId(flight));
+                unindexFlightNumber(flight, flight.getFlightNumber());
+                incomingByDay.remove(destinationId(flight), flight);
+            }
+            for (int destinationId : destinations) {
+                incoming(destinationId).removeIf(flight -> originId(flight) == airportId);
+            }
             totalFlights -= outgoingFlights.size();
-        }
 
-        // Remove incoming flights
-        for (String originCode : getAllAirportCodes()) {
-            if (!originCode.equals(code)) {
-                List<Flight> flights = adjacencyList.get(originCode);
-                if (flights != null) {
-                    int originalSize = flights.size();
-                    flights.removeIf(flight -> flight.getDestination().getCode().equals(code));
-                    totalFlights -= (originalSize - flights.size());
+            // Remove incoming flights from the outgoing lists of their origins
+            List<Flight> incomingFlights = incoming(airportId);
+            Set<Integer> origins = new HashSet<>();
+            for (Flight flight : incomingFlights) {
+                origins.add(originId(flight));
+                unindexFlightNumber(flight, flight.getFlightNumber());
+                outgoingByDay.remove(originId(flight), flight);
+            }
+            for (int originId : origins) {
+                outgoing(originId).removeIf(flight -> destinationId(flight) == airportId);
+                unindexPair(originId, airportId);
+            }
+            totalFlights -= incomingFlights.size();
+
+            // Remove airport
+            airports.remove(code);
+            adjacencyList.remove(code);
+            outgoingById[airportId] = null;
+            incomingById[airportId] = null;
+            flightsByPair.set(airportId, null);
+            outgoingByDay.removeAirport(airportId);
+            incomingByDay.removeAirport(airportId);
+            airportFilter = removeFromFilter(airportFilter, code);
+            topologyVersion++;
+            connectivityVersion++;
+
+            if (latestSnapshot != null) {
+                List<String> originCodes = new ArrayList<>();
+                for (int originId : origins) {
+                    originCodes.add(registry.getAirport(originId).getCode());
                 }
+                latestSnapshot = latestSnapshot.withoutAirport(code, originCodes);
             }
         }
 
-        // Remove airport
-        airports.remove(code);
-        adjacencyList.remove(code);
-
         return true;
     }
 
@@ -227,8 +1137,7 @@ public class FlightGraph {
         int availableSeats = 0;
         double totalRevenue = 0.0;
 
-        for (String code : getAllAirportCodes()) {
-            List<Flight> flights = getFlightsFrom(code);
+        for (List<Flight> flights : adjacencyList.values()) {
             for (Flight flight : flights) {
                 totalSeats += flight.getTotalSeats();
                 availableSeats += flight.getAvailableSeats();
@@ -245,10 +1154,31 @@ public class FlightGraph {
                         "Available Seats: %d\n" +
                         "Occupancy Rate: %.1f%%\n" +
                         "Estimated Revenue: $%.2f\n" +
-                        "Average Flights per Airport: %.1f",
+                        "Average Flights per Airport: %.1f\n" +
+                        "%s",
                 airportCount, totalFlights, totalSeats, availableSeats,
                 occupancyRate, totalRevenue,
-                airportCount > 0 ? (double)totalFlights / airportCount : 0);
+                airportCount > 0 ? (double)totalFlights / airportCount : 0,
+                getLookupFilterStatistics());
+    }
+
+
+    public String getLookupFilterStatistics() {
+        CuckooFilter airportKeys = airportFilter;
+        CuckooFilter flightKeys = flightNumberFilter;
+        long rejected = filterRejections.sum();
+        long falsePositives = filterFalsePositives.sum();
+        long unknownLookups = rejected + falsePositives;
+
+        return String.format("Airport Filter: %d codes, %.1f%% full, %d bytes, expected FPR %.4f%%\n" +
+                        "Flight Number Filter: %d numbers, %.1f%% full, %d bytes, expected FPR %.4f%%\n" +
+                        "Unknown Airport Lookups: %d (%d rejected by filter, observed FPR %.4f%%)",
+                airportKeys.size(), airportKeys.getLoadFactor() * 100, airportKeys.getMemoryBytes(),
+                airportKeys.getExpectedFalsePositiveRate() * 100,
+                flightKeys.size(), flightKeys.getLoadFactor() * 100, flightKeys.getMemoryBytes(),
+                flightKeys.getExpectedFalsePositiveRate() * 100,
+                unknownLookups, rejected,
+                unknownLookups > 0 ? (double) falsePositives / unknownLookups * 100 : 0);
     }
 
 
@@ -259,19 +1189,18 @@ public class FlightGraph {
 
         return getAllAirports().stream()
                 .sorted((a1, a2) -> Integer.compare(
-                        getFlightsFrom(a2.getCode()).size(),
-                        getFlightsFrom(a1.getCode()).size()))
+                        getOutDegree(a2),
+                        getOutDegree(a1)))
                 .limit(limit)
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
  
     public boolean validateGraph() {
-        for (String originCode : getAllAirportCodes()) {
-            List<Flight> flights = getFlightsFrom(originCode);
+        for (List<Flight> flights : adjacencyList.values()) {
             for (Flight flight : flights) {
-                if (!hasAirport(flight.getOrigin().getCode()) ||
-                        !hasAirport(flight.getDestination().getCode())) {
+                if (outgoing(originId(flight)) == null ||
+                        outgoing(destinationId(flight)) == null) {
                     return false;
                 }
             }
@@ -280,48 +1209,17 @@ public class FlightGraph {
     }
 
 
+    // Fewest flights with free seats, found by a bidirectional BFS
     public List<String> getShortestPath(String originCode, String destCode) {
         if (!hasAirport(originCode) || !hasAirport(destCode)) {
             return new ArrayList<>();
         }
 
-        if (originCode.equals(destCode)) {
-            return Arrays.asList(originCode);
+        int[] path = engines().pathSearch.findPath(airportId(originCode), airportId(destCode));
+        List<String> codes = new ArrayList<>(path.length);
+        for (int id : path) {
+            codes.add(registry.getAirport(id).getCode());
         }
-
-        Queue<String> queue = new LinkedList<>();
-        Map<String, String> parent = new HashMap<>();
-        Set<String> visited = new HashSet<>();
-
-        queue.offer(originCode);
-        visited.add(originCode);
-        parent.put(originCode, null);
-
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
-
-            if (current.equals(destCode)) {
-                // Reconstruct path
-                List<String> path = new ArrayList<>();
-                String node = destCode;
-                while (node != null) {
-                    path.add(0, node);
-                    node = parent.get(node);
-                }
-                return path;
-            }
-
-            List<Flight> flights = getFlightsFrom(current);
-            for (Flight flight : flights) {
-                String neighbor = flight.getDestination().getCode();
-                if (!visited.contains(neighbor) && flight.hasAvailableSeats()) {
-                    visited.add(neighbor);
-                    parent.put(neighbor, current);
-                    queue.offer(neighbor);
-                }
-            }
-        }
-
-        return new ArrayList<>(); // No path found
+        return codes;
     }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package datastructures;
+
+import adt.Airport;
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+
+// Immutable view of a FlightGraph's airports and flights at one point in time.
+// Later additions and removals on the graph never show up here; seat counts and
+// prices are read from the shared Flight objects and so stay live.
+public final class GraphSnapshot {
+    private final PersistentHashMap<String, Airport> airports;
+    private final PersistentHashMap<String, FlightChain> outgoing;
+    private final int totalFlights;
+
+
+    // Outgoing flights of one airport, newest first
+    private static final class FlightChain {
+        final Flight flight;
+        final FlightChain next;
+
+        FlightChain(Flight flight, FlightChain next) {
+            this.flight = flight;
+            this.next = next;
+        }
+    }
+
+
+    private GraphSnapshot(PersistentHashMap<String, Airport> airports,
+                          PersistentHashMap<String, FlightChain> outgoing, int totalFlights) {
+        this.airports = airports;
+        this.outgoing = outgoing;
+        this.totalFlights = totalFlights;
+    }
+
+
+    static GraphSnapshot empty() {
+        return new GraphSnapshot(PersistentHashMap.empty(), PersistentHashMap.empty(), 0);
+    }
+
+
+    GraphSnapshot withAirport(Airport airport) {
+        if (airports.containsKey(airport.getCode())) return this;
+        return new GraphSnapshot(airports.plus(airport.getCode(), airport), outgoing, totalFlights);
+    }
+
+
+    GraphSnapshot withFlight(Flight flight) {
+        String origin = flight.getOrigin().getCode();
+        FlightChain chain = new FlightChain(flight, outgoing.get(origin));
+        return new GraphSnapshot(airports, outgoing.plus(origin, chain), totalFlights + 1);
+    }
+
+
+    // affectedOrigins are the airports with flights into the removed one; only their
+    // chains are rebuilt
+    GraphSnapshot withoutAirport(String code, Collection<String> affectedOrigins) {
+        if (!airports.containsKey(code)) return this;
+
+        PersistentHashMap<String, FlightChain> remaining = outgoing.minus(code);
+        int removed = chainLength(outgoing.get(code));
+
+        for (String origin : affectedOrigins) {
+            FlightChain chain = remaining.get(origin);
+            List<Flight> kept = new ArrayList<>();
+            for (FlightChain c = chain; c != null; c = c.next) {
+                if (c.flight.getDestination().getCode().equals(code)) {
+                    removed++;
+                } else {
+                    kept.add(c.flight);
+                }
+            }
+
+            FlightChain rebuilt = null;
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                rebuilt = new FlightChain(kept.get(i), rebuilt);
+            }
+            remaining = rebuilt != null ? remaining.plus(origin, rebuilt) : remaining.minus(origin);
+        }
+
+        return new GraphSnapshot(airports.minus(code), remaining, totalFlights - removed);
+    }
+
+
+    private static int chainLength(FlightChain chain) {
+        int length = 0;
+        for (; chain != null; chain = chain.next) {
+            length++;
+        }
+        return length;
+    }
+
+
+    public Airport getAirport(String code) {
+        return airports.get(code);
+    }
+
+
+    public boolean hasAirport(String code) {
+        return airports.containsKey(code);
+    }
+
+
+    public int getAirportCount() {
+        return airports.size();
+    }
+
+
+    public int getTotalFlights() {
+        return totalFlights;
+    }
+
+
+    public List<Airport> getAllAirports() {
+        List<Airport> all = new ArrayList<>(airports.size());
+        airports.forEach((code, airport) -> all.add(airport));
+        return all;
+    }
+
+
+    // Flights in the order they were added to the graph
+    public List<Flight> getFlightsFrom(String airportCode) {
+        List<Flight> flights = new ArrayList<>();
+        for (FlightChain c = outgoing.get(airportCode); c != null; c = c.next) {
+            flights.add(c.flight);
+        }
+        Collections.reverse(flights);
+        return flights;
+    }
+
+
+    public List<Flight> getFlightsTo(String airportCode) {
+        List<Flight> incoming = new ArrayList<>();
+        forEachFlight(flight -> {
+            if (flight.getDestination().getCode().equals(airportCode)) {
+                incoming.add(flight);
+            }
+        });
+        return incoming;
+    }
+
+
+    public void forEachFlight(Consumer<Flight> action) {
+        outgoing.forEach((origin, chain) -> {
+            for (FlightChain c = chain; c != null; c = c.next) {
+                action.accept(c.flight);
+            }
+        });
+    }
+
+
+    public List<Flight> findAllDirectFlights(String originCode, String destCode) {
+        List<Flight> direct = new ArrayList<>();
+        for (FlightChain c = outgoing.get(originCode); c != null; c = c.next) {
+            if (c.flight.getDestination().getCode().equals(destCode) && c.flight.hasAvailableSeats()) {
+                direct.add(c.flight);
+            }
+        }
+        direct.sort(Comparator.comparingDouble(Flight::getCurrentPrice));
+        return direct;
+    }
+
+
+    // Direct and one-stop routes, as FlightGraph.findRoutes, against this snapshot
+    public List<Route> findRoutes(String originCode, String destCode) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (Flight direct : findAllDirectFlights(originCode, destCode)) {
+            Route route = new Route(Arrays.asList(direct));
+            if (route.isValidRoute()) {
+                routes.add(route);
+            }
+        }
+
+        for (FlightChain c = outgoing.get(originCode); c != null; c = c.next) {
+            Flight first = c.flight;
+            String intermediate = first.getDestination().getCode();
+            if (!first.hasAvailableSeats() || intermediate.equals(destCode)) continue;
+
+            for (Flight second : findAllDirectFlights(intermediate, destCode)) {
+                Route route = new Route(Arrays.asList(first, second));
+                if (route.isValidRoute()) {
+                    routes.add(route);
+                }
+            }
+        }
+
+        routes.sort(Route.priceComparator());
+        return routes;
+    }
+}
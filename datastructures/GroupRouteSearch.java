@@ -0,0 +1,186 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Route searches between two groups of airports, such as "Greece" and "London". The
+// origin group acts as one virtual source and the destination group as one virtual
+// sink, so a single traversal answers the whole many-to-many query:
+//  - searchRoutes walks each origin's flights once and looks up the onward flights of
+//    each connecting airport once, however many origins reach it, where a pairwise
+//    loop repeats both for every origin/destination pair;
+//  - cheapestRoute runs Dijkstra from all origins at once and stops when the cheapest
+//    arrival anywhere in the destination group is known.
+public final class GroupRouteSearch {
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+
+    // Group membership and Dijkstra state per airport id; entries count only when stamped
+    private static final class Scratch {
+        int[] sourceStamp = new int[0];
+        int[] sinkStamp = new int[0];
+        int[] labelStamp = new int[0];
+        Label[] best = new Label[0];
+        int epoch;
+
+        void ensureCapacity(int size) {
+            if (sourceStamp.length < size) {
+                int newSize = Math.max(size, sourceStamp.length * 2);
+                sourceStamp = new int[newSize];
+                sinkStamp = new int[newSize];
+                labelStamp = new int[newSize];
+                best = new Label[newSize];
+                epoch = 0;
+            }
+        }
+
+        int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(sourceStamp, 0);
+                Arrays.fill(sinkStamp, 0);
+                Arrays.fill(labelStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+
+    private static final class Label {
+        final int airportId;
+        final double fare;
+        final Flight via;
+        final Label parent;
+
+        Label(int airportId, double fare, Flight via, Label parent) {
+            this.airportId = airportId;
+            this.fare = fare;
+            this.via = via;
+            this.parent = parent;
+        }
+    }
+
+
+    GroupRouteSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    private int mark(Scratch s, int[] sources, int[] sinks) {
+        s.ensureCapacity(graph.airportIdBound());
+        int stamp = s.nextEpoch();
+        for (int id : sources) {
+            s.sourceStamp[id] = stamp;
+        }
+        for (int id : sinks) {
+            s.sinkStamp[id] = stamp;
+        }
+        return stamp;
+    }
+
+
+    // Direct and one-stop routes from any origin to any other airport of the
+    // destination group with seats for the party, cheapest first; the same routes as
+    // searchRoutes over every pair, merged
+    List<Route> searchRoutes(int[] sources, int[] sinks, int passengerCount) {
+        Scratch s = scratch.get();
+        int stamp = mark(s, sources, sinks);
+
+        // Onward flights into the destination group, collected once per connecting airport
+        IntHashMap<List<Flight>> onward = new IntHashMap<>();
+        List<Route> routes = new ArrayList<>();
+
+        for (int origin : sources) {
+            List<Flight> outgoing = graph.outgoing(origin);
+            if (outgoing == null) continue;
+            for (Flight first : outgoing) {
+                if (first.getAvailableSeats() < passengerCount) continue;
+                int via = graph.destinationId(first);
+                if (s.sinkStamp[via] == stamp) {
+                    routes.add(new Route(List.of(first)));
+                }
+
+                List<Flight> connections = onward.get(via);
+                if (connections == null) {
+                    connections = flightsIntoGroup(s, stamp, via, passengerCount);
+                    onward.put(via, connections);
+                }
+                for (Flight second : connections) {
+                    // A one-stop route never ends where it started
+                    if (graph.destinationId(second) != origin) {
+                        routes.add(new Route(List.of(first, second)));
+                    }
+                }
+            }
+        }
+
+        routes.sort(Route.priceComparator());
+        return routes;
+    }
+
+
+    private List<Flight> flightsIntoGroup(Scratch s, int stamp, int airportId, int passengerCount) {
+        List<Flight> outgoing = graph.outgoing(airportId);
+        if (outgoing == null) return List.of();
+        List<Flight> flights = new ArrayList<>();
+        for (Flight flight : outgoing) {
+            if (s.sinkStamp[graph.destinationId(flight)] == stamp && flight.getAvailableSeats() >= passengerCount) {
+                flights.add(flight);
+            }
+        }
+        return flights;
+    }
+
+
+    // Cheapest route by current fare, with any number of stops, from any origin to any
+    // airport of the destination group; null if none exists. An airport in both groups
+    // only serves as an origin, since every origin starts at fare zero and so no
+    // journey passes through another origin on its way.
+    Route cheapestRoute(int[] sources, int[] sinks, int passengerCount) {
+        Scratch s = scratch.get();
+        int stamp = mark(s, sources, sinks);
+
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator.comparingDouble((Label l) -> l.fare));
+        for (int origin : sources) {
+            Label start = new Label(origin, 0.0, null, null);
+            s.labelStamp[origin] = stamp;
+            s.best[origin] = start;
+            queue.add(start);
+        }
+
+        Label arrival = null;
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            if (s.best[label.airportId] != label) continue; // superseded by a cheaper label
+            if (s.sinkStamp[label.airportId] == stamp && s.sourceStamp[label.airportId] != stamp) {
+                arrival = label;
+                break;
+            }
+
+            List<Flight> outgoing = graph.outgoing(label.airportId);
+            if (outgoing == null) continue;
+            for (Flight flight : outgoing) {
+                if (flight.getAvailableSeats() < passengerCount) continue;
+                int next = graph.destinationId(flight);
+                double fare = label.fare + flight.getCurrentPrice();
+                if (s.labelStamp[next] == stamp && s.best[next].fare <= fare) continue;
+                Label improved = new Label(next, fare, flight, label);
+                s.labelStamp[next] = stamp;
+                s.best[next] = improved;
+                queue.add(improved);
+            }
+        }
+
+        if (arrival == null) return null;
+        List<Flight> legs = new ArrayList<>();
+        for (Label l = arrival; l.via != null; l = l.parent) {
+            legs.add(l.via);
+        }
+        Collections.reverse(legs);
+        return new Route(legs);
+    }
+}
@@ -0,0 +1,235 @@
+package datastructures;
+
+
+// Open-addressing map from primitive int keys to values: keys live in an int[]
+// next to a value array, so lookups neither box the key nor allocate entries
+public class IntHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double LOAD_FACTOR = 0.7;
+
+    // FREE_KEY marks empty slots; a real mapping for FREE_KEY is kept on the side
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int capacity;
+    private int mask;
+
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    public IntHashMap(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        int n = 1;
+        while (n < initialCapacity / LOAD_FACTOR && n < (1 << 30)) {
+            n <<= 1;
+        }
+        allocate(n);
+    }
+
+
+    public IntHashMap<V> copy() {
+        IntHashMap<V> copy = new IntHashMap<>(1);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.capacity = capacity;
+        copy.mask = mask;
+        copy.hasFreeKey = hasFreeKey;
+        copy.freeKeyValue = freeKeyValue;
+        return copy;
+    }
+
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        keys = new int[newCapacity];
+        values = new Object[newCapacity];
+    }
+
+
+    private int home(int key) {
+        return CustomHashMap.spread(key) & mask;
+    }
+
+
+    private int indexOf(int key) {
+        int index = home(key);
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    public void put(int key, V value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+
+        int index = home(key);
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if (size >= capacity * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) return null;
+            V removed = freeKeyValue;
+            hasFreeKey = false;
+            freeKeyValue = null;
+            size--;
+            return removed;
+        }
+
+        int index = indexOf(key);
+        if (index < 0) return null;
+
+        V removed = (V) values[index];
+        size--;
+
+        // Shift later members of the probe run back so no tombstones are needed
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            int home = home(keys[next]);
+            // Move the entry into the gap unless its home lies cyclically in (gap, next]
+            boolean homeBetween = gap <= next ? (gap < home && home <= next) : (gap < home || home <= next);
+            if (!homeBetween) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+        values[gap] = null;
+
+        return removed;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        allocate(capacity * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = home(oldKeys[i]);
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    public double getLoadFactor() {
+        return (double) size / capacity;
+    }
+
+
+    public void clear() {
+        allocate(capacity);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        size = 0;
+    }
+
+
+    public String getStatistics() {
+        int maxProbeLength = 0;
+        long totalProbeLength = 0;
+        int stored = 0;
+
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY) {
+                int probeLength = ((i - home(keys[i])) & mask) + 1;
+                maxProbeLength = Math.max(maxProbeLength, probeLength);
+                totalProbeLength += probeLength;
+                stored++;
+            }
+        }
+
+        return String.format("Int Hash Table Statistics:\n" +
+                        "  Size: %d\n" +
+                        "  Capacity: %d\n" +
+                        "  Load Factor: %.3f\n" +
+                        "  Max Probe Length: %d\n" +
+                        "  Avg Probe Length: %.2f",
+                size, capacity, getLoadFactor(),
+                maxProbeLength, stored > 0 ? (double) totalProbeLength / stored : 0);
+    }
+}
@@ -0,0 +1,19 @@
+package datastructures;
+
+import java.util.Map;
+
+
+// Reusable position over a CustomMap: call advance() until it returns false,
+// reading key()/value() in between; reset() rewinds it for another pass
+public interface MapCursor<K, V> {
+
+    boolean advance();
+
+    K key();
+
+    V value();
+
+    Map.Entry<K, V> entry();
+
+    void reset();
+}
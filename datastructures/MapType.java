@@ -0,0 +1,19 @@
+package datastructures;
+
+
+public enum MapType {
+    CHAINING,
+    ROBIN_HOOD,
+    CONCURRENT;
+
+    public <K, V> CustomMap<K, V> create() {
+        switch (this) {
+            case ROBIN_HOOD:
+                return new RobinHoodHashMap<>();
+            case CONCURRENT:
+                return new ConcurrentCustomHashMap<>();
+            default:
+                return new CustomHashMap<>();
+        }
+    }
+}
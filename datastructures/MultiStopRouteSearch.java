@@ -0,0 +1,216 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Bounded-depth route enumeration over a FlightGraph. A depth-first search extends
+// itineraries one leg at a time and cuts a branch when:
+//  - the next airport is already on the itinerary (no cycles or revisits),
+//  - the leg lacks seats for the party,
+//  - the fare so far exceeds the price cap, or the k-th cheapest route found so far,
+//  - the destination is more legs away than the itinerary has left, using hop
+//    distances from a reverse BFS over the incoming lists.
+// The last test keeps hub-heavy graphs from enumerating paths that can never arrive.
+public final class MultiStopRouteSearch {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final SearchCounter lastExpansions = new SearchCounter();
+
+
+    // Per-thread arrays indexed by airport id; entries are valid when their stamp matches
+    private static final class Scratch {
+        int[] onPathStamp = new int[0];
+        int[] distanceStamp = new int[0];
+        int[] distance = new int[0];
+        int[] queue = new int[0];
+        int epoch;
+
+        void ensureCapacity(int size) {
+            if (onPathStamp.length < size) {
+                int newSize = Math.max(size, onPathStamp.length * 2);
+                onPathStamp = new int[newSize];
+                distanceStamp = new int[newSize];
+                distance = new int[newSize];
+                queue = new int[newSize];
+                epoch = 0;
+            }
+        }
+
+        int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(onPathStamp, 0);
+                Arrays.fill(distanceStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+
+    private static final class Candidate {
+        final Flight[] legs;
+        final double price;
+
+        Candidate(Flight[] legs, double price) {
+            this.legs = legs;
+            this.price = price;
+        }
+    }
+
+
+    MultiStopRouteSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    // Routes of at most maxStops + 1 legs, cheapest first; limit caps how many are kept
+    public List<Route> search(String originCode, String destCode, int maxStops,
+                              int passengerCount, double maxTotalPrice, int limit) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("Max stops cannot be negative");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        int originId = graph.airportId(originCode);
+        int destId = graph.airportId(destCode);
+        if (originId < 0 || destId < 0 || originId == destId) {
+            return new ArrayList<>();
+        }
+
+        int maxLegs = maxStops == Integer.MAX_VALUE ? Integer.MAX_VALUE : maxStops + 1;
+        Search search = new Search(destId, maxLegs, passengerCount, maxTotalPrice, limit);
+        search.run(originId);
+        lastExpansions.set(search.expansions);
+        return search.routes();
+    }
+
+
+    // Itineraries extended during the most recent search, for benchmarking
+    public long getLastExpansions() {
+        return lastExpansions.get();
+    }
+
+
+    private final class Search {
+        final int destId;
+        final int maxLegs;
+        final int passengerCount;
+        final double maxTotalPrice;
+        final int limit;
+        final Scratch s;
+        final int stamp;
+        final Flight[] path;
+        // Max-heap on price, so the most expensive kept route is evicted first
+        final PriorityQueue<Candidate> best;
+        long expansions;
+
+        Search(int destId, int maxLegs, int passengerCount, double maxTotalPrice, int limit) {
+            this.destId = destId;
+            this.maxLegs = maxLegs;
+            this.passengerCount = passengerCount;
+            this.maxTotalPrice = maxTotalPrice;
+            this.limit = limit;
+            this.best = new PriorityQueue<>((a, b) -> Double.compare(b.price, a.price));
+            this.s = scratch.get();
+            s.ensureCapacity(graph.airportIdBound());
+            this.stamp = s.nextEpoch();
+            // A path never revisits an airport, so it has fewer legs than there are ids
+            this.path = new Flight[Math.min(maxLegs, s.onPathStamp.length)];
+        }
+
+        void run(int originId) {
+            computeHopDistances();
+            s.onPathStamp[originId] = stamp;
+            expand(originId, 0, 0.0);
+        }
+
+        // Reverse BFS from the destination, at most maxLegs - 1 levels deep
+        void computeHopDistances() {
+            int head = 0;
+            int tail = 0;
+            s.queue[tail++] = destId;
+            s.distanceStamp[destId] = stamp;
+            s.distance[destId] = 0;
+
+            while (head < tail) {
+                int current = s.queue[head++];
+                int d = s.distance[current];
+                if (d >= maxLegs - 1) continue;
+
+                List<Flight> incoming = graph.incoming(current);
+                if (incoming == null) continue;
+                for (Flight flight : incoming) {
+                    int previous = graph.originId(flight);
+                    if (s.distanceStamp[previous] != stamp && flight.getAvailableSeats() >= passengerCount) {
+                        s.distanceStamp[previous] = stamp;
+                        s.distance[previous] = d + 1;
+                        s.queue[tail++] = previous;
+                    }
+                }
+            }
+        }
+
+        int distance(int airportId) {
+            return s.distanceStamp[airportId] == stamp ? s.distance[airportId] : UNREACHED;
+        }
+
+        double priceBound() {
+            return best.size() < limit ? maxTotalPrice : Math.min(maxTotalPrice, best.peek().price);
+        }
+
+        void expand(int airportId, int depth, double cost) {
+            expansions++;
+            List<Flight> outgoing = graph.outgoing(airportId);
+            if (outgoing == null) return;
+
+            int legsLeftAfter = maxLegs - depth - 1;
+            for (Flight flight : outgoing) {
+                int next = graph.destinationId(flight);
+                if (s.onPathStamp[next] == stamp) continue;
+                if (next != destId && distance(next) > legsLeftAfter) continue;
+                if (flight.getAvailableSeats() < passengerCount) continue;
+
+                double newCost = cost + flight.getCurrentPrice();
+                if (newCost > priceBound()) continue;
+
+                path[depth] = flight;
+                if (next == destId) {
+                    record(depth + 1, newCost);
+                } else {
+                    s.onPathStamp[next] = stamp;
+                    expand(next, depth + 1, newCost);
+                    s.onPathStamp[next] = 0;
+                }
+            }
+        }
+
+        void record(int legs, double price) {
+            best.add(new Candidate(Arrays.copyOf(path, legs), price));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Route> routes() {
+            List<Route> routes = new ArrayList<>(best.size());
+            for (Candidate candidate : best) {
+                routes.add(new Route(Arrays.asList(candidate.legs)));
+            }
+            routes.sort(Route.priceComparator());
+            return routes;
+        }
+    }
+}
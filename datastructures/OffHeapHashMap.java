@@ -0,0 +1,452 @@
+package datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+// Hash map from fixed-width ASCII keys (airport codes, flight numbers) to long values
+// stored outside the Java heap, in a direct ByteBuffer or a memory-mapped file.
+// Slots are [used flag][key bytes, zero padded][8-byte value] with linear probing.
+// A file-backed map grows into a new file that replaces the old one only once it is
+// complete, so a crash mid-resize leaves the previous table intact on disk.
+public class OffHeapHashMap implements AutoCloseable {
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x46484D31; // "FHM1"
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_KEY_WIDTH = 64;
+    private static final double LOAD_FACTOR = 0.7;
+
+    private final int keyWidth;
+    private final int slotSize;
+    private final byte[] keyBuffer;
+    private final Path file;
+    private FileChannel channel;
+
+    private ByteBuffer buffer;
+    private int capacity;
+    private int mask;
+    private int size;
+    private boolean closed;
+
+
+    public OffHeapHashMap(int keyWidth, int initialCapacity) {
+        this(keyWidth, initialCapacity, null, null);
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+
+    private OffHeapHashMap(int keyWidth, int initialCapacity, Path file, FileChannel channel) {
+        if (keyWidth <= 0 || keyWidth > MAX_KEY_WIDTH) {
+            throw new IllegalArgumentException("Key width must be between 1 and " + MAX_KEY_WIDTH);
+        }
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        this.keyWidth = keyWidth;
+        this.slotSize = 1 + keyWidth + Long.BYTES;
+        this.keyBuffer = new byte[keyWidth];
+        this.file = file;
+        this.channel = channel;
+    }
+
+
+    // Creates a map backed by the file, or reopens the map previously stored in it
+    public static OffHeapHashMap open(Path file, int keyWidth, int initialCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OffHeapHashMap map = new OffHeapHashMap(keyWidth, initialCapacity, file, channel);
+
+        try {
+            if (channel.size() == 0) {
+                map.allocate(tableSizeFor(initialCapacity));
+            } else {
+                map.reopen();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return map;
+    }
+
+
+    private static int tableSizeFor(int requested) {
+        int n = 1;
+        while (n < requested / LOAD_FACTOR && n < (1 << 30)) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+
+    private void reopen() throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (mapped.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("File does not contain an off-heap hash map");
+        }
+        if (mapped.getInt(4) != keyWidth) {
+            throw new IllegalArgumentException("File was written with key width " + mapped.getInt(4));
+        }
+        buffer = mapped;
+        capacity = mapped.getInt(8);
+        mask = capacity - 1;
+        size = mapped.getInt(12);
+    }
+
+
+    // Only called for a new direct buffer or an empty file, which maps as zeros
+    private void allocate(int newCapacity) {
+        long bytes = tableBytes(newCapacity);
+        if (channel == null) {
+            buffer = ByteBuffer.allocateDirect((int) bytes);
+        } else {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map off-heap map file", e);
+            }
+        }
+
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        size = 0;
+        writeHeader(buffer, capacity, size);
+    }
+
+
+    private long tableBytes(int capacity) {
+        long bytes = HEADER_SIZE + (long) capacity * slotSize;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap map cannot grow beyond 2 GB");
+        }
+        return bytes;
+    }
+
+
+    private void writeHeader(ByteBuffer table, int capacity, int size) {
+        table.putInt(0, MAGIC);
+        table.putInt(4, keyWidth);
+        table.putInt(8, capacity);
+        table.putInt(12, size);
+    }
+
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap map is closed");
+        }
+    }
+
+
+    // Copies the key into keyBuffer (zero padded) and returns its hash
+    private int encodeKey(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (key.length() > keyWidth) {
+            throw new IllegalArgumentException("Key longer than " + keyWidth + " characters: " + key);
+        }
+
+        int h = 0;
+        for (int i = 0; i < keyWidth; i++) {
+            byte b = 0;
+            if (i < key.length()) {
+                char c = key.charAt(i);
+                if (c == 0 || c > 0x7F) {
+                    throw new IllegalArgumentException("Keys must be non-empty ASCII characters: " + key);
+                }
+                b = (byte) c;
+            }
+            keyBuffer[i] = b;
+            h = 31 * h + b;
+        }
+        return CustomHashMap.spread(h);
+    }
+
+
+    private int slotOffset(int index) {
+        return HEADER_SIZE + index * slotSize;
+    }
+
+
+    private boolean isUsed(int index) {
+        return buffer.get(slotOffset(index)) != 0;
+    }
+
+
+    private boolean keyMatches(int index) {
+        int offset = slotOffset(index) + 1;
+        for (int i = 0; i < keyWidth; i++) {
+            if (buffer.get(offset + i) != keyBuffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private int slotHash(int index) {
+        int offset = slotOffset(index) + 1;
+        int h = 0;
+        for (int i = 0; i < keyWidth; i++) {
+            h = 31 * h + buffer.get(offset + i);
+        }
+        return CustomHashMap.spread(h);
+    }
+
+
+    // Looks up the key currently held in keyBuffer
+    private int indexOf(int hash) {
+        int index = hash & mask;
+        while (isUsed(index)) {
+            if (keyMatches(index)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    public void put(String key, long value) {
+        checkOpen();
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException("NO_VALUE is reserved for missing keys");
+        }
+
+        int hash = encodeKey(key);
+        int index = hash & mask;
+        while (isUsed(index)) {
+            if (keyMatches(index)) {
+                buffer.putLong(slotOffset(index) + 1 + keyWidth, value);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        int offset = slotOffset(index);
+        buffer.put(offset, (byte) 1);
+        for (int i = 0; i < keyWidth; i++) {
+            buffer.put(offset + 1 + i, keyBuffer[i]);
+        }
+        buffer.putLong(offset + 1 + keyWidth, value);
+        size++;
+        buffer.putInt(12, size);
+
+        if (size >= capacity * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+
+    public long get(String key) {
+        checkOpen();
+        int index = indexOf(encodeKey(key));
+        return index >= 0 ? buffer.getLong(slotOffset(index) + 1 + keyWidth) : NO_VALUE;
+    }
+
+
+    public boolean containsKey(String key) {
+        checkOpen();
+        return indexOf(encodeKey(key)) >= 0;
+    }
+
+
+    public void remove(String key) {
+        checkOpen();
+        int index = indexOf(encodeKey(key));
+        if (index < 0) return;
+
+        // Backward-shift deletion, as in IntHashMap, so no tombstones accumulate on disk
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (isUsed(next)) {
+            int home = slotHash(next) & mask;
+            boolean homeBetween = gap <= next ? (gap < home && home <= next) : (gap < home || home <= next);
+            if (!homeBetween) {
+                copySlot(next, gap);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        clearSlot(gap);
+
+        size--;
+        buffer.putInt(12, size);
+    }
+
+
+    private void copySlot(int from, int to) {
+        int source = slotOffset(from);
+        int target = slotOffset(to);
+        for (int i = 0; i < slotSize; i++) {
+            buffer.put(target + i, buffer.get(source + i));
+        }
+    }
+
+
+    private void clearSlot(int index) {
+        int offset = slotOffset(index);
+        for (int i = 0; i < slotSize; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+
+    private void resize() {
+        int newCapacity = capacity * 2;
+        long bytes = tableBytes(newCapacity);
+        if (channel == null) {
+            ByteBuffer table = ByteBuffer.allocateDirect((int) bytes);
+            rehashInto(table, newCapacity);
+            buffer = table;
+        } else {
+            resizeFile(newCapacity, bytes);
+        }
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+
+    // Builds the larger table in a staging file next to the map's file, forces it to
+    // disk, and only then renames it over the original; until the rename the old
+    // file is untouched, and after it the new one is complete
+    private void resizeFile(int newCapacity, long bytes) {
+        Path staging = file.resolveSibling(file.getFileName() + ".resize");
+        FileChannel stagingChannel = null;
+        try {
+            stagingChannel = FileChannel.open(staging, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer table = stagingChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            rehashInto(table, newCapacity);
+            table.force();
+            Files.move(staging, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            // The old mapping stays valid until collected; see close()
+            channel.close();
+            channel = stagingChannel;
+            buffer = table;
+        } catch (IOException e) {
+            try {
+                if (stagingChannel != null) stagingChannel.close();
+                Files.deleteIfExists(staging);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new IllegalStateException("Cannot resize off-heap map file", e);
+        }
+    }
+
+
+    // Copies every used slot of the current table into an empty one of the new capacity
+    private void rehashInto(ByteBuffer table, int newCapacity) {
+        int newMask = newCapacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slotOffset(slot);
+            if (buffer.get(offset) == 0) continue;
+
+            int h = 0;
+            for (int i = 0; i < keyWidth; i++) {
+                h = 31 * h + buffer.get(offset + 1 + i);
+            }
+            int index = CustomHashMap.spread(h) & newMask;
+            while (table.get(slotOffset(index)) != 0) {
+                index = (index + 1) & newMask;
+            }
+            int target = slotOffset(index);
+            for (int i = 0; i < slotSize; i++) {
+                table.put(target + i, buffer.get(offset + i));
+            }
+        }
+        writeHeader(table, newCapacity, size);
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    public double getLoadFactor() {
+        return (double) size / capacity;
+    }
+
+
+    public long getOffHeapBytes() {
+        return closed ? 0 : buffer.capacity();
+    }
+
+
+    public boolean isFileBacked() {
+        return channel != null;
+    }
+
+
+    public void flush() {
+        checkOpen();
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+
+    // Java has no supported way to unmap a file: a file-backed map's mapping, like
+    // those of tables it outgrew, stays in the address space until the buffer is
+    // garbage collected. The data is forced to disk here, so only the mapping lingers.
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+        closed = true;
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+
+    public String getStatistics() {
+        checkOpen();
+        int maxProbeLength = 0;
+        long totalProbeLength = 0;
+
+        for (int i = 0; i < capacity; i++) {
+            if (isUsed(i)) {
+                int probeLength = ((i - (slotHash(i) & mask)) & mask) + 1;
+                maxProbeLength = Math.max(maxProbeLength, probeLength);
+                totalProbeLength += probeLength;
+            }
+        }
+
+        return String.format("Off-Heap Hash Table Statistics:\n" +
+                        "  Size: %d\n" +
+                        "  Capacity: %d\n" +
+                        "  Load Factor: %.3f\n" +
+                        "  Key Width: %d bytes\n" +
+                        "  Off-heap Bytes: %d (%s)\n" +
+                        "  Max Probe Length: %d\n" +
+                        "  Avg Probe Length: %.2f",
+                size, capacity, getLoadFactor(), keyWidth,
+                getOffHeapBytes(), isFileBacked() ? "memory-mapped file" : "direct buffer",
+                maxProbeLength, size > 0 ? (double) totalProbeLength / size : 0);
+    }
+}
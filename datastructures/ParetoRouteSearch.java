@@ -0,0 +1,313 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+
+
+// Multi-criteria route search returning the Pareto-optimal itineraries for
+// (total price, total duration, leg count): those no other itinerary beats or
+// matches on all three at once. Each airport keeps a bag of labels, one per
+// non-dominated partial itinerary ending there. Labels are expanded in order of the
+// cheapest fare they could still arrive with. A new label is dropped as soon as a
+// label at the same airport dominates it, or a route already at the destination
+// dominates the best it could still arrive with (reverse searches for fares and hop
+// counts give those bounds). Only surviving labels are turned into Route objects.
+// A label never returns to an airport already on its path, so routes are loopless.
+// Durations are the ones Route reports: first departure to last arrival while every
+// leg has a schedule, the fixed estimate below once any leg lacks one. A scheduled
+// leg following another must leave the connecting airport's minimum connection time
+// after the landing, so a label only dominates one that lands no earlier and, while
+// both are fully scheduled, set off no later; either could make the other's next
+// connection, or its final duration, the worse one.
+public final class ParetoRouteSearch {
+    // Fixed per-leg and per-connection times, Route's estimate for unscheduled flights
+    private static final int FLIGHT_MINUTES = 120;
+    private static final int LAYOVER_MINUTES = 60;
+
+    private final FlightGraph graph;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final SearchCounter lastLabels = new SearchCounter();
+
+
+    // Per-thread hop distances to the destination; entries count only when stamped
+    private static final class Scratch {
+        int[] hops = new int[0];
+        int[] hopStamp = new int[0];
+        int[] queue = new int[0];
+        int epoch;
+
+        void ensureCapacity(int size) {
+            if (hops.length < size) {
+                int newSize = Math.max(size, hops.length * 2);
+                hops = new int[newSize];
+                hopStamp = new int[newSize];
+                queue = new int[newSize];
+                epoch = 0;
+            }
+        }
+
+        int nextEpoch() {
+            if (++epoch == 0) {
+                Arrays.fill(hopStamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+
+    // A partial itinerary. duration is what Route would report if it ended here;
+    // firstDeparture is a minute on the shared clock, set while scheduled, and arrival
+    // the last leg's landing minute, or Integer.MIN_VALUE if that leg has no schedule.
+    private static final class Label {
+        final int airportId;
+        final double price;
+        final int duration;
+        final int legs;
+        final boolean scheduled;
+        final int firstDeparture;
+        final int arrival;
+        final Flight via;
+        final Label parent;
+        boolean dominated;
+
+        Label(int airportId, double price, int duration, int legs, boolean scheduled,
+              int firstDeparture, int arrival, Flight via, Label parent) {
+            this.airportId = airportId;
+            this.price = price;
+            this.duration = duration;
+            this.legs = legs;
+            this.scheduled = scheduled;
+            this.firstDeparture = firstDeparture;
+            this.arrival = arrival;
+            this.via = via;
+            this.parent = parent;
+        }
+
+        // Whether every extension of other can be matched by one of this label at no
+        // greater cost; at the destination nothing is extended and the totals decide
+        boolean dominates(Label other, boolean atDestination) {
+            if (price > other.price || legs > other.legs) return false;
+            if (atDestination || legs == 0) return duration <= other.duration;
+            if (scheduled != other.scheduled || arrival > other.arrival) return false;
+            // Unscheduled durations follow from the leg count alone
+            return !scheduled || firstDeparture >= other.firstDeparture;
+        }
+    }
+
+
+    ParetoRouteSearch(FlightGraph graph) {
+        this.graph = graph;
+    }
+
+
+    // Non-dominated routes of at most maxStops + 1 legs, cheapest first
+    public List<Route> search(String originCode, String destCode, int passengerCount, int maxStops) {
+        if (originCode == null || destCode == null) {
+            throw new IllegalArgumentException("Airport codes cannot be null");
+        }
+        if (passengerCount <= 0) {
+            throw new IllegalArgumentException("Passenger count must be positive");
+        }
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("Max stops cannot be negative");
+        }
+
+        int originId = graph.airportId(originCode);
+        int destId = graph.airportId(destCode);
+        if (originId < 0 || destId < 0 || originId == destId) {
+            return new ArrayList<>();
+        }
+
+        int maxLegs = maxStops == Integer.MAX_VALUE ? Integer.MAX_VALUE : maxStops + 1;
+        Scratch sc = scratch.get();
+        sc.ensureCapacity(graph.airportIdBound());
+        int stamp = computeHopDistances(sc, destId, passengerCount);
+        CheapestFareSearch.FareLowerBounds fares =
+                graph.getCheapestFareSearch().currentFaresTo(destId, passengerCount);
+
+        IntHashMap<List<Label>> bags = new IntHashMap<>();
+        // Ordered by the cheapest fare the label can still arrive at, so good
+        // itineraries reach the destination early and prune everything they dominate
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator
+                .comparingDouble((Label l) -> l.price + fares.get(l.airportId))
+                .thenComparingInt(l -> l.legs));
+        long labels = 1;
+
+        Label start = new Label(originId, 0.0, 0, 0, false, 0, 0, null, null);
+        bags.put(originId, new ArrayList<>(List.of(start)));
+        queue.add(start);
+
+        List<Label> arrived = new ArrayList<>();
+        bags.put(destId, arrived);
+
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            if (label.dominated || label.airportId == destId || label.legs >= maxLegs) continue;
+
+            List<Flight> outgoing = graph.outgoing(label.airportId);
+            if (outgoing == null) continue;
+
+            for (Flight flight : outgoing) {
+                if (flight.getAvailableSeats() < passengerCount) continue;
+
+                int next = graph.destinationId(flight);
+                int hops = sc.hopStamp[next] == stamp ? sc.hops[next] : -1;
+                if (hops < 0 || label.legs + 1 + hops > maxLegs) continue; // cannot arrive in time
+
+                if (onPath(label, next)) continue;
+                Label candidate = extend(label, flight, next);
+                if (candidate == null) continue; // connection too tight
+
+                // The best this label could still arrive with; if a route already at the
+                // destination dominates even that, nothing built from it can survive
+                if (next != destId && isDominated(arrived, candidate.price + fares.get(next),
+                        minimumFinalMinutes(candidate, hops), candidate.legs + hops)) continue;
+
+                boolean atDestination = next == destId;
+                List<Label> bag = bags.get(next);
+                if (bag == null) {
+                    bag = new ArrayList<>();
+                    bags.put(next, bag);
+                } else if (isDominated(bag, candidate, atDestination)) {
+                    continue;
+                }
+
+                removeDominatedBy(bag, candidate, atDestination);
+                bag.add(candidate);
+                labels++;
+                if (next != destId) {
+                    queue.add(candidate);
+                }
+            }
+        }
+
+        lastLabels.set(labels);
+        List<Route> routes = new ArrayList<>(arrived.size());
+        for (Label label : arrived) {
+            routes.add(toRoute(label));
+        }
+        routes.sort(Route.priceComparator());
+        return routes;
+    }
+
+
+    // The label one more leg on, or null if a scheduled leg leaves before the
+    // connection from the scheduled leg before it can be made
+    private static Label extend(Label label, Flight flight, int next) {
+        double price = label.price + flight.getCurrentPrice();
+        int legs = label.legs + 1;
+        if (!flight.hasSchedule()) {
+            return new Label(next, price, estimatedMinutes(legs), legs, false, 0, Integer.MIN_VALUE, flight, label);
+        }
+
+        int departure = ConnectionScan.minutes(flight.getDepartureTime());
+        int arrival = ConnectionScan.minutes(flight.getArrivalTime());
+        if (label.legs > 0 && label.arrival != Integer.MIN_VALUE
+                && departure < label.arrival + flight.getOrigin().getMinimumConnectionMinutes()) {
+            return null;
+        }
+        if (label.legs > 0 && !label.scheduled) {
+            return new Label(next, price, estimatedMinutes(legs), legs, false, 0, arrival, flight, label);
+        }
+        int firstDeparture = label.legs > 0 ? label.firstDeparture : departure;
+        return new Label(next, price, arrival - firstDeparture, legs, true, firstDeparture, arrival, flight, label);
+    }
+
+
+    // A loop costs more on every criterion only while all durations are estimates;
+    // a tight scheduled connection can make the way round look worth taking
+    private static boolean onPath(Label label, int airportId) {
+        for (Label l = label; l != null; l = l.parent) {
+            if (l.airportId == airportId) return true;
+        }
+        return false;
+    }
+
+
+    private static boolean isDominated(List<Label> bag, double price, int duration, int legs) {
+        for (Label label : bag) {
+            if (label.price <= price && label.duration <= duration && label.legs <= legs) return true;
+        }
+        return false;
+    }
+
+
+    private static boolean isDominated(List<Label> bag, Label candidate, boolean atDestination) {
+        for (Label label : bag) {
+            if (label.dominates(candidate, atDestination)) return true;
+        }
+        return false;
+    }
+
+
+    // Route's estimate for an itinerary of this many legs, not all of them scheduled
+    private static int estimatedMinutes(int legs) {
+        return legs * FLIGHT_MINUTES + (legs - 1) * LAYOVER_MINUTES;
+    }
+
+
+    // Least duration a route through the label can end with, hops more legs at least.
+    // A scheduled one only gets longer while it stays scheduled, and turns into the
+    // leg-count estimate if it takes an unscheduled flight.
+    private static int minimumFinalMinutes(Label label, int hops) {
+        int estimate = estimatedMinutes(label.legs + hops);
+        return label.scheduled ? Math.min(label.duration, estimate) : estimate;
+    }
+
+
+    // Reverse BFS from the destination over flights with seats for the party
+    private int computeHopDistances(Scratch sc, int destId, int passengerCount) {
+        int stamp = sc.nextEpoch();
+        int head = 0;
+        int tail = 0;
+        sc.queue[tail++] = destId;
+        sc.hopStamp[destId] = stamp;
+        sc.hops[destId] = 0;
+
+        while (head < tail) {
+            int current = sc.queue[head++];
+            List<Flight> incoming = graph.incoming(current);
+            if (incoming == null) continue;
+            for (Flight flight : incoming) {
+                int previous = graph.originId(flight);
+                if (sc.hopStamp[previous] != stamp && flight.getAvailableSeats() >= passengerCount) {
+                    sc.hopStamp[previous] = stamp;
+                    sc.hops[previous] = sc.hops[current] + 1;
+                    sc.queue[tail++] = previous;
+                }
+            }
+        }
+        return stamp;
+    }
+
+
+    // Drops dominated labels from the bag and marks them so queued copies are skipped
+    private static void removeDominatedBy(List<Label> bag, Label candidate, boolean atDestination) {
+        for (int i = bag.size() - 1; i >= 0; i--) {
+            Label label = bag.get(i);
+            if (candidate.dominates(label, atDestination)) {
+                label.dominated = true;
+                bag.set(i, bag.get(bag.size() - 1));
+                bag.remove(bag.size() - 1);
+            }
+        }
+    }
+
+
+    private static Route toRoute(Label label) {
+        Flight[] legs = new Flight[label.legs];
+        for (Label l = label; l.via != null; l = l.parent) {
+            legs[l.legs - 1] = l.via;
+        }
+        return new Route(Arrays.asList(legs));
+    }
+
+
+    // Labels created by the most recent search, for benchmarking
+    public long getLastLabelCount() {
+        return lastLabels.get();
+    }
+}
@@ -0,0 +1,312 @@
+package datastructures;
+
+import java.util.function.BiConsumer;
+
+
+// Immutable hash array mapped trie. plus() and minus() copy only the O(log32 n) nodes
+// on the path to the key and share everything else, so every earlier version of the
+// map stays valid and readable while newer versions are built from it.
+public final class PersistentHashMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+
+    // A trie node child is either a Leaf or a Node
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+
+    private abstract static class Node {
+        abstract Object get(int shift, int hash, Object key);
+
+        abstract Node put(int shift, Leaf leaf, boolean[] added);
+
+        // Returns the node after removal, the single Leaf left over, or null when empty
+        abstract Object remove(int shift, int hash, Object key);
+
+        abstract void forEach(BiConsumer<Object, Object> action);
+    }
+
+
+    private static final class BitmapNode extends Node {
+        final int bitmap;
+        final Object[] children;
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        Object get(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return null;
+
+            Object child = children[Integer.bitCount(bitmap & (bit - 1))];
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf.value : null;
+            }
+            return ((Node) child).get(shift + BITS, hash, key);
+        }
+
+        Node put(int shift, Leaf leaf, boolean[] added) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+
+            if ((bitmap & bit) == 0) {
+                Object[] newChildren = new Object[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = leaf;
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newChildren);
+            }
+
+            Object child = children[index];
+            Object newChild;
+            if (child instanceof Leaf) {
+                Leaf existing = (Leaf) child;
+                if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                    if (existing.value == leaf.value) return this;
+                    newChild = leaf;
+                } else {
+                    newChild = merge(shift + BITS, existing, leaf);
+                    added[0] = true;
+                }
+            } else {
+                newChild = ((Node) child).put(shift + BITS, leaf, added);
+                if (newChild == child) return this;
+            }
+
+            Object[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new BitmapNode(bitmap, newChildren);
+        }
+
+        Object remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return this;
+
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            Object child = children[index];
+            Object newChild;
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                if (leaf.hash != hash || !leaf.key.equals(key)) return this;
+                newChild = null;
+            } else {
+                newChild = ((Node) child).remove(shift + BITS, hash, key);
+                if (newChild == child) return this;
+            }
+
+            if (newChild != null) {
+                Object[] newChildren = children.clone();
+                newChildren[index] = newChild;
+                return new BitmapNode(bitmap, newChildren);
+            }
+
+            if (children.length == 1) return null;
+            if (children.length == 2 && children[1 - index] instanceof Leaf) {
+                // Let the parent inline the last leaf instead of keeping a one-leaf node
+                return children[1 - index];
+            }
+
+            Object[] newChildren = new Object[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newChildren);
+        }
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (Object child : children) {
+                if (child instanceof Leaf) {
+                    action.accept(((Leaf) child).key, ((Leaf) child).value);
+                } else {
+                    ((Node) child).forEach(action);
+                }
+            }
+        }
+    }
+
+
+    // Keys whose full 32-bit hashes are equal
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) return i;
+            }
+            return -1;
+        }
+
+        Object get(int shift, int hash, Object key) {
+            if (hash != this.hash) return null;
+            int index = indexOf(key);
+            return index >= 0 ? leaves[index].value : null;
+        }
+
+        Node put(int shift, Leaf leaf, boolean[] added) {
+            if (leaf.hash != hash) {
+                // A different hash sharing this prefix; push the collisions one level down
+                int bit = 1 << ((hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[] {this}).put(shift, leaf, added);
+            }
+
+            int index = indexOf(leaf.key);
+            if (index >= 0) {
+                if (leaves[index].value == leaf.value) return this;
+                Leaf[] newLeaves = leaves.clone();
+                newLeaves[index] = leaf;
+                return new CollisionNode(hash, newLeaves);
+            }
+
+            Leaf[] newLeaves = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+            newLeaves[leaves.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        Object remove(int shift, int hash, Object key) {
+            if (hash != this.hash) return this;
+            int index = indexOf(key);
+            if (index < 0) return this;
+            if (leaves.length == 2) return leaves[1 - index];
+
+            Leaf[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, index);
+            System.arraycopy(leaves, index + 1, newLeaves, index, leaves.length - index - 1);
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (Leaf leaf : leaves) {
+                action.accept(leaf.key, leaf.value);
+            }
+        }
+    }
+
+
+    // Smallest subtree at the given depth that holds both leaves
+    private static Node merge(int shift, Leaf a, Leaf b) {
+        if (a.hash == b.hash) {
+            return new CollisionNode(a.hash, new Leaf[] {a, b});
+        }
+
+        int indexA = (a.hash >>> shift) & MASK;
+        int indexB = (b.hash >>> shift) & MASK;
+        if (indexA == indexB) {
+            return new BitmapNode(1 << indexA, new Object[] {merge(shift + BITS, a, b)});
+        }
+        Object[] children = indexA < indexB ? new Object[] {a, b} : new Object[] {b, a};
+        return new BitmapNode((1 << indexA) | (1 << indexB), children);
+    }
+
+
+    private static int hash(Object key) {
+        return CustomHashMap.spread(key.hashCode());
+    }
+
+
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+
+        Leaf leaf = new Leaf(hash(key), key, value);
+        if (root == null) {
+            int bit = 1 << (leaf.hash & MASK);
+            return new PersistentHashMap<>(new BitmapNode(bit, new Object[] {leaf}), 1);
+        }
+
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, leaf, added);
+        if (newRoot == root) return this;
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+
+    public PersistentHashMap<K, V> minus(K key) {
+        if (key == null || root == null) return this;
+
+        int hash = hash(key);
+        Object result = root.remove(0, hash, key);
+        if (result == root) return this;
+        if (result == null) return empty();
+
+        Node newRoot;
+        if (result instanceof Leaf) {
+            Leaf leaf = (Leaf) result;
+            newRoot = new BitmapNode(1 << (leaf.hash & MASK), new Object[] {leaf});
+        } else {
+            newRoot = (Node) result;
+        }
+        return new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null || root == null) return null;
+        return (V) root.get(0, hash(key), key);
+    }
+
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((key, value) -> action.accept((K) key, (V) value));
+        }
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
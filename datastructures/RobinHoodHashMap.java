@@ -0,0 +1,296 @@
+package datastructures;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+
+public class RobinHoodHashMap<K, V> extends AbstractCustomMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double LOAD_FACTOR = 0.8;
+
+    // Parallel slot arrays: probe[i] == 0 means the slot is empty,
+    // otherwise it holds the entry's distance from its home slot plus one
+    private Object[] keys;
+    private Object[] vals;
+    private int[] probe;
+    private int size;
+    private int capacity;
+    private int mask;
+    private int modCount;
+
+
+    public RobinHoodHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    public RobinHoodHashMap(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+
+    private static int tableSizeFor(int requested) {
+        int n = 1;
+        while (n < requested && n < (1 << 30)) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        keys = new Object[newCapacity];
+        vals = new Object[newCapacity];
+        probe = new int[newCapacity];
+        size = 0;
+    }
+
+
+    private int home(Object key) {
+        return CustomHashMap.spread(key.hashCode()) & mask;
+    }
+
+
+    private int indexOf(Object key) {
+        int index = home(key);
+        int distance = 1;
+
+        // An entry can only live further down the run while its probe
+        // length keeps up with ours, so a shorter probe ends the search
+        while (probe[index] >= distance) {
+            if (probe[index] == distance && keys[index].equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+            distance++;
+        }
+        return -1;
+    }
+
+
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+
+        int existing = indexOf(key);
+        if (existing >= 0) {
+            vals[existing] = value;
+            return;
+        }
+
+        modCount++;
+        if (size + 1 > capacity * LOAD_FACTOR) {
+            resize();
+        }
+        insert(key, value);
+    }
+
+
+    private void insert(Object key, Object value) {
+        int index = home(key);
+        int distance = 1;
+
+        while (true) {
+            if (probe[index] == 0) {
+                keys[index] = key;
+                vals[index] = value;
+                probe[index] = distance;
+                size++;
+                return;
+            }
+
+            // Robin Hood: take the slot from an entry closer to its home
+            if (probe[index] < distance) {
+                Object displacedKey = keys[index];
+                Object displacedValue = vals[index];
+                int displacedDistance = probe[index];
+
+                keys[index] = key;
+                vals[index] = value;
+                probe[index] = distance;
+
+                key = displacedKey;
+                value = displacedValue;
+                distance = displacedDistance;
+            }
+
+            index = (index + 1) & mask;
+            distance++;
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) return null;
+
+        int index = indexOf(key);
+        return index >= 0 ? (V) vals[index] : null;
+    }
+
+
+    public void remove(K key) {
+        if (key == null) return;
+
+        int index = indexOf(key);
+        if (index < 0) return;
+
+        modCount++;
+
+        // Backward-shift deletion keeps runs contiguous without tombstones
+        int next = (index + 1) & mask;
+        while (probe[next] > 1) {
+            keys[index] = keys[next];
+            vals[index] = vals[next];
+            probe[index] = probe[next] - 1;
+            index = next;
+            next = (next + 1) & mask;
+        }
+
+        keys[index] = null;
+        vals[index] = null;
+        probe[index] = 0;
+        size--;
+    }
+
+
+    private void resize() {
+        Object[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int[] oldProbe = probe;
+
+        allocate(capacity * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldProbe[i] != 0) {
+                insert(oldKeys[i], oldVals[i]);
+            }
+        }
+    }
+
+
+    public boolean containsKey(K key) {
+        return key != null && indexOf(key) >= 0;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < capacity; i++) {
+            if (probe[i] != 0) {
+                action.accept((K) keys[i], (V) vals[i]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+
+    public MapCursor<K, V> cursor() {
+        return new Cursor();
+    }
+
+
+    private final class Cursor implements MapCursor<K, V> {
+        private int index;
+        private int expectedModCount;
+
+        Cursor() {
+            reset();
+        }
+
+        public void reset() {
+            index = -1;
+            expectedModCount = modCount;
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (++index < capacity) {
+                if (probe[index] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K key() {
+            return (K) keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V) vals[index];
+        }
+
+        // Slots are not objects, so entries are materialized on request
+        public Map.Entry<K, V> entry() {
+            return new AbstractMap.SimpleImmutableEntry<>(key(), value());
+        }
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    public double getLoadFactor() {
+        return (double) size / capacity;
+    }
+
+
+    public void clear() {
+        modCount++;
+        allocate(capacity);
+    }
+
+
+    public String getStatistics() {
+        int maxProbeLength = 0;
+        long totalProbeLength = 0;
+        int occupiedRuns = 0;
+
+        for (int i = 0; i < capacity; i++) {
+            if (probe[i] != 0) {
+                maxProbeLength = Math.max(maxProbeLength, probe[i]);
+                totalProbeLength += probe[i];
+                if (probe[(i - 1) & mask] == 0) {
+                    occupiedRuns++;
+                }
+            }
+        }
+
+        double avgProbeLength = size > 0 ? (double) totalProbeLength / size : 0;
+
+        return String.format("Hash Table Statistics (Robin Hood):\n" +
+                        "  Size: %d\n" +
+                        "  Capacity: %d\n" +
+                        "  Load Factor: %.3f\n" +
+                        "  Occupied Runs: %d\n" +
+                        "  Max Probe Length: %d\n" +
+                        "  Avg Probe Length: %.2f",
+                size, capacity, getLoadFactor(),
+                occupiedRuns, maxProbeLength, avgProbeLength);
+    }
+}
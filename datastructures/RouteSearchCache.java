@@ -0,0 +1,259 @@
+package datastructures;
+
+import adt.Flight;
+import adt.Route;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+
+// Bounded LRU cache of route search results keyed by (origin, destination, party size),
+// invalidated from flight changes:
+//  - a booking or price change only alters the results that contain the flight, so
+//    just those are dropped, found through an index from flight to cached entries;
+//  - a flight that gains seats can also join results it was missing from. A direct or
+//    one-stop route from O to D starts with a flight out of O and ends with a flight
+//    into D, so for a flight from A to B every result for origin A or destination B
+//    is dropped.
+// Every airport also keeps a version per role, bumped on each change, so a search that
+// raced a change to one of its candidate flights is returned but not cached.
+//
+// An evicted or invalidated entry is only marked dead; the index lists skip it and shed
+// dead entries as they grow, so keeping the index costs an append per flight per result.
+public final class RouteSearchCache implements Flight.ChangeListener {
+    private static final int MIN_PRUNE_SIZE = 8;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Dependents> byOrigin = new HashMap<>();
+    private final Map<String, Dependents> byDestination = new HashMap<>();
+    private final Map<Flight, Dependents> byFlight = new IdentityHashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+
+    private static final class Key {
+        final String origin;
+        final String destination;
+        final int passengerCount;
+
+        Key(String origin, String destination, int passengerCount) {
+            this.origin = origin;
+            this.destination = destination;
+            this.passengerCount = passengerCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return passengerCount == other.passengerCount && origin.equals(other.origin)
+                    && destination.equals(other.destination);
+        }
+
+        // Mixed between fields: airport codes differ in one character, so a plain
+        // 31-multiplier sum maps many pairs to the same hash
+        @Override
+        public int hashCode() {
+            int h = CustomHashMap.spread(origin.hashCode()) * 31 + destination.hashCode();
+            return CustomHashMap.spread(h) * 31 + passengerCount;
+        }
+    }
+
+
+    private static final class Entry {
+        final Key key;
+        final List<Route> routes;
+        boolean live = true;
+
+        Entry(Key key, List<Route> routes) {
+            this.key = key;
+            this.routes = routes;
+        }
+    }
+
+
+    // Entries that depend on an airport (as origin or destination) or on a flight,
+    // possibly dead or listed twice. Only airports use the change count.
+    private static final class Dependents {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        int pruneAt = MIN_PRUNE_SIZE;
+        long version;
+
+        void add(Entry entry) {
+            if (entries.size() >= pruneAt) {
+                entries.removeIf(e -> !e.live);
+                pruneAt = Math.max(MIN_PRUNE_SIZE, entries.size() * 2);
+            }
+            entries.add(entry);
+        }
+    }
+
+
+    public RouteSearchCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+
+    // Cached routes for the key, or the search's routes, cached unless a flight
+    // they depend on changed while the search ran. The caller gets its own list.
+    public List<Route> get(String originCode, String destCode, int passengerCount, Supplier<List<Route>> search) {
+        Key key = new Key(originCode, destCode, passengerCount);
+        long version;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return new ArrayList<>(cached.routes);
+            }
+            misses++;
+            version = version(key);
+        }
+
+        List<Route> routes = search.get();
+
+        synchronized (this) {
+            if (version(key) == version && !entries.containsKey(key)) {
+                Entry entry = new Entry(key, new ArrayList<>(routes));
+                entries.put(key, entry);
+                dependents(byOrigin, originCode).add(entry);
+                dependents(byDestination, destCode).add(entry);
+                for (Route route : routes) {
+                    for (Flight flight : route.getFlights()) {
+                        dependents(byFlight, flight).add(entry);
+                    }
+                }
+                if (entries.size() > capacity) {
+                    Entry eldest = entries.values().iterator().next();
+                    remove(eldest);
+                    evictions++;
+                }
+            }
+        }
+        return routes;
+    }
+
+
+    // Drops the results a change to this flight's seats or price may have altered
+    @Override
+    public synchronized void flightChanged(Flight flight, boolean seatsFreed) {
+        Dependents fromOrigin = dependents(byOrigin, flight.getOrigin().getCode());
+        Dependents toDestination = dependents(byDestination, flight.getDestination().getCode());
+        fromOrigin.version++;
+        toDestination.version++;
+
+        if (seatsFreed) {
+            invalidate(fromOrigin);
+            invalidate(toDestination);
+        } else {
+            Dependents containing = byFlight.get(flight);
+            if (containing != null) {
+                invalidate(containing);
+            }
+        }
+    }
+
+
+    // Every listed entry is affected, so the list is emptied along the way
+    private void invalidate(Dependents dependents) {
+        for (Entry entry : dependents.entries) {
+            if (entry.live) {
+                remove(entry);
+                invalidations++;
+            }
+        }
+        dependents.entries.clear();
+        dependents.pruneAt = MIN_PRUNE_SIZE;
+    }
+
+
+    // For changes no single flight accounts for, such as a removed airport
+    public synchronized void clear() {
+        invalidations += entries.size();
+        for (Entry entry : entries.values()) {
+            entry.live = false;
+        }
+        entries.clear();
+        byFlight.clear();
+        for (Dependents dependents : byOrigin.values()) {
+            dependents.entries.clear();
+            dependents.version++;
+        }
+        for (Dependents dependents : byDestination.values()) {
+            dependents.entries.clear();
+            dependents.version++;
+        }
+    }
+
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        entry.live = false;
+    }
+
+
+    private long version(Key key) {
+        return dependents(byOrigin, key.origin).version + dependents(byDestination, key.destination).version;
+    }
+
+
+    private static <K> Dependents dependents(Map<K, Dependents> index, K key) {
+        return index.computeIfAbsent(key, k -> new Dependents());
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+
+    public synchronized String getStatistics() {
+        return String.format("Route Search Cache Statistics:\n" +
+                        "  Entries: %d / %d\n" +
+                        "  Hits: %d\n" +
+                        "  Misses: %d\n" +
+                        "  Hit Rate: %.1f%%\n" +
+                        "  Evictions: %d\n" +
+                        "  Invalidations: %d",
+                entries.size(), capacity, hits, misses, getHitRate() * 100, evictions, invalidations);
+    }
+}
@@ -0,0 +1,24 @@
+package datastructures;
+
+
+// Work done by the calling thread's most recent search, for benchmarking. Engines are
+// shared between threads, so each thread keeps its own count instead of overwriting
+// one field that every search writes.
+final class SearchCounter {
+    private final ThreadLocal<long[]> count = ThreadLocal.withInitial(() -> new long[1]);
+
+
+    void set(long value) {
+        count.get()[0] = value;
+    }
+
+
+    void add(long value) {
+        count.get()[0] += value;
+    }
+
+
+    long get() {
+        return count.get()[0];
+    }
+}
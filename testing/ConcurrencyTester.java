@@ -0,0 +1,168 @@
+package testing;
+
+import datastructures.ConcurrentCustomHashMap;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class ConcurrencyTester {
+
+    public void runAllTests() {
+        System.out.println("\n--- CONCURRENCY TESTS ---");
+
+        testConcurrentMapStress(8, 200_000);
+        testConcurrentMapThroughput(new int[] {1, 2, 4, 8, 16, 32}, 100_000, 4_000_000);
+
+        System.out.println("\nAll concurrency tests completed!");
+    }
+
+    public boolean testConcurrentMapStress(int threadCount, int keyCount) {
+        System.out.println("=== CONCURRENT HASH MAP STRESS TEST ===");
+        System.out.printf("%d writer threads and %d reader threads over %,d keys\n",
+                threadCount, threadCount, keyCount);
+
+        ConcurrentCustomHashMap<Integer, Integer> map = new ConcurrentCustomHashMap<>();
+        AtomicInteger readErrors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // Each writer owns the keys congruent to its id, so the final contents are known:
+        // keys are inserted, even keys are removed and re-inserted, so all end up present
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            writers.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int round = 0; round < 3; round++) {
+                    for (int key = id; key < keyCount; key += threadCount) {
+                        if (round == 1 && key % 2 == 0) {
+                            map.remove(key);
+                        } else {
+                            map.put(key, key);
+                        }
+                    }
+                }
+            }));
+        }
+
+        // Readers run through resizes and must only ever see a key mapped to itself
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            readers.add(new Thread(() -> {
+                awaitQuietly(start);
+                Random random = new Random(seed);
+                while (writing.get()) {
+                    int key = random.nextInt(keyCount);
+                    Integer value = map.get(key);
+                    if (value != null && value != key) {
+                        readErrors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        long startTime = System.nanoTime();
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        joinAll(writers);
+        writing.set(false);
+        joinAll(readers);
+        double elapsedMs = (System.nanoTime() - startTime) / 1_000_000.0;
+
+        int missing = 0;
+        for (int key = 0; key < keyCount; key++) {
+            Integer value = map.get(key);
+            if (value == null || value != key) {
+                missing++;
+            }
+        }
+
+        boolean passed = readErrors.get() == 0 && missing == 0 && map.size() == keyCount;
+        System.out.printf("Final size: %,d (expected %,d), capacity %,d\n", map.size(), keyCount, map.getCapacity());
+        System.out.printf("Inconsistent reads: %d, missing or wrong keys: %d\n", readErrors.get(), missing);
+        System.out.printf("Elapsed: %.2f ms\n", elapsedMs);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    public void testConcurrentMapThroughput(int[] threadCounts, int keyCount, int totalOperations) {
+        System.out.println("=== CONCURRENT HASH MAP THROUGHPUT TEST ===");
+        System.out.printf("%,d keys, %,d operations per run (90%% get / 10%% put)\n", keyCount, totalOperations);
+        System.out.printf("Available processors: %d\n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %22s %22s\n", "Threads", "ConcurrentCustomHashMap", "ConcurrentHashMap");
+
+        for (int threads : threadCounts) {
+            ConcurrentCustomHashMap<Integer, Integer> custom = new ConcurrentCustomHashMap<>();
+            ConcurrentHashMap<Integer, Integer> reference = new ConcurrentHashMap<>();
+            for (int key = 0; key < keyCount; key++) {
+                custom.put(key, key);
+                reference.put(key, key);
+            }
+
+            double customOps = measureThroughput(threads, keyCount, totalOperations, custom::get, custom::put);
+            double referenceOps = measureThroughput(threads, keyCount, totalOperations, reference::get, reference::put);
+
+            System.out.printf("%8d %16.0f ops/ms %16.0f ops/ms\n", threads, customOps, referenceOps);
+        }
+        System.out.println();
+    }
+
+    private double measureThroughput(int threads, int keyCount, int totalOperations,
+                                     Function<Integer, Integer> get, BiConsumer<Integer, Integer> put) {
+        int operationsPerThread = totalOperations / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers.add(new Thread(() -> {
+                awaitQuietly(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    int key = random.nextInt(keyCount);
+                    if (random.nextInt(10) == 0) {
+                        put.accept(key, key + seed);
+                    } else {
+                        get.apply(key);
+                    }
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        long startTime = System.nanoTime();
+        start.countDown();
+        joinAll(workers);
+        double elapsedMs = (System.nanoTime() - startTime) / 1_000_000.0;
+
+        return (operationsPerThread * (double) threads) / elapsedMs;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        new ConcurrencyTester().runAllTests();
+    }
+}
@@ -1,7 +1,29 @@
 package testing;
 
 import adt.*;
+import data.DataInitializer;
 import datastructures.CustomHashMap;
+import datastructures.CheapestFareSearch;
+import datastructures.ConnectionScan;
+import datastructures.ContractionHierarchy;
+import datastructures.CsrGraph;
+import datastructures.CustomMap;
+import datastructures.ExploreSearch;
+import datastructures.FareCalendarSearch;
+import datastructures.FlightGraph;
+import datastructures.GraphSnapshot;
+import datastructures.IntHashMap;
+import datastructures.MapType;
+import datastructures.OffHeapHashMap;
+import datastructures.RobinHoodHashMap;
+import datastructures.RouteSearchCache;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 public class PerformanceTester {
@@ -18,10 +40,56 @@ public class PerformanceTester {
         testRouteSearchPerformance();
         testHashMapPerformance();
         testReservationPerformance();
+        testResizeLatency(100_000);
+        testReservationLookupPerformance(100_000);
+        testSnapshotPerformance(2_000, 10);
+        testLookupFilterPerformance(10_000);
+        testReverseIndexPerformance(2_000, 10);
+        testDirectFlightIndexPerformance(2_000, 50);
+        testMultiStopSearchPerformance(20, 1_000);
+        testCheapestFarePerformance(2_000, 10);
+        testCheapestRoutesPerformance(300, 60, 5);
+        testCheapestRoutesAgainstEnumeration(200);
+        testParetoSearchPerformance(20, 1_000, 3);
+        testParetoSearchAgainstEnumeration(300);
+        testConnectionScanPerformance(500, 20);
+        testConnectionScanAgainstEnumeration(200);
+        testShortestPathPerformance(5_000, 2);
+        testShortestPathAgainstBreadthFirstSearch(200);
+        testContractionHierarchyPerformance(5_000);
+        testExplorePerformance(1_000, 10);
+        testAirportGroupPerformance(2_000);
+        testFareCalendarPerformance(100, 8, 21);
+        testFareCalendarAgainstEnumeration(200);
+        testDatedAdjacencyPerformance(200, 4, 90);
+        testRouteCachePerformance(100, 60, 2_000, 100_000);
 
         System.out.println("\nAll performance tests completed!");
     }
 
+    // Benchmarks sized for large networks; too slow for the interactive menu
+    public void runLargeScaleTests() {
+        System.out.println("\n--- LARGE SCALE PERFORMANCE TESTS ---");
+
+        testResizeLatency(10_000_000);
+        testReservationLookupPerformance(10_000_000);
+        testOffHeapMemory(1_000_000);
+        testLookupFilterPerformance(1_000_000);
+        testCsrPerformance(50_000, 40);
+        testReverseIndexPerformance(50_000, 20);
+        testCheapestFarePerformance(50_000, 10);
+        testConnectionScanPerformance(20_000, 50);
+        testShortestPathPerformance(200_000, 2);
+        testContractionHierarchyPerformance(200_000);
+        testExplorePerformance(20_000, 10);
+        testFareCalendarPerformance(1_000, 20, 60);
+        testDatedAdjacencyPerformance(2_000, 5, 365);
+        testRouteCachePerformance(1_000, 100, 20_000, 1_000_000);
+        new ConcurrencyTester().runAllTests();
+
+        System.out.println("\nAll large scale tests completed!");
+    }
+
     private void testRouteSearchPerformance() {
         System.out.println("=== ROUTE SEARCH PERFORMANCE TEST ===");
 
@@ -68,36 +136,40 @@ public class PerformanceTester {
     private void testHashMapPerformance() {
         System.out.println("=== HASH MAP PERFORMANCE TEST ===");
 
-        // Test custom hash map with different data sizes
+        // Test both hash map implementations with different data sizes
         int[] testSizes = {100, 1000, 10000};
 
-        for (int size : testSizes) {
-            CustomHashMap<String, String> testMap = new CustomHashMap<>();
+        for (MapType mapType : MapType.values()) {
+            System.out.println("Implementation: " + mapType);
 
-            // Insert performance
-            long insertStart = System.nanoTime();
-            for (int i = 0; i < size; i++) {
-                testMap.put("key" + i, "value" + i);
-            }
-            long insertEnd = System.nanoTime();
+            for (int size : testSizes) {
+                CustomMap<String, String> testMap = mapType.create();
 
-            // Lookup performance
-            long lookupStart = System.nanoTime();
-            for (int i = 0; i < size; i++) {
-                testMap.get("key" + i);
-            }
-            long lookupEnd = System.nanoTime();
+                // Insert performance
+                long insertStart = System.nanoTime();
+                for (int i = 0; i < size; i++) {
+                    testMap.put("key" + i, "value" + i);
+                }
+                long insertEnd = System.nanoTime();
+
+                // Lookup performance
+                long lookupStart = System.nanoTime();
+                for (int i = 0; i < size; i++) {
+                    testMap.get("key" + i);
+                }
+                long lookupEnd = System.nanoTime();
 
-            double insertTimeMs = (insertEnd - insertStart) / 1_000_000.0;
-            double lookupTimeMs = (lookupEnd - lookupStart) / 1_000_000.0;
+                double insertTimeMs = (insertEnd - insertStart) / 1_000_000.0;
+                double lookupTimeMs = (lookupEnd - lookupStart) / 1_000_000.0;
 
-            System.out.printf("Size %d:\n", size);
-            System.out.printf("Insert time: %.2f ms (%.3f ms avg per operation)\n",
-                    insertTimeMs, insertTimeMs / size);
-            System.out.printf("Lookup time: %.2f ms (%.3f ms avg per operation)\n",
-                    lookupTimeMs, lookupTimeMs / size);
-            System.out.printf("Load factor: %.3f\n", testMap.getLoadFactor());
-            System.out.println();
+                System.out.printf("Size %d:\n", size);
+                System.out.printf("Insert time: %.2f ms (%.3f ms avg per operation)\n",
+                        insertTimeMs, insertTimeMs / size);
+                System.out.printf("Lookup time: %.2f ms (%.3f ms avg per operation)\n",
+                        lookupTimeMs, lookupTimeMs / size);
+                System.out.printf("Load factor: %.3f\n", testMap.getLoadFactor());
+                System.out.println();
+            }
         }
     }
 
@@ -142,4 +214,2041 @@ public class PerformanceTester {
         System.out.printf("Average time per reservation: %.3f ms\n", totalTimeMs / testReservations);
         System.out.println();
     }
+
+    private void testResizeLatency(int maxSize) {
+        System.out.println("=== HASH MAP RESIZE LATENCY TEST ===");
+        System.out.println("Worst-case put latency per size decade (incremental vs stop-the-world resize)");
+
+        Object value = new Object();
+        List<CustomMap<Integer, Object>> maps = new ArrayList<>();
+        maps.add(new CustomHashMap<>());
+        maps.add(new RobinHoodHashMap<>());
+
+        for (CustomMap<Integer, Object> map : maps) {
+            System.out.println("Implementation: " + map.getClass().getSimpleName());
+
+            int key = 0;
+            for (int decadeEnd = 1000; decadeEnd <= maxSize; decadeEnd *= 10) {
+                long[] histogram = new long[64];
+                long maxNanos = 0;
+                long maxNanosWithoutGc = 0;
+                long totalNanos = 0;
+                long gcCount = totalGcCount();
+                int gcPauses = 0;
+                int puts = 0;
+
+                for (; key < decadeEnd; key++) {
+                    long start = System.nanoTime();
+                    map.put(key, value);
+                    long elapsed = System.nanoTime() - start;
+
+                    histogram[64 - Long.numberOfLeadingZeros(elapsed)]++;
+                    maxNanos = Math.max(maxNanos, elapsed);
+                    totalNanos += elapsed;
+                    puts++;
+
+                    // Attribute slow puts that overlap a collection to the GC, not the map
+                    if (elapsed > 1_000_000 && totalGcCount() != gcCount) {
+                        gcCount = totalGcCount();
+                        gcPauses++;
+                    } else {
+                        maxNanosWithoutGc = Math.max(maxNanosWithoutGc, elapsed);
+                    }
+                }
+
+                System.out.printf("Up to %,d entries: avg %.0f ns, p99.9 <= %.1f us, " +
+                                "max %.1f us (%.1f us excluding %d GC pauses)\n",
+                        decadeEnd, totalNanos / (double) puts,
+                        percentileUpperBound(histogram, puts, 0.999) / 1000.0,
+                        maxNanos / 1000.0, maxNanosWithoutGc / 1000.0, gcPauses);
+            }
+            System.out.println();
+        }
+    }
+
+    private void testReservationLookupPerformance(int maxReservations) {
+        System.out.println("=== RESERVATION LOOKUP PERFORMANCE TEST ===");
+        System.out.println("Lookup by id: IntHashMap index vs linear scan of the reservation list");
+
+        String origin = network.getAllAirportCodes().iterator().next();
+        Route route = new Route(Collections.singletonList(network.getFlightsFrom(origin).get(0)));
+        Random random = new Random(42);
+
+        for (int size = 10_000; size <= maxReservations; size *= 10) {
+            List<Reservation> reservations = new ArrayList<>(size);
+            IntHashMap<Reservation> index = new IntHashMap<>();
+            for (int i = 0; i < size; i++) {
+                Reservation reservation = new Reservation(route, 1);
+                reservations.add(reservation);
+                index.put(reservation.getReservationId(), reservation);
+            }
+            int firstId = reservations.get(0).getReservationId();
+
+            // Fewer scans at large sizes; each one walks up to the whole list
+            int indexLookups = 100_000;
+            int scanLookups = Math.max(20, 10_000_000 / size);
+
+            long indexStart = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < indexLookups; i++) {
+                if (index.get(firstId + random.nextInt(size)) != null) {
+                    found++;
+                }
+            }
+            long indexNanos = System.nanoTime() - indexStart;
+
+            long scanStart = System.nanoTime();
+            for (int i = 0; i < scanLookups; i++) {
+                int id = firstId + random.nextInt(size);
+                for (Reservation reservation : reservations) {
+                    if (reservation.getReservationId() == id) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            long scanNanos = System.nanoTime() - scanStart;
+
+            double indexAvgNs = indexNanos / (double) indexLookups;
+            double scanAvgNs = scanNanos / (double) scanLookups;
+            System.out.printf("%,d reservations: index %.0f ns/lookup, linear scan %.0f ns/lookup (%.0fx faster)\n",
+                    size, indexAvgNs, scanAvgNs, scanAvgNs / indexAvgNs);
+            if (found != indexLookups + scanLookups) {
+                System.out.println("  Warning: some reservations were not found");
+            }
+        }
+        System.out.println();
+    }
+
+    private void testOffHeapMemory(int entries) {
+        System.out.println("=== OFF-HEAP HASH MAP MEMORY TEST ===");
+        System.out.printf("%,d flight-number keys mapped to long values\n", entries);
+
+        long baseline = usedHeap();
+        CustomHashMap<String, Long> onHeap = new CustomHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            onHeap.put(flightNumberKey(i), (long) i);
+        }
+        long onHeapBytes = usedHeap() - baseline;
+        int onHeapSize = onHeap.size();
+        onHeap = null;
+
+        baseline = usedHeap();
+        try (OffHeapHashMap offHeap = new OffHeapHashMap(8, entries)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < entries; i++) {
+                offHeap.put(flightNumberKey(i), i);
+            }
+            double insertMs = (System.nanoTime() - start) / 1_000_000.0;
+            long offHeapHeapBytes = usedHeap() - baseline;
+
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < entries; i++) {
+                if (offHeap.get(flightNumberKey(i)) == i) {
+                    found++;
+                }
+            }
+            double lookupMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("CustomHashMap:  %,d entries, %.1f MB heap\n", onHeapSize, onHeapBytes / 1048576.0);
+            System.out.printf("OffHeapHashMap: %,d entries, %.1f MB heap, %.1f MB off-heap\n",
+                    offHeap.size(), Math.max(0, offHeapHeapBytes) / 1048576.0, offHeap.getOffHeapBytes() / 1048576.0);
+            System.out.printf("Off-heap insert %.0f ns/op, lookup %.0f ns/op, %,d of %,d found\n",
+                    insertMs * 1_000_000 / entries, lookupMs * 1_000_000 / entries, found, entries);
+        } catch (IOException e) {
+            System.out.println("Could not close off-heap map: " + e.getMessage());
+        }
+
+        // Round trip through a memory-mapped file
+        Path file = null;
+        try {
+            file = Files.createTempFile("offheap", ".map");
+            Files.delete(file);
+            try (OffHeapHashMap mapped = OffHeapHashMap.open(file, 8, 1024)) {
+                for (int i = 0; i < 10_000; i++) {
+                    mapped.put(flightNumberKey(i), i);
+                }
+            }
+            try (OffHeapHashMap reopened = OffHeapHashMap.open(file, 8, 1024)) {
+                boolean intact = reopened.size() == 10_000 && reopened.get(flightNumberKey(9_999)) == 9_999;
+                System.out.printf("Reopened memory-mapped file: %,d entries, %s\n",
+                        reopened.size(), intact ? "contents intact" : "CONTENTS LOST");
+            }
+        } catch (IOException e) {
+            System.out.println("Memory-mapped round trip failed: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+        System.out.println();
+    }
+
+    private void testSnapshotPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== GRAPH SNAPSHOT PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("SN", airportCount);
+        List<Flight> flights = syntheticFlights(airports, flightsPerAirport, 7);
+        List<Flight> extraFlights = syntheticFlights(airports, 1, 8);
+
+        FlightGraph untracked = new FlightGraph();
+        FlightGraph tracked = new FlightGraph();
+        flights.forEach(untracked::addFlight);
+        flights.forEach(tracked::addFlight);
+
+        long start = System.nanoTime();
+        GraphSnapshot first = tracked.snapshot();
+        double firstMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        int snapshotCalls = 1_000_000;
+        start = System.nanoTime();
+        for (int i = 0; i < snapshotCalls; i++) {
+            tracked.snapshot();
+        }
+        double snapshotNs = (System.nanoTime() - start) / (double) snapshotCalls;
+
+        start = System.nanoTime();
+        extraFlights.forEach(untracked::addFlight);
+        double untrackedNs = (System.nanoTime() - start) / (double) extraFlights.size();
+
+        start = System.nanoTime();
+        extraFlights.forEach(tracked::addFlight);
+        double trackedNs = (System.nanoTime() - start) / (double) extraFlights.size();
+
+        // Writers went on after the first snapshot; it must still show the old graph
+        GraphSnapshot latest = tracked.snapshot();
+        boolean isolated = first.getTotalFlights() == flights.size()
+                && latest.getTotalFlights() == flights.size() + extraFlights.size();
+
+        System.out.printf("%,d airports, %,d flights\n", airportCount, flights.size());
+        System.out.printf("First snapshot (enables tracking): %.2f ms\n", firstMs);
+        System.out.printf("Later snapshots: %.1f ns each\n", snapshotNs);
+        System.out.printf("addFlight: %.0f ns untracked, %.0f ns while keeping snapshots\n", untrackedNs, trackedNs);
+        System.out.println("Earlier snapshot unaffected by later writes: " + (isolated ? "yes" : "NO"));
+        System.out.println();
+    }
+
+    private void testLookupFilterPerformance(int airportCount) {
+        System.out.println("=== LOOKUP FILTER PERFORMANCE TEST ===");
+        System.out.println("hasAirport for unknown codes: cuckoo filter in front of the map vs map only");
+
+        FlightGraph graph = new FlightGraph();
+        for (Airport airport : syntheticAirports("LF", airportCount)) {
+            graph.addAirport(airport);
+        }
+
+        // Codes that are not in the graph, as sent by bad clients
+        Random random = new Random(11);
+        String[] unknown = new String[1 << 16];
+        for (int i = 0; i < unknown.length; i++) {
+            unknown[i] = "XX" + random.nextInt(100_000_000);
+        }
+
+        int lookups = 5_000_000;
+        double filteredNs = 0;
+        double mapNs = 0;
+        int found = 0;
+        // The first round warms up both paths
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                if (graph.hasAirport(unknown[i & (unknown.length - 1)])) found++;
+            }
+            filteredNs = (System.nanoTime() - start) / (double) lookups;
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                if (graph.getAirport(unknown[i & (unknown.length - 1)]) != null) found++;
+            }
+            mapNs = (System.nanoTime() - start) / (double) lookups;
+        }
+
+        System.out.printf("%,d airports: filter %.1f ns, map only %.1f ns per lookup (%d found)\n",
+                airportCount, filteredNs, mapNs, found);
+        System.out.println(graph.getLookupFilterStatistics());
+        System.out.println();
+    }
+
+    private void testCsrPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== CSR GRAPH PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("CS", airportCount);
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 13)) {
+            graph.addFlight(flight);
+        }
+
+        long start = System.nanoTime();
+        CsrGraph csr = graph.buildCsr();
+        double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("%,d airports, %,d flights; CSR built in %.0f ms, %.1f MB of arrays\n",
+                csr.getAirportCount(), csr.getFlightCount(), buildMs, csr.getMemoryBytes() / 1048576.0);
+
+        Random random = new Random(17);
+        int searches = 2_000;
+        int[] origins = new int[searches];
+        int[] destinations = new int[searches];
+        for (int i = 0; i < searches; i++) {
+            origins[i] = random.nextInt(airportCount);
+            destinations[i] = (origins[i] + 1 + random.nextInt(airportCount - 1)) % airportCount;
+        }
+
+        // One visitor for every search, so the traversal itself allocates nothing
+        double[] cheapest = new double[1];
+        int[] routeCount = new int[1];
+        CsrGraph.RouteVisitor visitor = (first, second, price) -> {
+            routeCount[0]++;
+            cheapest[0] = Math.min(cheapest[0], price);
+        };
+
+        double graphMs = 0;
+        double csrMs = 0;
+        long csrAllocated = 0;
+        int graphRoutes = 0;
+        // The first round warms up both paths
+        for (int round = 0; round < 2; round++) {
+            graphRoutes = 0;
+            routeCount[0] = 0;
+
+            start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                graphRoutes += graph.findRoutes(airports[origins[i]].getCode(),
+                        airports[destinations[i]].getCode()).size();
+            }
+            graphMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            long allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                cheapest[0] = Double.MAX_VALUE;
+                csr.forEachRoute(csr.indexOf(airports[origins[i]].getCode()),
+                        csr.indexOf(airports[destinations[i]].getCode()), visitor);
+            }
+            csrMs = (System.nanoTime() - start) / 1_000_000.0;
+            csrAllocated = allocatedBytes() - allocatedBefore;
+        }
+
+        System.out.printf("Route search (%,d pairs): FlightGraph %.1f us, CSR %.1f us per search (%,d vs %,d routes)\n",
+                searches, graphMs * 1000 / searches, csrMs * 1000 / searches, graphRoutes, routeCount[0]);
+        System.out.printf("Bytes allocated by %,d CSR traversals: %,d\n", searches, csrAllocated);
+
+        int pathQueries = 20;
+        start = System.nanoTime();
+        int graphHops = 0;
+        for (int i = 0; i < pathQueries; i++) {
+            graphHops += graph.getShortestPath(airports[origins[i]].getCode(),
+                    airports[destinations[i]].getCode()).size() - 1;
+        }
+        double graphPathMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        start = System.nanoTime();
+        int csrHops = 0;
+        for (int i = 0; i < pathQueries; i++) {
+            csrHops += csr.getHopDistance(csr.indexOf(airports[origins[i]].getCode()),
+                    csr.indexOf(airports[destinations[i]].getCode()));
+        }
+        double csrPathMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        System.out.printf("Shortest path (%d pairs): FlightGraph %.2f ms, CSR %.2f ms per query (%d vs %d total hops)\n",
+                pathQueries, graphPathMs / pathQueries, csrPathMs / pathQueries, graphHops, csrHops);
+
+        start = System.nanoTime();
+        graph.getHubAirports(10);
+        double graphHubMs = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        csr.getHubAirports(10);
+        double csrHubMs = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("Top 10 hubs: FlightGraph %.1f ms, CSR %.1f ms\n", graphHubMs, csrHubMs);
+        System.out.println();
+    }
+
+    private void testReverseIndexPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== REVERSE ADJACENCY PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("RV", airportCount);
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 19)) {
+            graph.addFlight(flight);
+        }
+        System.out.printf("%,d airports, %,d flights\n", airportCount, graph.getTotalFlights());
+
+        Random random = new Random(23);
+        int queries = 200;
+        String[] codes = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            codes[i] = airports[random.nextInt(airportCount)].getCode();
+        }
+
+        // Scanning every outgoing list is what getFlightsTo and removeAirport used to do
+        long start = System.nanoTime();
+        int scanned = 0;
+        for (int i = 0; i < queries; i++) {
+            String code = codes[i];
+            int[] count = new int[1];
+            graph.forEachFlight(flight -> {
+                if (flight.getDestination().getCode().equals(code)) count[0]++;
+            });
+            scanned += count[0];
+        }
+        double scanUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+        start = System.nanoTime();
+        int indexed = 0;
+        for (int i = 0; i < queries; i++) {
+            indexed += graph.getFlightsTo(codes[i]).size();
+        }
+        double indexUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+        System.out.printf("getFlightsTo: %.1f us with the index vs %.1f us for a full scan (%,d vs %,d flights)\n",
+                indexUs, scanUs, indexed, scanned);
+
+        int removals = 100;
+        start = System.nanoTime();
+        int removed = 0;
+        for (int i = 0; i < removals; i++) {
+            if (graph.removeAirport(airports[i].getCode())) removed++;
+        }
+        double removeUs = (System.nanoTime() - start) / 1000.0 / removals;
+
+        start = System.nanoTime();
+        int[] visited = new int[1];
+        graph.forEachFlight(flight -> visited[0]++);
+        double fullPassUs = (System.nanoTime() - start) / 1000.0;
+
+        System.out.printf("removeAirport: %.1f us each (%d airports) vs %.1f us for one pass over all flights\n",
+                removeUs, removed, fullPassUs);
+        System.out.println("Graph valid after removals: " + graph.validateGraph());
+        System.out.println();
+    }
+
+    private void testDirectFlightIndexPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== ORIGIN-DESTINATION INDEX PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("OD", airportCount);
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 29)) {
+            graph.addFlight(flight);
+        }
+
+        Random random = new Random(31);
+        int searches = 2_000;
+        String[][] pairs = new String[searches][];
+        for (int i = 0; i < searches; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+
+        double indexedUs = 0;
+        double scanUs = 0;
+        int indexedRoutes = 0;
+        int scannedRoutes = 0;
+        // The first round warms up both paths
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            indexedRoutes = 0;
+            for (String[] pair : pairs) {
+                indexedRoutes += graph.findRoutes(pair[0], pair[1]).size();
+            }
+            indexedUs = (System.nanoTime() - start) / 1000.0 / searches;
+
+            // Without the index every intermediate airport's whole outgoing list is scanned
+            start = System.nanoTime();
+            scannedRoutes = 0;
+            for (String[] pair : pairs) {
+                for (Flight first : graph.getFlightsFrom(pair[0])) {
+                    if (!first.hasAvailableSeats()) continue;
+                    String intermediate = first.getDestination().getCode();
+                    if (intermediate.equals(pair[1])) {
+                        scannedRoutes++;
+                        continue;
+                    }
+                    for (Flight second : graph.getFlightsFrom(intermediate)) {
+                        if (second.getDestination().getCode().equals(pair[1]) && second.hasAvailableSeats()) {
+                            scannedRoutes++;
+                        }
+                    }
+                }
+            }
+            scanUs = (System.nanoTime() - start) / 1000.0 / searches;
+        }
+
+        System.out.printf("%,d airports, %,d flights, %,d searches\n", airportCount, graph.getTotalFlights(), searches);
+        System.out.printf("One-stop search: %.1f us with the pair index vs %.1f us scanning outgoing lists " +
+                "(%,d vs %,d routes)\n", indexedUs, scanUs, indexedRoutes, scannedRoutes);
+        System.out.println();
+    }
+
+    private void testMultiStopSearchPerformance(int hubCount, int spokeCount) {
+        System.out.println("=== MULTI-STOP ROUTE SEARCH PERFORMANCE TEST ===");
+
+        Airport[] hubs = syntheticAirports("HB", hubCount);
+        Airport[] spokes = syntheticAirports("SP", spokeCount);
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : hubAndSpokeFlights(hubs, spokes, 37)) {
+            graph.addFlight(flight);
+        }
+        System.out.printf("Hub-and-spoke network: %d hubs, %,d spokes, %,d flights\n",
+                hubCount, spokeCount, graph.getTotalFlights());
+
+        Random random = new Random(41);
+        int searches = 200;
+        String[][] pairs = new String[searches][];
+        for (int i = 0; i < searches; i++) {
+            int origin = random.nextInt(spokeCount);
+            int destination = (origin + 1 + random.nextInt(spokeCount - 1)) % spokeCount;
+            pairs[i] = new String[] {spokes[origin].getCode(), spokes[destination].getCode()};
+        }
+
+        System.out.printf("%5s %14s %12s %16s %14s %12s\n",
+                "Legs", "All routes", "Avg routes", "Avg expansions", "Top 10", "Expansions");
+        for (int legs = 1; legs <= 4; legs++) {
+            long allNanos = 0;
+            long allRoutes = 0;
+            long allExpansions = 0;
+            long topNanos = 0;
+            long topExpansions = 0;
+
+            for (String[] pair : pairs) {
+                long start = System.nanoTime();
+                allRoutes += graph.findRoutesWithMaxStops(pair[0], pair[1], legs - 1, 1, Integer.MAX_VALUE).size();
+                allNanos += System.nanoTime() - start;
+                allExpansions += graph.getMultiStopSearch().getLastExpansions();
+
+                start = System.nanoTime();
+                graph.findRoutesWithMaxStops(pair[0], pair[1], legs - 1, 1, 10);
+                topNanos += System.nanoTime() - start;
+                topExpansions += graph.getMultiStopSearch().getLastExpansions();
+            }
+
+            System.out.printf("%5d %11.3f ms %12.1f %16.1f %11.3f ms %12.1f\n", legs,
+                    allNanos / 1_000_000.0 / searches, allRoutes / (double) searches,
+                    allExpansions / (double) searches, topNanos / 1_000_000.0 / searches,
+                    topExpansions / (double) searches);
+        }
+        System.out.println();
+    }
+
+    private void testCheapestFarePerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== CHEAPEST FARE SEARCH PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("CF", airportCount);
+        FlightGraph graph = new FlightGraph();
+        Random random = new Random(43);
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 47)) {
+            // Spread occupancy so current prices range over the whole fare curve
+            flight.setAvailableSeats(random.nextInt(flight.getTotalSeats() + 1));
+            graph.addFlight(flight);
+        }
+        CheapestFareSearch search = graph.getCheapestFareSearch();
+
+        // A few popular destinations, each queried from many origins
+        int destinations = 10;
+        int originsPerDestination = 100;
+        String[] destCodes = new String[destinations];
+        String[][] originCodes = new String[destinations][originsPerDestination];
+        for (int d = 0; d < destinations; d++) {
+            destCodes[d] = airports[random.nextInt(airportCount)].getCode();
+            for (int o = 0; o < originsPerDestination; o++) {
+                originCodes[d][o] = airports[random.nextInt(airportCount)].getCode();
+            }
+        }
+        int searches = destinations * originsPerDestination;
+
+        double dijkstraUs = 0;
+        double aStarUs = 0;
+        double boundsMs = 0;
+        long dijkstraSettled = 0;
+        long aStarSettled = 0;
+        int mismatches = 0;
+        // The first round warms up both searches
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            CheapestFareSearch.FareLowerBounds[] bounds = new CheapestFareSearch.FareLowerBounds[destinations];
+            for (int d = 0; d < destinations; d++) {
+                bounds[d] = search.lowerBoundsTo(destCodes[d]);
+            }
+            if (round == 0) {
+                // Later rounds hit the cached tables
+                boundsMs = (System.nanoTime() - start) / 1_000_000.0 / destinations;
+            }
+
+            double[] fares = new double[searches];
+            dijkstraSettled = 0;
+            start = System.nanoTime();
+            for (int d = 0; d < destinations; d++) {
+                for (int o = 0; o < originsPerDestination; o++) {
+                    Route route = search.findCheapestRoute(originCodes[d][o], destCodes[d], 2);
+                    fares[d * originsPerDestination + o] = route != null ? route.getTotalPrice() : -1;
+                    dijkstraSettled += search.getLastSettledCount();
+                }
+            }
+            dijkstraUs = (System.nanoTime() - start) / 1000.0 / searches;
+
+            aStarSettled = 0;
+            mismatches = 0;
+            start = System.nanoTime();
+            for (int d = 0; d < destinations; d++) {
+                for (int o = 0; o < originsPerDestination; o++) {
+                    Route route = search.findCheapestRoute(originCodes[d][o], destCodes[d], 2, bounds[d]);
+                    double fare = route != null ? route.getTotalPrice() : -1;
+                    if (Math.abs(fare - fares[d * originsPerDestination + o]) > 1e-6) mismatches++;
+                    aStarSettled += search.getLastSettledCount();
+                }
+            }
+            aStarUs = (System.nanoTime() - start) / 1000.0 / searches;
+        }
+
+        System.out.printf("%,d airports, %,d flights, %,d searches for 2 passengers\n",
+                airportCount, graph.getTotalFlights(), searches);
+        System.out.printf("Dijkstra: %.1f us per search, %,.0f airports settled on average\n",
+                dijkstraUs, dijkstraSettled / (double) searches);
+        System.out.printf("A*:       %.1f us per search, %,.0f airports settled on average " +
+                "(lower-bound table: %.2f ms per destination)\n",
+                aStarUs, aStarSettled / (double) searches, boundsMs);
+        System.out.println("Fare mismatches between the two: " + mismatches);
+        System.out.println();
+    }
+
+    private void testCheapestRoutesPerformance(int airportCount, int flightsPerAirport, int k) {
+        System.out.println("=== K-CHEAPEST ROUTES PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("KC", airportCount);
+        FlightGraph graph = new FlightGraph();
+        Random random = new Random(53);
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 59)) {
+            flight.setAvailableSeats(random.nextInt(flight.getTotalSeats() + 1));
+            graph.addFlight(flight);
+        }
+
+        int searches = 100;
+        String[][] pairs = new String[searches][];
+        for (int i = 0; i < searches; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+        System.out.printf("%,d airports, %,d flights, %,d searches\n", airportCount, graph.getTotalFlights(), searches);
+
+        // The first round warms up both searches
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            long lazyRoutes = 0;
+            for (String[] pair : pairs) {
+                Iterator<Route> routes = graph.findCheapestRoutes(pair[0], pair[1], 1);
+                for (int i = 0; i < k && routes.hasNext(); i++) {
+                    routes.next();
+                    lazyRoutes++;
+                }
+            }
+            double lazyUs = (System.nanoTime() - start) / 1000.0 / searches;
+            if (round == 0) continue;
+
+            System.out.printf("Top %d, any number of stops: %.1f us (%.1f routes)\n",
+                    k, lazyUs, lazyRoutes / (double) searches);
+            for (int stops = 1; stops <= 3; stops++) {
+                start = System.nanoTime();
+                long allRoutes = 0;
+                for (String[] pair : pairs) {
+                    allRoutes += graph.findRoutesWithMaxStops(pair[0], pair[1], stops, 1, Integer.MAX_VALUE).size();
+                }
+                double allUs = (System.nanoTime() - start) / 1000.0 / searches;
+                System.out.printf("All routes up to %d stop%s, sorted: %.1f us (%.1f routes)\n",
+                        stops, stops == 1 ? "" : "s", allUs, allRoutes / (double) searches);
+            }
+        }
+        System.out.println();
+    }
+
+    // Drains the cheapest-routes iterator for every pair of small random graphs and
+    // compares it with all loopless routes found by depth-first enumeration. Half the
+    // iterators have fares cut halfway through by released seats; those must still
+    // return every route exactly once, though not necessarily in the new fare order.
+    public boolean testCheapestRoutesAgainstEnumeration(int graphCount) {
+        System.out.println("=== K-CHEAPEST ROUTES BRUTE-FORCE CHECK ===");
+
+        Random random = new Random(89);
+        int pairs = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphCount; g++) {
+            Airport[] airports = syntheticAirports("YK" + g + "-", 7);
+            FlightGraph graph = smallRandomGraph(airports, 1, 0.0, random);
+            int passengers = 1 + random.nextInt(2);
+
+            for (Airport origin : airports) {
+                for (Airport destination : airports) {
+                    if (origin == destination) continue;
+                    pairs++;
+                    boolean releaseSeats = random.nextBoolean();
+                    List<Route> actual = new ArrayList<>();
+                    Iterator<Route> routes = graph.findCheapestRoutes(origin.getCode(), destination.getCode(), passengers);
+                    if (releaseSeats && routes.hasNext()) {
+                        actual.add(routes.next());
+                        graph.forEachFlight(flight -> {
+                            int sold = flight.getTotalSeats() - flight.getAvailableSeats();
+                            if (flight.getAvailableSeats() >= passengers && sold > 0) {
+                                flight.releaseSeats(1 + random.nextInt(sold));
+                            }
+                        });
+                    }
+                    routes.forEachRemaining(actual::add);
+
+                    List<Route> expected = enumerateRoutes(graph, origin.getCode(), destination.getCode(),
+                            airports.length - 1, passengers);
+                    if (!sameRoutes(expected, actual) || (!releaseSeats && !inPriceOrder(actual))) {
+                        if (mismatches++ < 5) {
+                            System.out.printf("Mismatch %s -> %s: %d routes expected, %d returned\n",
+                                    origin.getCode(), destination.getCode(), expected.size(), actual.size());
+                        }
+                    }
+                }
+            }
+        }
+
+        boolean passed = mismatches == 0;
+        System.out.printf("%d random graphs of 7 airports, %,d origin-destination pairs\n", graphCount, pairs);
+        System.out.printf("Pairs differing from enumeration: %d\n", mismatches);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    private void testParetoSearchPerformance(int hubCount, int spokeCount, int maxStops) {
+        System.out.println("=== PARETO ROUTE SEARCH PERFORMANCE TEST ===");
+
+        Airport[] hubs = syntheticAirports("PH", hubCount);
+        Airport[] spokes = syntheticAirports("PS", spokeCount);
+        FlightGraph graph = new FlightGraph();
+        Random random = new Random(61);
+        for (Flight flight : hubAndSpokeFlights(hubs, spokes, 67)) {
+            flight.setAvailableSeats(random.nextInt(flight.getTotalSeats() + 1));
+            graph.addFlight(flight);
+        }
+
+        int searches = 100;
+        String[][] pairs = new String[searches][];
+        for (int i = 0; i < searches; i++) {
+            int origin = random.nextInt(spokeCount);
+            int destination = (origin + 1 + random.nextInt(spokeCount - 1)) % spokeCount;
+            pairs[i] = new String[] {spokes[origin].getCode(), spokes[destination].getCode()};
+        }
+
+        double paretoUs = 0;
+        double enumerateUs = 0;
+        long paretoRoutes = 0;
+        long labels = 0;
+        long enumeratedRoutes = 0;
+        long filteredRoutes = 0;
+        // The first round warms up both approaches
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            paretoRoutes = 0;
+            labels = 0;
+            for (String[] pair : pairs) {
+                paretoRoutes += graph.findParetoRoutes(pair[0], pair[1], 1, maxStops).size();
+                labels += graph.getParetoSearch().getLastLabelCount();
+            }
+            paretoUs = (System.nanoTime() - start) / 1000.0 / searches;
+
+            // Enumerate every route, then throw away the dominated ones
+            start = System.nanoTime();
+            enumeratedRoutes = 0;
+            filteredRoutes = 0;
+            for (String[] pair : pairs) {
+                List<Route> routes = graph.findRoutesWithMaxStops(pair[0], pair[1], maxStops, 1, Integer.MAX_VALUE);
+                enumeratedRoutes += routes.size();
+                // Sorted by price, so a route survives if it has fewer legs or a shorter
+                // duration than every cheaper survivor
+                List<Route> front = new ArrayList<>();
+                for (Route route : routes) {
+                    boolean dominated = false;
+                    for (Route kept : front) {
+                        if (kept.getTotalDuration() <= route.getTotalDuration()
+                                && kept.getFlightCount() <= route.getFlightCount()) {
+                            dominated = true;
+                            break;
+                        }
+                    }
+                    if (!dominated) front.add(route);
+                }
+                filteredRoutes += front.size();
+            }
+            enumerateUs = (System.nanoTime() - start) / 1000.0 / searches;
+        }
+
+        System.out.printf("Hub-and-spoke network: %d hubs, %,d spokes, %,d flights, up to %d stops\n",
+                hubCount, spokeCount, graph.getTotalFlights(), maxStops);
+        System.out.printf("Pareto search: %.1f us, %.1f labels, %.1f routes\n",
+                paretoUs, labels / (double) searches, paretoRoutes / (double) searches);
+        System.out.printf("Enumerate then filter: %.1f us, %.1f routes built, %.1f kept\n",
+                enumerateUs, enumeratedRoutes / (double) searches, filteredRoutes / (double) searches);
+        System.out.println();
+    }
+
+    // Compares the Pareto search with a filter over every loopless route on small random
+    // graphs without schedules, with some flights scheduled, and with all of them
+    // scheduled. Routes whose consecutive scheduled legs miss the minimum connection
+    // time are left out; the fronts are compared as (price, duration, legs) values.
+    public boolean testParetoSearchAgainstEnumeration(int graphCount) {
+        System.out.println("=== PARETO ROUTE SEARCH BRUTE-FORCE CHECK ===");
+
+        double[] scheduledShares = {0.0, 0.6, 1.0};
+        Random random = new Random(97);
+        int pairs = 0;
+        int frontRoutes = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphCount; g++) {
+            Airport[] airports = syntheticAirports("PB" + g + "-", 7);
+            FlightGraph graph = smallRandomGraph(airports, 1, scheduledShares[g % scheduledShares.length], random);
+            int passengers = 1 + random.nextInt(2);
+            int maxStops = random.nextInt(4);
+
+            for (Airport origin : airports) {
+                for (Airport destination : airports) {
+                    if (origin == destination) continue;
+                    pairs++;
+                    List<Route> feasible = new ArrayList<>();
+                    for (Route route : enumerateRoutes(graph, origin.getCode(), destination.getCode(),
+                            maxStops + 1, passengers)) {
+                        if (scheduledConnectionsFeasible(route)) feasible.add(route);
+                    }
+
+                    Set<String> expected = new TreeSet<>();
+                    for (Route route : feasible) {
+                        boolean dominated = false;
+                        for (Route other : feasible) {
+                            if (dominates(other, route)) {
+                                dominated = true;
+                                break;
+                            }
+                        }
+                        if (!dominated) expected.add(criteria(route));
+                    }
+                    Set<String> actual = new TreeSet<>();
+                    for (Route route : graph.findParetoRoutes(origin.getCode(), destination.getCode(),
+                            passengers, maxStops)) {
+                        actual.add(criteria(route));
+                    }
+
+                    frontRoutes += expected.size();
+                    if (!expected.equals(actual) && mismatches++ < 5) {
+                        System.out.printf("Mismatch %s -> %s, up to %d stops: expected %s, found %s\n",
+                                origin.getCode(), destination.getCode(), maxStops, expected, actual);
+                    }
+                }
+            }
+        }
+
+        boolean passed = mismatches == 0;
+        System.out.printf("%d random graphs of 7 airports, %,d origin-destination pairs, %,d front routes\n",
+                graphCount, pairs, frontRoutes);
+        System.out.printf("Pairs differing from enumeration: %d\n", mismatches);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    // At least as good on price, duration and legs, and better on one of them
+    private static boolean dominates(Route a, Route b) {
+        double priceA = Math.round(a.getTotalPrice() * 100) / 100.0;
+        double priceB = Math.round(b.getTotalPrice() * 100) / 100.0;
+        return priceA <= priceB && a.getTotalDuration() <= b.getTotalDuration()
+                && a.getFlightCount() <= b.getFlightCount()
+                && (priceA < priceB || a.getTotalDuration() < b.getTotalDuration()
+                || a.getFlightCount() < b.getFlightCount());
+    }
+
+    private static String criteria(Route route) {
+        return String.format("%.2f/%dmin/%d", route.getTotalPrice(), route.getTotalDuration(), route.getFlightCount());
+    }
+
+    // Every scheduled leg that follows another scheduled leg leaves at least the
+    // airport's minimum connection time after the landing
+    private static boolean scheduledConnectionsFeasible(Route route) {
+        List<Flight> legs = route.getFlights();
+        for (int i = 0; i + 1 < legs.size(); i++) {
+            Flight arriving = legs.get(i);
+            Flight departing = legs.get(i + 1);
+            if (arriving.hasSchedule() && departing.hasSchedule() && departing.getDepartureTime().isBefore(
+                    arriving.getArrivalTime().plusMinutes(arriving.getDestination().getMinimumConnectionMinutes()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void testConnectionScanPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== CONNECTION SCAN PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("CS", airportCount);
+        Random random = new Random(71);
+        for (Airport airport : airports) {
+            airport.setMinimumConnectionMinutes(30 + random.nextInt(60));
+        }
+        LocalDateTime day = LocalDate.now().plusDays(30).atStartOfDay();
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : scheduledFlights(airports, flightsPerAirport, day, 73)) {
+            graph.addFlight(flight);
+        }
+
+        long start = System.nanoTime();
+        ConnectionScan timetable = graph.buildConnectionScan();
+        double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("%,d airports, %,d connections in one day; timetable built in %.1f ms (%,d KB)\n",
+                airportCount, timetable.getConnectionCount(), buildMs, timetable.getMemoryBytes() / 1024);
+
+        int queries = 200;
+        String[][] pairs = new String[queries][];
+        LocalDateTime[] departAfter = new LocalDateTime[queries];
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+            departAfter[i] = day.plusMinutes(random.nextInt(6 * 60));
+        }
+
+        double scanUs = 0;
+        double profileUs = 0;
+        double enumerateUs = 0;
+        int scanFound = 0;
+        int enumerateFound = 0;
+        long profileRoutes = 0;
+        // The first round warms up all three
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            scanFound = 0;
+            for (int i = 0; i < queries; i++) {
+                if (timetable.findEarliestArrival(pairs[i][0], pairs[i][1], departAfter[i], 1) != null) scanFound++;
+            }
+            scanUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            start = System.nanoTime();
+            profileRoutes = 0;
+            for (int i = 0; i < queries; i++) {
+                profileRoutes += timetable.findProfile(pairs[i][0], pairs[i][1], departAfter[i],
+                        departAfter[i].plusHours(12), 1).size();
+            }
+            profileUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            // Without a timetable: enumerate routes of up to 2 stops and check each schedule
+            start = System.nanoTime();
+            enumerateFound = 0;
+            for (int i = 0; i < queries; i++) {
+                LocalDateTime best = null;
+                for (Route route : graph.findRoutesWithMaxStops(pairs[i][0], pairs[i][1], 2, 1, Integer.MAX_VALUE)) {
+                    List<Flight> legs = route.getFlights();
+                    if (legs.getFirst().getDepartureTime().isBefore(departAfter[i]) || !route.hasFeasibleConnections()) {
+                        continue;
+                    }
+                    LocalDateTime arrival = legs.getLast().getArrivalTime();
+                    if (best == null || arrival.isBefore(best)) best = arrival;
+                }
+                if (best != null) enumerateFound++;
+            }
+            enumerateUs = (System.nanoTime() - start) / 1000.0 / queries;
+        }
+
+        System.out.printf("Earliest arrival by connection scan: %.1f us (%d of %d reachable)\n",
+                scanUs, scanFound, queries);
+        System.out.printf("Profile over a 12 hour window: %.1f us (%.1f departures)\n",
+                profileUs, profileRoutes / (double) queries);
+        System.out.printf("Enumerating routes up to 2 stops and checking times: %.1f us (%d of %d reachable)\n",
+                enumerateUs, enumerateFound, queries);
+        System.out.println();
+    }
+
+    // Compares earliest-arrival and profile queries with every loopless route whose
+    // connections can be made, on small random timetables over two days. A profile
+    // departure counts if no departure at the same time or later arrives as early.
+    public boolean testConnectionScanAgainstEnumeration(int graphCount) {
+        System.out.println("=== CONNECTION SCAN BRUTE-FORCE CHECK ===");
+
+        Random random = new Random(101);
+        int queries = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphCount; g++) {
+            Airport[] airports = syntheticAirports("CB" + g + "-", 7);
+            FlightGraph graph = smallRandomGraph(airports, 2, 1.0, random);
+            ConnectionScan timetable = graph.buildConnectionScan();
+            int passengers = 1 + random.nextInt(2);
+            LocalDateTime windowStart = LocalDate.of(2030, 1, 1).atStartOfDay().plusMinutes(random.nextInt(24 * 60));
+            LocalDateTime windowEnd = windowStart.plusMinutes(random.nextInt(24 * 60));
+
+            for (Airport origin : airports) {
+                for (Airport destination : airports) {
+                    if (origin == destination) continue;
+                    queries++;
+                    List<Route> routes = new ArrayList<>();
+                    for (Route route : enumerateRoutes(graph, origin.getCode(), destination.getCode(),
+                            airports.length - 1, passengers)) {
+                        List<Flight> legs = route.getFlights();
+                        if (!legs.getFirst().getDepartureTime().isBefore(windowStart)
+                                && scheduledConnectionsFeasible(route)) {
+                            routes.add(route);
+                        }
+                    }
+
+                    LocalDateTime expectedArrival = null;
+                    for (Route route : routes) {
+                        LocalDateTime arrival = route.getFlights().getLast().getArrivalTime();
+                        if (expectedArrival == null || arrival.isBefore(expectedArrival)) expectedArrival = arrival;
+                    }
+                    LocalDateTime arrival = timetable.getEarliestArrivalTime(origin.getCode(), destination.getCode(),
+                            windowStart, passengers);
+
+                    // Latest departures first, keeping each that beats every later one
+                    routes.sort(Comparator.comparing((Route r) -> r.getFlights().getFirst().getDepartureTime())
+                            .reversed()
+                            .thenComparing(r -> r.getFlights().getLast().getArrivalTime()));
+                    List<String> expectedProfile = new ArrayList<>();
+                    LocalDateTime bestLater = null;
+                    for (Route route : routes) {
+                        LocalDateTime departure = route.getFlights().getFirst().getDepartureTime();
+                        LocalDateTime landing = route.getFlights().getLast().getArrivalTime();
+                        if (bestLater != null && !landing.isBefore(bestLater)) continue;
+                        bestLater = landing;
+                        if (!departure.isAfter(windowEnd)) expectedProfile.add(departure + " -> " + landing);
+                    }
+                    Collections.reverse(expectedProfile);
+                    List<String> profile = new ArrayList<>();
+                    for (Route route : timetable.findProfile(origin.getCode(), destination.getCode(),
+                            windowStart, windowEnd, passengers)) {
+                        if (!scheduledConnectionsFeasible(route)) profile.add("infeasible " + route);
+                        profile.add(route.getFlights().getFirst().getDepartureTime() + " -> "
+                                + route.getFlights().getLast().getArrivalTime());
+                    }
+
+                    if (!Objects.equals(expectedArrival, arrival) || !expectedProfile.equals(profile)) {
+                        if (mismatches++ < 5) {
+                            System.out.printf("Mismatch %s -> %s: earliest %s, found %s; profile %s, found %s\n",
+                                    origin.getCode(), destination.getCode(), expectedArrival, arrival,
+                                    expectedProfile, profile);
+                        }
+                    }
+                }
+            }
+        }
+
+        boolean passed = mismatches == 0;
+        System.out.printf("%d random timetables of 7 airports over two days, %,d queries\n", graphCount, queries);
+        System.out.printf("Queries differing from enumeration: %d\n", mismatches);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    private void testShortestPathPerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== SHORTEST PATH PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("BP", airportCount);
+        FlightGraph graph = new FlightGraph();
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 79)) {
+            graph.addFlight(flight);
+        }
+
+        Random random = new Random(83);
+        int queries = 200;
+        String[][] pairs = new String[queries][];
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+
+        double bidirectionalUs = 0;
+        double oneSidedUs = 0;
+        long bidirectionalExplored = 0;
+        long oneSidedExplored = 0;
+        long bidirectionalAllocated = 0;
+        long oneSidedAllocated = 0;
+        long bidirectionalHops = 0;
+        long oneSidedHops = 0;
+        // The first round warms up both searches
+        for (int round = 0; round < 2; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            bidirectionalExplored = 0;
+            bidirectionalHops = 0;
+            for (String[] pair : pairs) {
+                List<String> path = graph.getShortestPath(pair[0], pair[1]);
+                if (!path.isEmpty()) bidirectionalHops += path.size() - 1;
+                bidirectionalExplored += graph.getPathSearch().getLastExploredCount();
+            }
+            bidirectionalUs = (System.nanoTime() - start) / 1000.0 / queries;
+            bidirectionalAllocated = allocatedBytes() - allocatedBefore;
+
+            // One-sided BFS over codes, as getShortestPath worked before
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            oneSidedExplored = 0;
+            oneSidedHops = 0;
+            for (String[] pair : pairs) {
+                Map<String, String> parent = new HashMap<>();
+                Queue<String> queue = new LinkedList<>();
+                queue.offer(pair[0]);
+                parent.put(pair[0], null);
+                while (!queue.isEmpty()) {
+                    String current = queue.poll();
+                    if (current.equals(pair[1])) {
+                        for (String node = parent.get(current); node != null; node = parent.get(node)) {
+                            oneSidedHops++;
+                        }
+                        break;
+                    }
+                    for (Flight flight : graph.getFlightsFrom(current)) {
+                        String neighbor = flight.getDestination().getCode();
+                        if (!parent.containsKey(neighbor) && flight.hasAvailableSeats()) {
+                            parent.put(neighbor, current);
+                            queue.offer(neighbor);
+                        }
+                    }
+                }
+                oneSidedExplored += parent.size();
+            }
+            oneSidedUs = (System.nanoTime() - start) / 1000.0 / queries;
+            oneSidedAllocated = allocatedBytes() - allocatedBefore;
+        }
+
+        System.out.printf("%,d airports, %,d flights, %d queries\n", airportCount, graph.getTotalFlights(), queries);
+        System.out.printf("Bidirectional BFS: %.1f us, %,.0f airports explored, %,d bytes allocated per query\n",
+                bidirectionalUs, bidirectionalExplored / (double) queries, bidirectionalAllocated / queries);
+        System.out.printf("One-sided BFS:     %.1f us, %,.0f airports explored, %,d bytes allocated per query\n",
+                oneSidedUs, oneSidedExplored / (double) queries, oneSidedAllocated / queries);
+        System.out.printf("Total hops: %,d vs %,d\n", bidirectionalHops, oneSidedHops);
+        System.out.println();
+    }
+
+    // Compares getShortestPath with a one-sided BFS over getFlightsFrom, for every pair
+    // of small random graphs and for random pairs of one sparse graph with long paths.
+    // A returned path must also be flyable: each hop a flight with free seats.
+    public boolean testShortestPathAgainstBreadthFirstSearch(int graphCount) {
+        System.out.println("=== SHORTEST PATH BRUTE-FORCE CHECK ===");
+
+        Random random = new Random(103);
+        List<FlightGraph> graphs = new ArrayList<>();
+        List<Airport[]> graphAirports = new ArrayList<>();
+        for (int g = 0; g < graphCount; g++) {
+            Airport[] airports = syntheticAirports("SB" + g + "-", 7);
+            graphs.add(smallRandomGraph(airports, 1, 0.0, random));
+            graphAirports.add(airports);
+        }
+        Airport[] sparse = syntheticAirports("SBS", 2_000);
+        FlightGraph sparseGraph = new FlightGraph();
+        for (Flight flight : syntheticFlights(sparse, 2, 107)) {
+            sparseGraph.addFlight(flight);
+        }
+
+        int queries = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphCount; g++) {
+            for (Airport origin : graphAirports.get(g)) {
+                for (Airport destination : graphAirports.get(g)) {
+                    if (origin == destination) continue;
+                    queries++;
+                    if (!shortestPathMatches(graphs.get(g), origin.getCode(), destination.getCode())
+                            && mismatches++ < 5) {
+                        System.out.printf("Mismatch %s -> %s\n", origin.getCode(), destination.getCode());
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            String origin = sparse[random.nextInt(sparse.length)].getCode();
+            String destination = sparse[random.nextInt(sparse.length)].getCode();
+            if (origin.equals(destination)) continue;
+            queries++;
+            if (!shortestPathMatches(sparseGraph, origin, destination) && mismatches++ < 5) {
+                System.out.printf("Mismatch %s -> %s\n", origin, destination);
+            }
+        }
+
+        boolean passed = mismatches == 0;
+        System.out.printf("%d random graphs of 7 airports and one of %,d airports, %,d queries\n",
+                graphCount, sparse.length, queries);
+        System.out.printf("Queries differing from BFS: %d\n", mismatches);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    private static boolean shortestPathMatches(FlightGraph graph, String originCode, String destCode) {
+        Map<String, Integer> hops = new HashMap<>();
+        Queue<String> queue = new ArrayDeque<>();
+        hops.put(originCode, 0);
+        queue.offer(originCode);
+        while (!queue.isEmpty() && !hops.containsKey(destCode)) {
+            String current = queue.poll();
+            for (Flight flight : graph.getFlightsFrom(current)) {
+                String next = flight.getDestination().getCode();
+                if (flight.hasAvailableSeats() && !hops.containsKey(next)) {
+                    hops.put(next, hops.get(current) + 1);
+                    queue.offer(next);
+                }
+            }
+        }
+
+        List<String> path = graph.getShortestPath(originCode, destCode);
+        Integer expected = hops.get(destCode);
+        if (expected == null) return path.isEmpty();
+        if (path.size() != expected + 1 || !path.getFirst().equals(originCode) || !path.getLast().equals(destCode)) {
+            return false;
+        }
+        for (int i = 0; i + 1 < path.size(); i++) {
+            boolean flyable = false;
+            for (Flight flight : graph.getFlightsFrom(path.get(i))) {
+                if (flight.hasAvailableSeats() && flight.getDestination().getCode().equals(path.get(i + 1))) {
+                    flyable = true;
+                    break;
+                }
+            }
+            if (!flyable) return false;
+        }
+        return true;
+    }
+
+    // Flights departing at random minutes of one day, lasting 45 minutes to 6 hours
+    private static List<Flight> scheduledFlights(Airport[] airports, int flightsPerAirport, LocalDateTime day,
+                                                 long seed) {
+        Random random = new Random(seed);
+        List<Flight> flights = new ArrayList<>(airports.length * flightsPerAirport);
+        for (int origin = 0; origin < airports.length; origin++) {
+            for (int f = 0; f < flightsPerAirport; f++) {
+                int destination = random.nextInt(airports.length - 1);
+                if (destination >= origin) destination++;
+                LocalDateTime departure = day.plusMinutes(random.nextInt(24 * 60));
+                flights.add(new Flight(airports[origin], airports[destination], 100 + random.nextInt(200),
+                        50 + random.nextInt(450), departure, departure.plusMinutes(45 + random.nextInt(316)),
+                        "ST" + seed + "-" + origin + "-" + f));
+            }
+        }
+        return flights;
+    }
+
+    // Hubs are fully connected with two flights each way; every spoke links to three hubs
+    private static List<Flight> hubAndSpokeFlights(Airport[] hubs, Airport[] spokes, long seed) {
+        Random random = new Random(seed);
+        LocalDate date = LocalDate.now().plusDays(30);
+        List<Flight> flights = new ArrayList<>();
+        int number = 0;
+
+        for (Airport from : hubs) {
+            for (Airport to : hubs) {
+                if (from == to) continue;
+                for (int i = 0; i < 2; i++) {
+                    flights.add(new Flight(from, to, 150 + random.nextInt(150), 100 + random.nextInt(400),
+                            date, "HS" + seed + "-" + number++));
+                }
+            }
+        }
+
+        for (Airport spoke : spokes) {
+            for (int i = 0; i < 3; i++) {
+                Airport hub = hubs[random.nextInt(hubs.length)];
+                flights.add(new Flight(spoke, hub, 80 + random.nextInt(100), 50 + random.nextInt(150),
+                        date, "HS" + seed + "-" + number++));
+                flights.add(new Flight(hub, spoke, 80 + random.nextInt(100), 50 + random.nextInt(150),
+                        date, "HS" + seed + "-" + number++));
+            }
+        }
+        return flights;
+    }
+
+    // Bytes allocated so far by this thread, or 0 where the JVM does not report it
+    private void testContractionHierarchyPerformance(int airportCount) {
+        System.out.println("=== CONTRACTION HIERARCHY PERFORMANCE TEST ===");
+
+        // Tiered network, all flights both ways: every airport flies to its two nearest
+        // neighbours along a ring and to its regional hub, one airport in a hundred;
+        // hubs link to the next hub and the hub ten regions on, and twenty of them are
+        // international hubs with flights between all of them
+        Airport[] airports = syntheticAirports("CH", airportCount);
+        FlightGraph graph = new FlightGraph();
+        LocalDate date = LocalDate.now().plusDays(30);
+        int internationalSpacing = airportCount / 20;
+        int number = 0;
+        for (int origin = 0; origin < airportCount; origin++) {
+            List<Integer> destinations = new ArrayList<>();
+            destinations.add((origin + 1) % airportCount);
+            destinations.add((origin + 2) % airportCount);
+            int hub = origin / 100 * 100;
+            if (origin != hub) {
+                destinations.add(hub);
+            } else {
+                destinations.add((origin + 100) % airportCount);
+                destinations.add((origin + 1_000) % airportCount);
+            }
+            if (origin % internationalSpacing == 0) {
+                for (int other = origin + internationalSpacing; other < airportCount; other += internationalSpacing) {
+                    destinations.add(other);
+                }
+            }
+            for (int destination : destinations) {
+                graph.addFlight(new Flight(airports[origin], airports[destination], 150, 100, date, "CH" + number++));
+                graph.addFlight(new Flight(airports[destination], airports[origin], 150, 100, date, "CH" + number++));
+            }
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ContractionHierarchy index = graph.getHopDistanceIndex();
+        double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+        long heapAfter = usedHeap();
+
+        Random random = new Random(89);
+        int queries = 1_000;
+        String[][] pairs = new String[queries][];
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+
+        double indexUs = 0;
+        double pathUs = 0;
+        double bfsUs = 0;
+        long indexHops = 0;
+        long indexSettled = 0;
+        long bfsExplored = 0;
+        long pathHops = 0;
+        long bfsHops = 0;
+        // The first rounds warm up all three
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            indexHops = 0;
+            indexSettled = 0;
+            for (String[] pair : pairs) {
+                indexHops += Math.max(0, index.getHopDistance(pair[0], pair[1]));
+                indexSettled += index.getLastSettledCount();
+            }
+            indexUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            start = System.nanoTime();
+            pathHops = 0;
+            for (String[] pair : pairs) {
+                pathHops += Math.max(0, index.getPath(pair[0], pair[1]).size() - 1);
+            }
+            pathUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            start = System.nanoTime();
+            bfsHops = 0;
+            bfsExplored = 0;
+            for (String[] pair : pairs) {
+                bfsHops += Math.max(0, graph.getShortestPath(pair[0], pair[1]).size() - 1);
+                bfsExplored += graph.getPathSearch().getLastExploredCount();
+            }
+            bfsUs = (System.nanoTime() - start) / 1000.0 / queries;
+        }
+
+        System.out.printf("%,d airports, %,d flights, %d queries\n", airportCount, graph.getTotalFlights(), queries);
+        System.out.printf("Preprocessing: %.1f ms, %,d shortcuts\n", buildMs, index.getShortcutCount());
+        System.out.printf("Index arrays: %,d bytes (heap grew by %,d bytes)\n",
+                index.getMemoryBytes(), heapAfter - heapBefore);
+        System.out.printf("Hierarchy distance: %.2f us, %,.0f airports settled per query\n",
+                indexUs, indexSettled / (double) queries);
+        System.out.printf("Hierarchy path:     %.2f us per query\n", pathUs);
+        System.out.printf("Bidirectional BFS:  %.2f us, %,.0f airports explored per query\n",
+                bfsUs, bfsExplored / (double) queries);
+        System.out.printf("Preprocessing pays off after %,.0f queries\n",
+                buildMs * 1000.0 / Math.max(0.001, bfsUs - indexUs));
+        System.out.printf("Total hops: %,d vs %,d vs %,d\n", indexHops, pathHops, bfsHops);
+        System.out.println();
+    }
+
+    private void testExplorePerformance(int airportCount, int flightsPerAirport) {
+        System.out.println("=== EXPLORE FROM ORIGIN PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("EX", airportCount);
+        FlightNetwork explore = new FlightNetwork();
+        explore.addAirports(airports);
+        for (Flight flight : syntheticFlights(airports, flightsPerAirport, 97)) {
+            explore.addFlight(flight);
+        }
+
+        Random random = new Random(101);
+        int origins = 20;
+        String[] originCodes = new String[origins];
+        for (int i = 0; i < origins; i++) {
+            originCodes[i] = airports[random.nextInt(airportCount)].getCode();
+        }
+
+        double perDestinationMs = 0;
+        double roundsMs = 0;
+        double unlimitedMs = 0;
+        long perDestinationReached = 0;
+        long roundsReached = 0;
+        long unlimitedReached = 0;
+        long fareMismatches = 0;
+        // The first round warms up all three
+        for (int round = 0; round < 2; round++) {
+            // One searchRoutes call per destination, as the explore page did
+            List<Map<String, Double>> cheapest = new ArrayList<>();
+            long start = System.nanoTime();
+            perDestinationReached = 0;
+            for (String origin : originCodes) {
+                Map<String, Double> fares = new HashMap<>();
+                for (Airport destination : airports) {
+                    if (destination.getCode().equals(origin)) continue;
+                    List<Route> routes = explore.searchRoutes(origin, destination.getCode(), 1);
+                    if (!routes.isEmpty()) {
+                        fares.put(destination.getCode(), routes.get(0).getTotalPrice());
+                    }
+                }
+                perDestinationReached += fares.size();
+                cheapest.add(fares);
+            }
+            perDestinationMs = (System.nanoTime() - start) / 1_000_000.0 / origins;
+
+            // The same one-stop limit in a single round-based search
+            start = System.nanoTime();
+            roundsReached = 0;
+            fareMismatches = 0;
+            for (int i = 0; i < origins; i++) {
+                List<ExploreSearch.Destination> reached = explore.exploreFrom(originCodes[i], 1, 1, Double.MAX_VALUE);
+                roundsReached += reached.size();
+                for (ExploreSearch.Destination destination : reached) {
+                    Double fare = cheapest.get(i).get(destination.getAirportCode());
+                    if (fare == null || Math.abs(fare - destination.getFare()) > 1e-6) fareMismatches++;
+                }
+            }
+            roundsMs = (System.nanoTime() - start) / 1_000_000.0 / origins;
+
+            start = System.nanoTime();
+            unlimitedReached = 0;
+            for (String origin : originCodes) {
+                unlimitedReached += explore.exploreFrom(origin, 1).size();
+            }
+            unlimitedMs = (System.nanoTime() - start) / 1_000_000.0 / origins;
+        }
+
+        System.out.printf("%,d airports, %,d flights, %d origins\n", airportCount, explore.getTotalFlights(), origins);
+        System.out.printf("searchRoutes per destination: %.2f ms, %,.0f airports within one stop\n",
+                perDestinationMs, perDestinationReached / (double) origins);
+        System.out.printf("Explore, up to one stop:      %.2f ms, %,.0f airports (%d fare mismatches)\n",
+                roundsMs, roundsReached / (double) origins, fareMismatches);
+        System.out.printf("Explore, any number of stops: %.2f ms, %,.0f airports\n",
+                unlimitedMs, unlimitedReached / (double) origins);
+        System.out.println();
+    }
+
+    private void testAirportGroupPerformance(int iterations) {
+        System.out.println("=== AIRPORT GROUP SEARCH PERFORMANCE TEST ===");
+
+        // The sample network: 8 Greek airports, 8 European hubs
+        FlightNetwork groups = new FlightNetwork();
+        Airport[] airports = DataInitializer.createSampleAirports();
+        groups.addAirports(airports);
+        groups.addFlights(DataInitializer.createSampleFlights(airports));
+        List<String> hubs = new ArrayList<>();
+        for (Airport airport : airports) {
+            if (!airport.getLocation().endsWith("Greece")) hubs.add(airport.getCode());
+        }
+        groups.defineAirportGroup("European hubs", hubs);
+        Set<String> greek = groups.getAirportGroup("Greece");
+
+        double pairwiseUs = 0;
+        double groupUs = 0;
+        double pairwiseCheapestUs = 0;
+        double groupCheapestUs = 0;
+        int pairwiseRoutes = 0;
+        int groupRoutes = 0;
+        double pairwiseFare = 0;
+        double groupFare = 0;
+        // The first round warms up all four
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                List<Route> routes = new ArrayList<>();
+                for (String origin : greek) {
+                    for (String hub : hubs) {
+                        routes.addAll(groups.searchRoutes(origin, hub, 1));
+                    }
+                }
+                routes.sort(Route.priceComparator());
+                pairwiseRoutes = routes.size();
+            }
+            pairwiseUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                groupRoutes = groups.searchGroupRoutes("Greece", "European hubs", 1).size();
+            }
+            groupUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                pairwiseFare = Double.MAX_VALUE;
+                for (String origin : greek) {
+                    for (String hub : hubs) {
+                        Route route = groups.findCheapestRoute(origin, hub, 1);
+                        if (route != null) pairwiseFare = Math.min(pairwiseFare, route.getTotalPrice());
+                    }
+                }
+            }
+            pairwiseCheapestUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                groupFare = groups.findCheapestGroupRoute("Greece", "European hubs", 1).getTotalPrice();
+            }
+            groupCheapestUs = (System.nanoTime() - start) / 1000.0 / iterations;
+        }
+
+        System.out.printf("%d Greek airports x %d European hubs, %d flights\n",
+                greek.size(), hubs.size(), groups.getTotalFlights());
+        System.out.printf("Up to one stop, %d pairwise searches: %.1f us, %d routes\n",
+                greek.size() * hubs.size(), pairwiseUs, pairwiseRoutes);
+        System.out.printf("Up to one stop, one group search:    %.1f us, %d routes\n", groupUs, groupRoutes);
+        System.out.printf("Cheapest, %d pairwise searches: %.1f us, $%.2f\n",
+                greek.size() * hubs.size(), pairwiseCheapestUs, pairwiseFare);
+        System.out.printf("Cheapest, one group search:    %.1f us, $%.2f\n", groupCheapestUs, groupFare);
+        System.out.println();
+    }
+
+    private void testFareCalendarPerformance(int airportCount, int flightsPerAirportPerDay, int days) {
+        System.out.println("=== FARE CALENDAR PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("FC", airportCount);
+        Random random = new Random(131);
+        for (Airport airport : airports) {
+            airport.setMinimumConnectionMinutes(30 + random.nextInt(60));
+        }
+        LocalDate firstDay = LocalDate.now().plusDays(30);
+        FlightGraph graph = new FlightGraph();
+        for (int day = 0; day < days; day++) {
+            for (Flight flight : scheduledFlights(airports, flightsPerAirportPerDay,
+                    firstDay.plusDays(day).atStartOfDay(), 137 + day)) {
+                graph.addFlight(flight);
+            }
+        }
+
+        // Departure within three days either side of a mid-window day, return a week later
+        int queries = 100;
+        String[][] pairs = new String[queries][];
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+        LocalDate outboundFirst = firstDay.plusDays(days / 2 - 7);
+        LocalDate outboundLast = outboundFirst.plusDays(6);
+        LocalDate returnFirst = outboundFirst.plusDays(7);
+        LocalDate returnLast = outboundLast.plusDays(7);
+
+        double perDayMs = 0;
+        double calendarMs = 0;
+        double perDayMatrixMs = 0;
+        double matrixMs = 0;
+        long perDayRelaxed = 0;
+        long calendarRelaxed = 0;
+        int daysPriced = 0;
+        int pairsPriced = 0;
+        int mismatches = 0;
+        FareCalendarSearch search = graph.getFareCalendarSearch();
+        // The first round warms up all four
+        for (int round = 0; round < 2; round++) {
+            // One single-day search per departure day
+            List<Map<LocalDate, Route>> perDay = new ArrayList<>();
+            perDayRelaxed = 0;
+            long start = System.nanoTime();
+            for (String[] pair : pairs) {
+                Map<LocalDate, Route> fares = new HashMap<>();
+                for (LocalDate day = outboundFirst; !day.isAfter(outboundLast); day = day.plusDays(1)) {
+                    Route route = graph.findFareCalendar(pair[0], pair[1], day, day, 1, 1).get(day);
+                    perDayRelaxed += search.getLastRelaxedCount();
+                    if (route != null) fares.put(day, route);
+                }
+                perDay.add(fares);
+            }
+            perDayMs = (System.nanoTime() - start) / 1_000_000.0 / queries;
+
+            calendarRelaxed = 0;
+            daysPriced = 0;
+            mismatches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                SortedMap<LocalDate, Route> fares = graph.findFareCalendar(pairs[i][0], pairs[i][1],
+                        outboundFirst, outboundLast, 1, 1);
+                calendarRelaxed += search.getLastRelaxedCount();
+                daysPriced += fares.size();
+                if (fares.size() != perDay.get(i).size()) mismatches++;
+                for (Map.Entry<LocalDate, Route> entry : fares.entrySet()) {
+                    Route route = perDay.get(i).get(entry.getKey());
+                    if (route == null || Math.abs(route.getTotalPrice() - entry.getValue().getTotalPrice()) > 1e-6) {
+                        mismatches++;
+                    }
+                }
+            }
+            calendarMs = (System.nanoTime() - start) / 1_000_000.0 / queries;
+
+            // Round trips: a single-day search per outbound and per return day
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                for (LocalDate day = outboundFirst; !day.isAfter(outboundLast); day = day.plusDays(1)) {
+                    graph.findFareCalendar(pair[0], pair[1], day, day, 1, 1);
+                }
+                for (LocalDate day = returnFirst; !day.isAfter(returnLast); day = day.plusDays(1)) {
+                    graph.findFareCalendar(pair[1], pair[0], day, day, 1, 1);
+                }
+            }
+            perDayMatrixMs = (System.nanoTime() - start) / 1_000_000.0 / queries;
+
+            pairsPriced = 0;
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                FareCalendarSearch.FareMatrix matrix = graph.findRoundTripFares(pair[0], pair[1],
+                        outboundFirst, outboundLast, returnFirst, returnLast, 1, 1);
+                for (LocalDate out : matrix.getOutboundDays()) {
+                    for (LocalDate back : matrix.getReturnDays()) {
+                        if (!Double.isNaN(matrix.getFare(out, back))) pairsPriced++;
+                    }
+                }
+            }
+            matrixMs = (System.nanoTime() - start) / 1_000_000.0 / queries;
+        }
+
+        System.out.printf("%,d airports, %,d flights over %d days, %d origin/destination pairs, up to one stop\n",
+                airportCount, graph.getTotalFlights(), days, queries);
+        System.out.printf("7 single-day searches: %.3f ms, %,.0f flights priced\n",
+                perDayMs, perDayRelaxed / (double) queries);
+        System.out.printf("One 7-day calendar:    %.3f ms, %,.0f flights priced, %.1f days with a fare (%d mismatches)\n",
+                calendarMs, calendarRelaxed / (double) queries, daysPriced / (double) queries, mismatches);
+        System.out.printf("7x7 round trips, 14 single-day searches: %.3f ms\n", perDayMatrixMs);
+        System.out.printf("7x7 round trips, two calendars:          %.3f ms, %.1f day pairs with a fare\n",
+                matrixMs, pairsPriced / (double) queries);
+        System.out.println();
+    }
+
+    // Compares each day of the fare calendar with the cheapest of all itineraries leaving
+    // that day, enumerated depth-first on small random graphs over five days, some
+    // flights scheduled. Itineraries never visit an airport twice.
+    public boolean testFareCalendarAgainstEnumeration(int graphCount) {
+        System.out.println("=== FARE CALENDAR BRUTE-FORCE CHECK ===");
+
+        Random random = new Random(109);
+        int calendars = 0;
+        int fares = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphCount; g++) {
+            Airport[] airports = syntheticAirports("FB" + g + "-", 7);
+            FlightGraph graph = smallRandomGraph(airports, 5, 0.5, random);
+            int passengers = 1 + random.nextInt(2);
+            int maxStops = random.nextInt(4);
+            LocalDate firstDay = LocalDate.of(2030, 1, 1).plusDays(random.nextInt(3));
+            LocalDate lastDay = firstDay.plusDays(random.nextInt(3));
+
+            for (Airport origin : airports) {
+                for (Airport destination : airports) {
+                    if (origin == destination) continue;
+                    calendars++;
+                    SortedMap<LocalDate, Double> expected = new TreeMap<>();
+                    cheapestItineraries(graph, origin.getCode(), destination.getCode(), firstDay, lastDay,
+                            maxStops + 1, passengers, new ArrayList<>(), expected);
+
+                    SortedMap<LocalDate, Route> calendar = graph.findFareCalendar(origin.getCode(),
+                            destination.getCode(), firstDay, lastDay, passengers, maxStops);
+                    boolean matches = expected.keySet().equals(calendar.keySet());
+                    for (Map.Entry<LocalDate, Route> day : calendar.entrySet()) {
+                        Double fare = expected.get(day.getKey());
+                        matches &= fare != null && Math.abs(fare - day.getValue().getTotalPrice()) < 1e-6;
+                    }
+                    fares += expected.size();
+                    if (!matches && mismatches++ < 5) {
+                        System.out.printf("Mismatch %s -> %s, %s to %s: expected %s, found %s\n",
+                                origin.getCode(), destination.getCode(), firstDay, lastDay, expected, calendar);
+                    }
+                }
+            }
+        }
+
+        boolean passed = mismatches == 0;
+        System.out.printf("%d random graphs of 7 airports over five days, %,d calendars, %,d daily fares\n",
+                graphCount, calendars, fares);
+        System.out.printf("Calendars differing from enumeration: %d\n", mismatches);
+        System.out.println(passed ? "Result: PASSED" : "Result: FAILED");
+        System.out.println();
+        return passed;
+    }
+
+    // Extends the itinerary in legs by every flight that can follow it, recording the
+    // fare of each one that reaches the destination under the day its first leg leaves
+    private static void cheapestItineraries(FlightGraph graph, String originCode, String destCode,
+                                            LocalDate firstDay, LocalDate lastDay, int maxLegs, int passengerCount,
+                                            List<Flight> legs, SortedMap<LocalDate, Double> cheapest) {
+        String current = legs.isEmpty() ? originCode : legs.getLast().getDestination().getCode();
+        if (current.equals(destCode)) {
+            double fare = 0;
+            for (Flight leg : legs) {
+                fare += leg.getCurrentPrice();
+            }
+            cheapest.merge(legs.getFirst().getFlightDate(), fare, Math::min);
+            return;
+        }
+        if (legs.size() == maxLegs) return;
+
+        for (Flight flight : graph.getFlightsFrom(current)) {
+            if (flight.getAvailableSeats() < passengerCount || visits(legs, originCode, flight.getDestination())) {
+                continue;
+            }
+            if (legs.isEmpty()) {
+                if (flight.getFlightDate().isBefore(firstDay) || flight.getFlightDate().isAfter(lastDay)) continue;
+            } else if (!calendarConnects(legs.getLast(), flight)) {
+                continue;
+            }
+            legs.add(flight);
+            cheapestItineraries(graph, originCode, destCode, firstDay, lastDay, maxLegs, passengerCount, legs, cheapest);
+            legs.remove(legs.size() - 1);
+        }
+    }
+
+    // Whether the itinerary has been at the airport already, its origin included
+    private static boolean visits(List<Flight> legs, String originCode, Airport airport) {
+        if (airport.getCode().equals(originCode)) return true;
+        for (Flight leg : legs) {
+            if (leg.getDestination().equals(airport)) return true;
+        }
+        return false;
+    }
+
+    // The next leg leaves the day the previous one lands or the day after, and between
+    // two scheduled legs no sooner than the airport's minimum connection time
+    private static boolean calendarConnects(Flight arriving, Flight departing) {
+        LocalDate landed = arriving.hasSchedule() ? arriving.getArrivalTime().toLocalDate() : arriving.getFlightDate();
+        LocalDate leaves = departing.getFlightDate();
+        if (leaves.isBefore(landed) || leaves.isAfter(landed.plusDays(1))) return false;
+        return !arriving.hasSchedule() || !departing.hasSchedule() || !departing.getDepartureTime().isBefore(
+                arriving.getArrivalTime().plusMinutes(arriving.getDestination().getMinimumConnectionMinutes()));
+    }
+
+    private void testDatedAdjacencyPerformance(int airportCount, int flightsPerAirportPerDay, int days) {
+        System.out.println("=== DATED ADJACENCY PERFORMANCE TEST ===");
+
+        Airport[] airports = syntheticAirports("DA", airportCount);
+        Random random = new Random(151);
+        for (Airport airport : airports) {
+            airport.setMinimumConnectionMinutes(30 + random.nextInt(60));
+        }
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        FlightGraph graph = new FlightGraph();
+        for (int day = 0; day < days; day++) {
+            for (Flight flight : scheduledFlights(airports, flightsPerAirportPerDay,
+                    firstDay.plusDays(day).atStartOfDay(), 157 + day)) {
+                graph.addFlight(flight);
+            }
+        }
+
+        int queries = 200;
+        String[][] pairs = new String[queries][];
+        LocalDate[] dates = new LocalDate[queries];
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+            dates[i] = firstDay.plusDays(random.nextInt(days));
+        }
+
+        double filteredUs = 0;
+        double datedUs = 0;
+        double departuresFilteredUs = 0;
+        double departuresDatedUs = 0;
+        long filteredRoutes = 0;
+        long datedRoutes = 0;
+        // The first round warms up all four
+        for (int round = 0; round < 2; round++) {
+            // Every date's routes, then the ones leaving on the day with a connection that works
+            filteredRoutes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                for (Route route : graph.findRoutes(pairs[i][0], pairs[i][1])) {
+                    List<Flight> legs = route.getFlights();
+                    if (!legs.getFirst().getFlightDate().equals(dates[i])) continue;
+                    if (legs.size() == 1 || (legs.get(1).getFlightDate().isBefore(legs.get(0).getArrivalTime().toLocalDate().plusDays(2))
+                            && route.hasFeasibleConnections())) {
+                        filteredRoutes++;
+                    }
+                }
+            }
+            filteredUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            datedRoutes = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                datedRoutes += graph.findRoutes(pairs[i][0], pairs[i][1], dates[i]).size();
+            }
+            datedUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            long departures = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                for (Flight flight : graph.getFlightsFrom(pairs[i][0])) {
+                    if (flight.getFlightDate().equals(dates[i])) departures++;
+                }
+            }
+            departuresFilteredUs = (System.nanoTime() - start) / 1000.0 / queries;
+
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                departures -= graph.getFlightsFrom(pairs[i][0], dates[i]).size();
+            }
+            departuresDatedUs = (System.nanoTime() - start) / 1000.0 / queries;
+            if (departures != 0) System.out.println("Departure counts differ by " + departures);
+        }
+
+        System.out.printf("%,d airports, %,d flights over %d days\n", airportCount, graph.getTotalFlights(), days);
+        System.out.printf("Routes on one day, all dates filtered: %.1f us, %,d routes\n", filteredUs, filteredRoutes);
+        System.out.printf("Routes on one day, day buckets:        %.1f us, %,d routes\n", datedUs, datedRoutes);
+        System.out.printf("Departures on one day, all dates filtered: %.1f us\n", departuresFilteredUs);
+        System.out.printf("Departures on one day, day bucket:         %.1f us\n", departuresDatedUs);
+
+        // Roll the window forward: evict the first day, then load a new last day. The
+        // first call only sets the horizon to a day nothing precedes, warming the path.
+        graph.evictFlightsBefore(firstDay);
+        long bucketsBefore = graph.getDayBucketCount();
+        long start = System.nanoTime();
+        graph.evictFlightsBefore(firstDay.plusDays(1));
+        long evictNs = System.nanoTime() - start;
+        boolean hidden = graph.getFlightsFrom(airports[0].getCode(), firstDay).isEmpty();
+        long bucketsEvicted = graph.getDayBucketCount();
+        for (Flight flight : scheduledFlights(airports, flightsPerAirportPerDay,
+                firstDay.plusDays(days).atStartOfDay(), 157 + days)) {
+            graph.addFlight(flight);
+        }
+        System.out.printf("Evicting a day of %,d flights: %,d ns (hidden at once: %b)\n",
+                airportCount * flightsPerAirportPerDay, evictNs, hidden);
+        System.out.printf("Day buckets: %,d before eviction, %,d right after, %,d after loading the next day\n",
+                bucketsBefore, bucketsEvicted, graph.getDayBucketCount());
+        System.out.println();
+    }
+
+    private void testRouteCachePerformance(int airportCount, int flightsPerAirport, int distinctPairs, int searches) {
+        System.out.println("=== ROUTE SEARCH CACHE PERFORMANCE TEST ===");
+
+        // Skewed demand: a few popular pairs take most searches. One search in 50 is
+        // followed by a one-seat booking on a random flight.
+        Airport[] airports = syntheticAirports("RC", airportCount);
+        Random random = new Random(173);
+        String[][] pairs = new String[distinctPairs][];
+        for (int i = 0; i < distinctPairs; i++) {
+            int origin = random.nextInt(airportCount);
+            int destination = (origin + 1 + random.nextInt(airportCount - 1)) % airportCount;
+            pairs[i] = new String[] {airports[origin].getCode(), airports[destination].getCode()};
+        }
+        int[] workload = new int[searches];
+        for (int i = 0; i < searches; i++) {
+            double u = random.nextDouble();
+            workload[i] = (int) (distinctPairs * u * u * u);
+        }
+        int[] booked = new int[searches / 50];
+        for (int i = 0; i < booked.length; i++) {
+            booked[i] = random.nextInt(airportCount * flightsPerAirport);
+        }
+
+        double uncachedUs = 0;
+        double cachedUs = 0;
+        long routesUncached = 0;
+        long routesCached = 0;
+        RouteSearchCache cache = null;
+        // The first round warms up both; each round books seats on fresh copies of the flights
+        for (int round = 0; round < 2; round++) {
+            // Uncached: the same search searchRoutes runs on a miss
+            FlightGraph uncached = new FlightGraph();
+            List<Flight> flights = syntheticFlights(airports, flightsPerAirport, 167);
+            for (Flight flight : flights) {
+                uncached.addFlight(flight);
+            }
+            routesUncached = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                String[] pair = pairs[workload[i]];
+                for (Route route : uncached.findRoutes(pair[0], pair[1])) {
+                    if (route.hasAvailability(1)) routesUncached++;
+                }
+                if (i % 50 == 49) flights.get(booked[i / 50]).bookSeats(1);
+            }
+            uncachedUs = (System.nanoTime() - start) / 1000.0 / searches;
+
+            FlightNetwork cached = new FlightNetwork();
+            cached.addAirports(airports);
+            flights = syntheticFlights(airports, flightsPerAirport, 167);
+            for (Flight flight : flights) {
+                cached.addFlight(flight);
+            }
+            routesCached = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                String[] pair = pairs[workload[i]];
+                routesCached += cached.searchRoutes(pair[0], pair[1], 1).size();
+                if (i % 50 == 49) flights.get(booked[i / 50]).bookSeats(1);
+            }
+            cachedUs = (System.nanoTime() - start) / 1000.0 / searches;
+            cache = cached.getRouteCache();
+        }
+
+        System.out.printf("%,d airports, %,d flights, %,d searches over %,d pairs, %,d bookings\n",
+                airportCount, airportCount * flightsPerAirport, searches, distinctPairs, booked.length);
+        System.out.printf("Uncached: %.2f us per search, %,d routes\n", uncachedUs, routesUncached);
+        System.out.printf("Cached:   %.2f us per search, %,d routes\n", cachedUs, routesCached);
+        System.out.printf("Hit rate %.1f%%, %,d evictions, %,d invalidations (capacity %,d)\n",
+                cache.getHitRate() * 100, cache.getEvictionCount(), cache.getInvalidationCount(), cache.getCapacity());
+        System.out.println();
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    // Airports with synthetic codes; the prefix keeps codes distinct between tests
+    private static Airport[] syntheticAirports(String prefix, int count) {
+        Airport[] airports = new Airport[count];
+        for (int i = 0; i < count; i++) {
+            airports[i] = new Airport(prefix + i, prefix + " Airport " + i, "Synthetic");
+        }
+        return airports;
+    }
+
+    private static List<Flight> syntheticFlights(Airport[] airports, int flightsPerAirport, long seed) {
+        Random random = new Random(seed);
+        LocalDate date = LocalDate.now().plusDays(30);
+        List<Flight> flights = new ArrayList<>(airports.length * flightsPerAirport);
+        for (int origin = 0; origin < airports.length; origin++) {
+            for (int f = 0; f < flightsPerAirport; f++) {
+                int destination = random.nextInt(airports.length - 1);
+                if (destination >= origin) destination++;
+                flights.add(new Flight(airports[origin], airports[destination], 100 + random.nextInt(200),
+                        50 + random.nextInt(450), date, "SY" + seed + "-" + origin + "-" + f));
+            }
+        }
+        return flights;
+    }
+
+    // A few flights per airport for the brute-force checks, spread over the given number
+    // of days from a fixed date; about a third of them nearly or completely full, and
+    // scheduledShare of them with departure and arrival times rather than just a date
+    private static FlightGraph smallRandomGraph(Airport[] airports, int days, double scheduledShare,
+                                                Random random) {
+        FlightGraph graph = new FlightGraph();
+        for (Airport airport : airports) {
+            airport.setMinimumConnectionMinutes(30 + random.nextInt(60));
+            graph.addAirport(airport);
+        }
+
+        LocalDate firstDay = LocalDate.of(2030, 1, 1);
+        int flightCount = airports.length * (2 + random.nextInt(3));
+        for (int f = 0; f < flightCount; f++) {
+            int origin = random.nextInt(airports.length);
+            int destination = random.nextInt(airports.length - 1);
+            if (destination >= origin) destination++;
+            LocalDate date = firstDay.plusDays(random.nextInt(days));
+            int seats = 20 + random.nextInt(80);
+            double price = 50 + random.nextInt(450);
+
+            Flight flight;
+            if (random.nextDouble() < scheduledShare) {
+                LocalDateTime departure = date.atStartOfDay().plusMinutes(random.nextInt(24 * 60));
+                flight = new Flight(airports[origin], airports[destination], seats, price, departure,
+                        departure.plusMinutes(40 + random.nextInt(360)), "BF" + f);
+            } else {
+                flight = new Flight(airports[origin], airports[destination], seats, price, date, "BF" + f);
+            }
+            if (random.nextInt(3) == 0) {
+                flight.setAvailableSeats(random.nextInt(3));
+            } else {
+                flight.bookSeats(random.nextInt(seats));
+            }
+            graph.addFlight(flight);
+        }
+        return graph;
+    }
+
+    // Every loopless route of at most maxLegs legs over flights with seats for the party
+    private static List<Route> enumerateRoutes(FlightGraph graph, String originCode, String destCode,
+                                               int maxLegs, int passengerCount) {
+        List<Route> routes = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        visited.add(originCode);
+        extendRoutes(graph, originCode, destCode, maxLegs, passengerCount, new ArrayList<>(), visited, routes);
+        return routes;
+    }
+
+    private static void extendRoutes(FlightGraph graph, String current, String destCode, int maxLegs,
+                                     int passengerCount, List<Flight> legs, Set<String> visited, List<Route> routes) {
+        if (current.equals(destCode)) {
+            routes.add(new Route(legs));
+            return;
+        }
+        if (legs.size() == maxLegs) return;
+
+        for (Flight flight : graph.getFlightsFrom(current)) {
+            String next = flight.getDestination().getCode();
+            if (flight.getAvailableSeats() < passengerCount || !visited.add(next)) continue;
+            legs.add(flight);
+            extendRoutes(graph, next, destCode, maxLegs, passengerCount, legs, visited, routes);
+            legs.remove(legs.size() - 1);
+            visited.remove(next);
+        }
+    }
+
+    // The same routes, each exactly once, in any order
+    private static boolean sameRoutes(List<Route> expected, List<Route> actual) {
+        Set<List<Flight>> legs = new HashSet<>();
+        for (Route route : actual) {
+            if (!legs.add(route.getFlights())) return false;
+        }
+        for (Route route : expected) {
+            if (!legs.remove(route.getFlights())) return false;
+        }
+        return legs.isEmpty();
+    }
+
+    private static boolean inPriceOrder(List<Route> routes) {
+        for (int i = 1; i < routes.size(); i++) {
+            if (routes.get(i).getTotalPrice() < routes.get(i - 1).getTotalPrice() - 1e-6) return false;
+        }
+        return true;
+    }
+
+    private static String flightNumberKey(int i) {
+        return "FL" + i;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long totalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long percentileUpperBound(long[] histogram, long count, double percentile) {
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public static void main(String[] args) {
+        FlightNetwork network = new FlightNetwork();
+        Airport[] airports = DataInitializer.createSampleAirports();
+        network.addAirports(airports);
+        network.addFlights(DataInitializer.createSampleFlights(airports));
+
+        new PerformanceTester(network).runLargeScaleTests();
+    }
 }
\ No newline at end of file